@@ -3,8 +3,8 @@
  */
 package com.realpaas.platform.key;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -48,69 +48,540 @@ public final class Base62 {
 
     private static final int RADIX = 62;
     
+    /**
+     * Max length of a Base62 code of a non-negative long value, 62^10 < Long.MAX_VALUE < 62^11.
+     */
+    public static final int MAX_CODE_LENGTH = 11;
+    
     private static final char[] ID62_TABLE = {'0','1','2','3','4','5','6','7','8','9','A','B','C','D','E','F','G','H','I','J','K','L','M','N','O','P','Q','R','S','T','U','V','W','X','Y','Z','a','b','c','d','e','f','g','h','i','j','k','l','m','n','o','p','q','r','s','t','u','v','w','x','y','z'};
 
-    private static final Map<Character, Integer> ID62_MAP = new HashMap<Character, Integer>(100);
+    /**
+     * ASCII-indexed digit table, -1 marks a char which is not a Base62 digit.
+     */
+    private static final byte[] ID62_DIGITS = new byte[128];
+
+    /**
+     * POWERS[i] is 62^i, used to get the length of a code without dividing.
+     */
+    private static final long[] POWERS = new long[MAX_CODE_LENGTH];
+    
+    /**
+     * Max value which can be multiplied by the radix without overflow.
+     */
+    private static final long MAX_MULTIPLICAND = Long.MAX_VALUE / RADIX;
 
     static {
+        for(int i=0; i<ID62_DIGITS.length; i++){
+            ID62_DIGITS[i] = -1;
+        }
         for(int i=0; i<RADIX; i++){
-            ID62_MAP.put( Character.valueOf( ID62_TABLE[i] ), Integer.valueOf( i ) );
+            ID62_DIGITS[ ID62_TABLE[i] ] = (byte) i;
+        }
+        long power = 1;
+        for(int i=0; i<MAX_CODE_LENGTH; i++){
+            POWERS[i] = power;
+            power = power * RADIX;
         }
     }
     
     private Base62(){}
     
     public static String encode(long id){
-        StringBuilder sb = new StringBuilder( 10 );
-        int rest = -1;
+        char[] buffer = new char[MAX_CODE_LENGTH];
+        int length = encodeTo( id, buffer, 0 );
+        return new String( buffer, 0, length );
+    }
 
-        while ( id>0 ){
-            rest = (int)(id % RADIX);
+    /**
+     * Encode the id into the given char array starting at offset without any allocation.
+     * @param id non-negative id
+     * @param dest destination array which must have room for {@link #length(long)} chars
+     * @param offset start position in destination array
+     * @return the number of chars written
+     */
+    public static int encodeTo(long id, char[] dest, int offset){
+        int length = length( id );
+        int position = offset + length;
+        if( offset<0 || position>dest.length ){
+            throw new IndexOutOfBoundsException( "No room for " + length + " chars at offset " + offset );
+        }
+        do {
+            dest[--position] = ID62_TABLE[ (int)(id % RADIX) ];
             id = id / RADIX;
-            sb.insert( 0, ID62_TABLE[rest] );
+        } while( id>0 );
+        return length;
+    }
+
+    /**
+     * Append the code of the id to the given StringBuilder, it allocates nothing 
+     * as long as the builder has enough capacity.
+     * @param id non-negative id
+     * @param sb destination builder
+     * @return the given builder
+     */
+    public static StringBuilder encodeTo(long id, StringBuilder sb){
+        int length = length( id );
+        int position = sb.length() + length;
+        sb.setLength( position );
+        do {
+            sb.setCharAt( --position, ID62_TABLE[ (int)(id % RADIX) ] );
+            id = id / RADIX;
+        } while( id>0 );
+        return sb;
+    }
+
+    /**
+     * Get the length of the Base62 code of the given id.
+     * @param id non-negative id
+     * @return length of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     */
+    public static int length(long id){
+        if( id<0 ){
+            throw new IllegalArgumentException( "\"id\" should not be negative" );
+        }
+        int length = 1;
+        while( length<MAX_CODE_LENGTH && id>=POWERS[length] ){
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Encode the id as ASCII bytes into the given array starting at offset without any allocation.
+     * @param id non-negative id
+     * @param dest destination array which must have room for {@link #length(long)} bytes
+     * @param offset start position in destination array
+     * @return the number of bytes written
+     */
+    public static int encodeTo(long id, byte[] dest, int offset){
+        int length = length( id );
+        int position = offset + length;
+        if( offset<0 || position>dest.length ){
+            throw new IndexOutOfBoundsException( "No room for " + length + " bytes at offset " + offset );
+        }
+        do {
+            dest[--position] = (byte) ID62_TABLE[ (int)(id % RADIX) ];
+            id = id / RADIX;
+        } while( id>0 );
+        return length;
+    }
+
+    /**
+     * Encode the id as ASCII bytes at the current position of the given heap or direct buffer,
+     * and advance the position.
+     * @param id non-negative id
+     * @param dest destination buffer
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the remaining of the buffer is not enough for the code
+     */
+    public static int encodeTo(long id, ByteBuffer dest){
+        int length = length( id );
+        int start = dest.position();
+        if( length>dest.remaining() ){
+            throw new BufferOverflowException();
+        }
+        int position = start + length;
+        do {
+            dest.put( --position, (byte) ID62_TABLE[ (int)(id % RADIX) ] );
+            id = id / RADIX;
+        } while( id>0 );
+        dest.position( start + length );
+        return length;
+    }
+
+    /**
+     * Encode a batch of ids as ASCII bytes separated by the delimiter at the current position
+     * of the given buffer, and advance the position. Nothing is written if the buffer has no 
+     * room for the whole batch.
+     * @param ids source ids
+     * @param offset index of the first id to encode
+     * @param count number of ids to encode
+     * @param dest destination buffer
+     * @param delimiter byte written between two codes, it should not be a Base62 digit
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the remaining of the buffer is not enough for the batch
+     */
+    public static int encodeTo(long[] ids, int offset, int count, ByteBuffer dest, byte delimiter){
+        if( count<=0 ){
+            return 0;
+        }
+        int total = count - 1;
+        for( int i=offset; i<offset+count; i++ ){
+            total += length( ids[i] );
+        }
+        if( total>dest.remaining() ){
+            throw new BufferOverflowException();
         }
         
-        if( -1==rest && 0==id){
-            sb.append( ID62_TABLE[0] );
+        int position = dest.position();
+        for( int i=offset; i<offset+count; i++ ){
+            if( i>offset ){
+                dest.put( position++, delimiter );
+            }
+            long id = ids[i];
+            int end = position + length( id );
+            int digit = end;
+            do {
+                dest.put( --digit, (byte) ID62_TABLE[ (int)(id % RADIX) ] );
+                id = id / RADIX;
+            } while( id>0 );
+            position = end;
         }
-        else if( -1==rest && 0<id){
-            throw new IllegalArgumentException( "\"id\" should not be negative" );
+        dest.position( position );
+        return total;
+    }
+
+    /**
+     * Encode the id into a code of {@link #MAX_CODE_LENGTH} chars, left-padded with '0'. Fixed-width 
+     * codes sort in the same order as their ids both as strings and as ASCII bytes, so keys made 
+     * of them are appended at the right edge of indexes.
+     * @param id non-negative id
+     * @return the fixed-width code
+     */
+    public static String encodeFixed(long id){
+        return encodeFixed( id, MAX_CODE_LENGTH );
+    }
+
+    /**
+     * Encode the id into a code of the given width, left-padded with '0'.
+     * @param id non-negative id
+     * @param width width of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     * @return the fixed-width code
+     * @throws IllegalArgumentException if the id is wider than the width
+     */
+    public static String encodeFixed(long id, int width){
+        char[] buffer = new char[MAX_CODE_LENGTH];
+        encodeFixedTo( id, width, buffer, 0 );
+        return new String( buffer, 0, width );
+    }
+
+    /**
+     * Encode the id into a code of the given width, left-padded with '0', into the given char 
+     * array starting at offset without any allocation.
+     * @param id non-negative id
+     * @param width width of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     * @param dest destination array which must have room for width chars
+     * @param offset start position in destination array
+     * @return the number of chars written, always the width
+     * @throws IllegalArgumentException if the id is wider than the width
+     */
+    public static int encodeFixedTo(long id, int width, char[] dest, int offset){
+        checkFixedWidth( id, width );
+        int position = offset + width;
+        if( offset<0 || position>dest.length ){
+            throw new IndexOutOfBoundsException( "No room for " + width + " chars at offset " + offset );
+        }
+        while( position>offset ){
+            dest[--position] = ID62_TABLE[ (int)(id % RADIX) ];
+            id = id / RADIX;
+        }
+        return width;
+    }
+
+    /**
+     * Append the fixed-width code of the id to the given StringBuilder, it allocates nothing 
+     * as long as the builder has enough capacity.
+     * @param id non-negative id
+     * @param width width of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     * @param sb destination builder
+     * @return the given builder
+     * @throws IllegalArgumentException if the id is wider than the width
+     */
+    public static StringBuilder encodeFixedTo(long id, int width, StringBuilder sb){
+        checkFixedWidth( id, width );
+        int start = sb.length();
+        int position = start + width;
+        sb.setLength( position );
+        while( position>start ){
+            sb.setCharAt( --position, ID62_TABLE[ (int)(id % RADIX) ] );
+            id = id / RADIX;
+        }
+        return sb;
+    }
+
+    /**
+     * Encode the fixed-width code of the id as ASCII bytes into the given array starting at offset.
+     * @param id non-negative id
+     * @param width width of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     * @param dest destination array which must have room for width bytes
+     * @param offset start position in destination array
+     * @return the number of bytes written, always the width
+     * @throws IllegalArgumentException if the id is wider than the width
+     */
+    public static int encodeFixedTo(long id, int width, byte[] dest, int offset){
+        checkFixedWidth( id, width );
+        int position = offset + width;
+        if( offset<0 || position>dest.length ){
+            throw new IndexOutOfBoundsException( "No room for " + width + " bytes at offset " + offset );
+        }
+        while( position>offset ){
+            dest[--position] = (byte) ID62_TABLE[ (int)(id % RADIX) ];
+            id = id / RADIX;
+        }
+        return width;
+    }
+
+    /**
+     * Decode the fixed-width code at offset of the given chars without creating a substring, 
+     * leading '0's are decoded as zero digits.
+     * @param code chars which contain the code
+     * @param offset start index of the code
+     * @param width width of the code, from 1 to {@link #MAX_CODE_LENGTH}
+     * @return the decoded id
+     * @throws IllegalArgumentException if the code contains illegal chars or overflows long
+     */
+    public static long decodeFixed(CharSequence code, int offset, int width){
+        if( width<1 || width>MAX_CODE_LENGTH ){
+            throw new IllegalArgumentException( "Width [" + width + "] should be from 1 to " + MAX_CODE_LENGTH );
+        }
+        if( offset<0 || offset + width>code.length() ){
+            throw new IndexOutOfBoundsException( "No " + width + " chars at offset " + offset );
+        }
+        return decode( code, offset, offset + width );
+    }
+
+    /**
+     * Compare two Base62 codes by the ids they stand for without decoding them, codes of any 
+     * width and with any leading '0's can be compared. The chars are not validated, so both 
+     * codes should be legal.
+     * @return a negative integer, zero, or a positive integer as the id of the first code is 
+     *         less than, equal to, or greater than the id of the second
+     */
+    public static int compare(CharSequence code1, CharSequence code2){
+        int length1 = code1.length();
+        int length2 = code2.length();
+        int start1 = 0;
+        int start2 = 0;
+        while( start1<length1 - 1 && code1.charAt( start1 )=='0' ){
+            start1++;
+        }
+        while( start2<length2 - 1 && code2.charAt( start2 )=='0' ){
+            start2++;
         }
         
-        return sb.toString();
+        /*
+         * a longer significant part stands for a greater id, otherwise the ASCII order of 
+         * the digits matches their values
+         */
+        int digits1 = length1 - start1;
+        int digits2 = length2 - start2;
+        if( digits1!=digits2 ){
+            return digits1 - digits2;
+        }
+        for( int i=0; i<digits1; i++ ){
+            int diff = code1.charAt( start1 + i ) - code2.charAt( start2 + i );
+            if( diff!=0 ){
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private static void checkFixedWidth(long id, int width){
+        if( id<0 ){
+            throw new IllegalArgumentException( "\"id\" should not be negative" );
+        }
+        if( width<1 || width>MAX_CODE_LENGTH ){
+            throw new IllegalArgumentException( "Width [" + width + "] should be from 1 to " + MAX_CODE_LENGTH );
+        }
+        if( width<MAX_CODE_LENGTH && id>=POWERS[width] ){
+            throw new IllegalArgumentException( "Id [" + id + "] is wider than " + width + " Base62 digits" );
+        }
+    }
+
+    /**
+     * Get the Base62 char of a digit in [0, 62).
+     */
+    static char toChar(int digit){
+        return ID62_TABLE[digit];
+    }
+
+    /**
+     * Get the digit of a Base62 char.
+     * @return the digit in [0, 62), or -1 if the char is not a Base62 digit
+     */
+    static int toDigit(char ch){
+        return ch<128 ? ID62_DIGITS[ch] : -1;
     }
 
     public static long decode(String code){
+        return decode( (CharSequence) code );
+    }
+
+    public static long decode(CharSequence code){
         if(code==null || code.length()==0){
             throw new IllegalArgumentException( "Base62 code is needed as the only argument" );
         }
+        return decode( code, 0, code.length() );
+    }
+
+    /**
+     * Decode the Base62 code in the range [start, end) of the given chars without creating a substring.
+     * @param code chars which contain the code
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @return the decoded id
+     * @throws IllegalArgumentException if the range is empty, contains illegal chars or overflows long
+     */
+    public static long decode(CharSequence code, int start, int end){
+        if( start>=end ){
+            throw new IllegalArgumentException( "Base62 code should not be empty" );
+        }
         
         long id = 0;
-        int position = 0;
-        long radix = 1;
-        for( int i=code.length()-1; i>-1; i--, position++ ){
-            Character ch = Character.valueOf( code.charAt( i ) );
-            Integer num = ID62_MAP.get( ch );
-            if( num==null ){
-                throw new IllegalArgumentException( code + " is not legal Base62 code" ); 
+        for( int i=start; i<end; i++ ){
+            char ch = code.charAt( i );
+            int num = ch<128 ? ID62_DIGITS[ch] : -1;
+            if( num<0 ){
+                throw new IllegalArgumentException( code.subSequence( start, end ) + " is not legal Base62 code" ); 
             }
-            if(position!=0){
-                radix = radix * RADIX;
+            if( id>MAX_MULTIPLICAND || (id = id * RADIX) > Long.MAX_VALUE - num ){
+                throw new IllegalArgumentException( code.subSequence( start, end ) + " is out of range of Base62 code" ); 
             }
-            id += radix * num.longValue();
+            id += num;
         }
         
         return id;
     }
 
+    /**
+     * Decode the ASCII Base62 code in the range [offset, offset+length) of the given array.
+     * @throws IllegalArgumentException if the range is empty, contains illegal bytes or overflows long
+     */
+    public static long decode(byte[] code, int offset, int length){
+        long id = parse( code, offset, offset + length );
+        if( id<0 ){
+            throw new IllegalArgumentException( "Bytes [" + offset + ", " + (offset + length) + ") are not legal Base62 code" ); 
+        }
+        return id;
+    }
+
+    /**
+     * Decode the ASCII Base62 code in the absolute range [start, end) of the given heap or 
+     * direct buffer, the position and limit of the buffer are not changed.
+     * @throws IllegalArgumentException if the range is empty, contains illegal bytes or overflows long
+     */
+    public static long decode(ByteBuffer code, int start, int end){
+        long id = parse( code, start, end );
+        if( id<0 ){
+            throw new IllegalArgumentException( "Bytes [" + start + ", " + end + ") are not legal Base62 code" ); 
+        }
+        return id;
+    }
+
+    /**
+     * Check if the range [offset, offset+length) of the given array is a legal Base62 code 
+     * which fits in a long.
+     */
+    public static boolean isBase62(byte[] code, int offset, int length){
+        return parse( code, offset, offset + length )>=0;
+    }
+
+    /**
+     * Check if the absolute range [start, end) of the given buffer is a legal Base62 code 
+     * which fits in a long.
+     */
+    public static boolean isBase62(ByteBuffer code, int start, int end){
+        return parse( code, start, end )>=0;
+    }
+
+    /**
+     * Validate a list of ASCII Base62 codes separated by the delimiter in the absolute range 
+     * [start, end) of the given buffer, no object is created per code.
+     * @return the number of codes, or -1 if any code is empty, illegal or overflows long
+     */
+    public static int validateTokens(ByteBuffer tokens, int start, int end, byte delimiter){
+        return decodeTokens( tokens, start, end, delimiter, null, 0 );
+    }
+
+    /**
+     * Decode a list of ASCII Base62 codes separated by the delimiter in the absolute range 
+     * [start, end) of the given buffer into the destination array, no object is created per code.
+     * @param dest destination array which must have room for all codes, or null to validate only
+     * @param destOffset index in destination array of the first decoded id
+     * @return the number of codes, or -1 if any code is empty, illegal or overflows long
+     */
+    public static int decodeTokens(ByteBuffer tokens, int start, int end, byte delimiter, long[] dest, int destOffset){
+        int count = 0;
+        int tokenStart = start;
+        for( int i=start; i<=end; i++ ){
+            if( i<end && tokens.get( i )!=delimiter ){
+                continue;
+            }
+            long id = parse( tokens, tokenStart, i );
+            if( id<0 ){
+                return -1;
+            }
+            if( dest!=null ){
+                dest[destOffset + count] = id;
+            }
+            count++;
+            tokenStart = i + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Decode ASCII bytes in [start, end) of the given array, return -1 if they are not a legal code.
+     */
+    private static long parse(byte[] code, int start, int end){
+        if( start>=end ){
+            return -1;
+        }
+        long id = 0;
+        for( int i=start; i<end; i++ ){
+            int num = digit( code[i] );
+            if( num<0 || id>MAX_MULTIPLICAND || (id = id * RADIX) > Long.MAX_VALUE - num ){
+                return -1;
+            }
+            id += num;
+        }
+        return id;
+    }
+
+    /**
+     * Decode ASCII bytes in [start, end) of the given buffer, return -1 if they are not a legal code.
+     */
+    private static long parse(ByteBuffer code, int start, int end){
+        if( start>=end ){
+            return -1;
+        }
+        long id = 0;
+        for( int i=start; i<end; i++ ){
+            int num = digit( code.get( i ) );
+            if( num<0 || id>MAX_MULTIPLICAND || (id = id * RADIX) > Long.MAX_VALUE - num ){
+                return -1;
+            }
+            id += num;
+        }
+        return id;
+    }
+
+    private static int digit(byte b){
+        return b<0 ? -1 : ID62_DIGITS[b];
+    }
+
     public static boolean isBase62(String code){
+        return isBase62( (CharSequence) code );
+    }
+
+    public static boolean isBase62(CharSequence code){
         if(code==null || code.length()==0){
             return false;
         }
-        int len = code.length();
-        for(int i=0; i<len; i++){
-            Character ch = Character.valueOf( code.charAt( i ) );
-            if( !ID62_MAP.containsKey( ch ) ){
+        return isBase62( code, 0, code.length() );
+    }
+
+    /**
+     * Check if all chars in the range [start, end) are Base62 digits, it does not check overflow.
+     */
+    public static boolean isBase62(CharSequence code, int start, int end){
+        if( start>=end ){
+            return false;
+        }
+        for( int i=start; i<end; i++ ){
+            char ch = code.charAt( i );
+            if( ch>=128 || ID62_DIGITS[ch]<0 ){
                 return false;
             }
         }
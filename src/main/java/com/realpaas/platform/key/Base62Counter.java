@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * A Base62 counter which keeps the code of its current value in a digit array and
+ * advances it in place, so successive codes are produced without re-encoding. In most
+ * steps only the last char is touched. The code is always the same as
+ * {@link Base62#encode(long)} of the current value.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * Base62Counter counter = new Base62Counter( 61 );   // "z"
+ * counter.increment();                                // "10"
+ * counter.appendTo( sb );
+ *
+ * for( CharSequence code : Base62Counter.range( first, first + count ) ){
+ *     // code is only valid until next iteration, copy it if needed
+ * }
+ * </pre>
+ *
+ * <p><dt><b>Immutability:</b></dt>
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> (each thread should use its own counter.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Flyweight
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class Base62Counter implements CharSequence {
+
+    private static final char MAX_DIGIT = Base62.toChar( 61 );
+
+    /**
+     * NEXT_DIGIT[ch] is the char of the digit after ch, for all digits but the max one.
+     */
+    private static final char[] NEXT_DIGIT = new char[128];
+
+    static {
+        for(int i=0; i<61; i++){
+            NEXT_DIGIT[ Base62.toChar( i ) ] = Base62.toChar( i + 1 );
+        }
+    }
+
+    /**
+     * code is right-aligned in the array, [start, digits.length)
+     */
+    private final char[] digits = new char[Base62.MAX_CODE_LENGTH];
+
+    private int start;
+
+    private long value;
+
+    public Base62Counter(long value) {
+        reset( value );
+    }
+
+    /**
+     * Reset the counter to the given value, re-encoding it once.
+     * @param value non-negative value
+     */
+    public void reset(long value) {
+        int length = Base62.encodeTo( value, digits, digits.length - Base62.length( value ) );
+        this.start = digits.length - length;
+        this.value = value;
+    }
+
+    public long value() {
+        return value;
+    }
+
+    /**
+     * Advance the counter by one in place.
+     * @return this counter
+     * @throws IllegalStateException if the counter has reached Long.MAX_VALUE
+     */
+    public Base62Counter increment() {
+        if( value==Long.MAX_VALUE ){
+            throw new IllegalStateException( "Base62 counter overflows at " + value );
+        }
+        value++;
+
+        int position = digits.length - 1;
+        while( digits[position]==MAX_DIGIT ){
+            digits[position] = '0';
+            if( position==start ){
+                digits[--start] = Base62.toChar( 1 );
+                return this;
+            }
+            position--;
+        }
+        digits[position] = NEXT_DIGIT[ digits[position] ];
+        return this;
+    }
+
+    /**
+     * Copy the current code into the given char array starting at offset.
+     * @return the number of chars written
+     */
+    public int copyTo(char[] dest, int offset) {
+        int length = digits.length - start;
+        System.arraycopy( digits, start, dest, offset, length );
+        return length;
+    }
+
+    /**
+     * Append the current code to the given StringBuilder.
+     * @return the given builder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append( digits, start, digits.length - start );
+    }
+
+    @Override
+    public int length() {
+        return digits.length - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if( index<0 || index>=digits.length - start ){
+            throw new IndexOutOfBoundsException( "index: " + index + ", length: " + (digits.length - start) );
+        }
+        return digits[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int begin, int end) {
+        return toString().subSequence( begin, end );
+    }
+
+    @Override
+    public String toString() {
+        return new String( digits, start, digits.length - start );
+    }
+
+    /**
+     * Iterate the codes of a reserved range [from, to). The iterator returns one shared
+     * counter which is advanced on every step, so a returned code is only valid until
+     * the next step.
+     * @param from first value, inclusive
+     * @param to last value, exclusive
+     * @return codes of the range
+     */
+    public static Iterable<CharSequence> range(final long from, final long to) {
+        if( from<0 || to<from ){
+            throw new IllegalArgumentException( "Illegal range [" + from + ", " + to + ")" );
+        }
+        return new Iterable<CharSequence>() {
+            @Override
+            public Iterator<CharSequence> iterator() {
+                return new Iterator<CharSequence>() {
+                    private Base62Counter counter;
+
+                    @Override
+                    public boolean hasNext() {
+                        return counter==null ? from<to : counter.value() + 1<to;
+                    }
+
+                    @Override
+                    public CharSequence next() {
+                        if( !hasNext() ){
+                            throw new NoSuchElementException();
+                        }
+                        if( counter==null ){
+                            counter = new Base62Counter( from );
+                        }
+                        else {
+                            counter.increment();
+                        }
+                        return counter;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+/**
+ * <p>
+ * A keyed bijection over [0, 2^bits), it is used to turn sequence values into opaque ids which
+ * don't leak volume, and to turn them back, without any storage. It is a Feistel network of
+ * 6 rounds whose round function is a keyed 64-bit mixer, a width which is odd gives halves
+ * of different widths. Nothing is allocated by {@link #permute(long)} and {@link #inverse(long)}.
+ * <p>It hides the order of values from casual guessing but it is not a cipher, ids should not
+ * be trusted as secrets.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * FeistelPermutation permutation = new FeistelPermutation( 40, secretKey );
+ * String orderId = permutation.encode( generator.nextValue( "order" ) );
+ * long value = permutation.decode( orderId );
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class FeistelPermutation {
+
+    public static final int MIN_BITS = 2;
+
+    /**
+     * Max width which keeps permuted values non-negative, so that they can be Base62 encoded.
+     */
+    public static final int MAX_BITS = 63;
+
+    /**
+     * An even number of rounds, so that the halves have their original widths in the end.
+     */
+    private static final int ROUNDS = 6;
+
+    private final int bits;
+
+    private final long maxValue;
+
+    /*
+     * widths and masks of the left and right halves, the right one is the wider one if the 
+     * width is odd, and they swap every round
+     */
+    private final int leftBits;
+    private final int rightBits;
+    private final long leftMask;
+    private final long rightMask;
+
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * @param bits width of values, in [{@link #MIN_BITS}, {@link #MAX_BITS}]
+     * @param key secret key of the permutation, the same key always gives the same permutation
+     */
+    public FeistelPermutation(int bits, long key) {
+        if( bits<MIN_BITS || bits>MAX_BITS ){
+            throw new IllegalArgumentException( "Width [" + bits + "] should be in [" + MIN_BITS + ", " + MAX_BITS + "]" );
+        }
+        this.bits = bits;
+        this.maxValue = (1L << bits) - 1;
+        this.leftBits = bits / 2;
+        this.rightBits = bits - leftBits;
+        this.leftMask = (1L << leftBits) - 1;
+        this.rightMask = (1L << rightBits) - 1;
+        
+        long seed = key;
+        for( int i=0; i<ROUNDS; i++ ){
+            seed += 0x9e3779b97f4a7c15L;
+            roundKeys[i] = mix( seed );
+        }
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * @return the max value of the domain, 2^bits - 1
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Map a value to its permuted value, different values are always mapped to different ones.
+     * @param value value in [0, {@link #getMaxValue()}]
+     * @return permuted value in [0, {@link #getMaxValue()}]
+     */
+    public long permute(long value) {
+        checkRange( value );
+        long left = value >>> rightBits;
+        long right = value & rightMask;
+        for( int i=0; i<ROUNDS; i+=2 ){
+            /*
+             * the left half has leftBits and the right half has rightBits before an even 
+             * round, and the other way round before an odd one
+             */
+            long next = (left ^ round( right, i )) & leftMask;
+            left = right;
+            right = next;
+            next = (left ^ round( right, i + 1 )) & rightMask;
+            left = right;
+            right = next;
+        }
+        return left << rightBits | right;
+    }
+
+    /**
+     * Map a permuted value back to its original value.
+     * @param permuted permuted value in [0, {@link #getMaxValue()}]
+     * @return the value which is permuted to the given one
+     */
+    public long inverse(long permuted) {
+        checkRange( permuted );
+        long left = permuted >>> rightBits;
+        long right = permuted & rightMask;
+        for( int i=ROUNDS - 1; i>0; i-=2 ){
+            long previous = (right ^ round( left, i )) & rightMask;
+            right = left;
+            left = previous;
+            previous = (right ^ round( left, i - 1 )) & leftMask;
+            right = left;
+            left = previous;
+        }
+        return left << rightBits | right;
+    }
+
+    /**
+     * Get the Base62 code of the permuted value.
+     */
+    public String encode(long value) {
+        return Base62.encode( permute( value ) );
+    }
+
+    /**
+     * Encode the permuted value into the given char array starting at offset without any allocation.
+     * @return the number of chars written
+     */
+    public int encodeTo(long value, char[] dest, int offset) {
+        return Base62.encodeTo( permute( value ), dest, offset );
+    }
+
+    /**
+     * Get the original value of a code from {@link #encode(long)}.
+     * @throws IllegalArgumentException if the code is not legal or out of the domain
+     */
+    public long decode(CharSequence code) {
+        return inverse( Base62.decode( code ) );
+    }
+
+    private void checkRange(long value) {
+        if( value<0 || value>maxValue ){
+            throw new IllegalArgumentException( "Value [" + value + "] is out of range [0, " + maxValue + "]" );
+        }
+    }
+
+    private long round(long half, int i) {
+        return mix( half ^ roundKeys[i] );
+    }
+
+    /**
+     * The finalizer of MurmurHash3, every input bit affects every output bit.
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+}
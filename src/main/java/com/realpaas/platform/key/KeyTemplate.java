@@ -0,0 +1,593 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * A business key template which is compiled once and renders sequence values into
+ * reusable StringBuilders or char arrays without creating intermediate strings.
+ * <p>
+ * A pattern is made of literal text and segments in braces:
+ * <ul>
+ * <li><code>{partition}</code> the partition key given at rendering time</li>
+ * <li><code>{date:yyyyMMdd}</code> date parts of the rendering time, supports yyyy, yy, MM, dd, HH, mm, ss,
+ * other chars in it are literals</li>
+ * <li><code>{seq}</code> or <code>{seq:7}</code> decimal sequence value, zero-padded to the width if given</li>
+ * <li><code>{base62}</code> or <code>{base62:8}</code> Base62 sequence value, zero-padded to the width if given</li>
+ * <li><code>{check}</code> Luhn check digit of all decimal digits rendered before it</li>
+ * </ul>
+ * <code>{{</code> and <code>}}</code> stand for literal braces. A value which is wider than a
+ * fixed width is rejected instead of being truncated.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * KeyTemplate template = KeyTemplate.compile( "ORD-{date:yyyyMMdd}-{seq:7}" );
+ * StringBuilder sb = new StringBuilder( 32 );
+ * template.formatNext( keyedSequenceGenerator, "order", null, sb );   // ORD-20261017-0000123
+ *
+ * KeyTemplate.compile( "{partition}-{base62:6}{check}" ).format( 123L, "T42", System.currentTimeMillis(), sb );
+ * </pre>
+ *
+ * <p><dt><b>Immutability:</b></dt>
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>THREAD-SAFE</b> (scratch buffers are per thread.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Interpreter
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class KeyTemplate {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private static final int YEAR = 0;
+    private static final int MONTH = 1;
+    private static final int DAY = 2;
+    private static final int HOUR = 3;
+    private static final int MINUTE = 4;
+    private static final int SECOND = 5;
+
+    private final String pattern;
+
+    private final TimeZone timeZone;
+
+    private final Segment[] segments;
+
+    /**
+     * max length of the rendered key except partition key
+     */
+    private final int maxLength;
+
+    private final boolean hasDate;
+
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private KeyTemplate(String pattern, TimeZone timeZone, Segment[] segments) {
+        this.pattern = pattern;
+        this.timeZone = (TimeZone) timeZone.clone();
+        this.segments = segments;
+        int length = 0;
+        boolean date = false;
+        for( Segment segment : segments ){
+            length += segment.maxLength();
+            date |= segment instanceof DatePart;
+        }
+        this.maxLength = length;
+        this.hasDate = date;
+    }
+
+    /**
+     * Compile the pattern with the default time zone.
+     * @param pattern key pattern
+     * @return compiled template
+     * @throws IllegalArgumentException if the pattern is illegal
+     */
+    public static KeyTemplate compile(String pattern) {
+        return compile( pattern, TimeZone.getDefault() );
+    }
+
+    /**
+     * Compile the pattern with the time zone which date parts are rendered in.
+     * @param pattern key pattern
+     * @param timeZone time zone of date parts
+     * @return compiled template
+     * @throws IllegalArgumentException if the pattern is illegal
+     */
+    public static KeyTemplate compile(String pattern, TimeZone timeZone) {
+        if( pattern==null || pattern.length()==0 ){
+            throw new IllegalArgumentException( "Key pattern should not be empty" );
+        }
+
+        List<Segment> segments = new ArrayList<Segment>();
+        StringBuilder literal = new StringBuilder();
+        int length = pattern.length();
+        for( int i=0; i<length; i++ ){
+            char ch = pattern.charAt( i );
+            if( (ch=='{' || ch=='}') && i+1<length && pattern.charAt( i+1 )==ch ){
+                literal.append( ch );
+                i++;
+            }
+            else if( ch=='{' ){
+                int end = pattern.indexOf( '}', i );
+                if( end<0 ){
+                    throw new IllegalArgumentException( "Unclosed segment at " + i + " in key pattern \"" + pattern + "\"" );
+                }
+                addLiteral( segments, literal );
+                parseSegment( segments, pattern, pattern.substring( i+1, end ) );
+                i = end;
+            }
+            else if( ch=='}' ){
+                throw new IllegalArgumentException( "Unmatched '}' at " + i + " in key pattern \"" + pattern + "\"" );
+            }
+            else {
+                literal.append( ch );
+            }
+        }
+        addLiteral( segments, literal );
+
+        return new KeyTemplate( pattern, timeZone, segments.toArray( new Segment[segments.size()] ) );
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+    /**
+     * Get the max length of a rendered key with the partition key of the given length.
+     */
+    public int maxLength(int partitionLength) {
+        int partitions = 0;
+        for( Segment segment : segments ){
+            if( segment instanceof Partition ){
+                partitions++;
+            }
+        }
+        return maxLength + partitions * partitionLength;
+    }
+
+    /**
+     * Render the next value of the given key at current time and append it to the StringBuilder.
+     * @param generator sequence generator
+     * @param key sequence key
+     * @param partition partition key rendered by <code>{partition}</code>, may be null if not used
+     * @param sb destination builder
+     * @return the given builder
+     */
+    public StringBuilder formatNext(KeyedSequenceGenerator generator, String key, CharSequence partition, StringBuilder sb) {
+        return format( generator.nextValue( key ), partition, System.currentTimeMillis(), sb );
+    }
+
+    /**
+     * Render the value and append it to the StringBuilder.
+     * @param value sequence value
+     * @param partition partition key rendered by <code>{partition}</code>, may be null if not used
+     * @param timeMillis time rendered by date parts
+     * @param sb destination builder
+     * @return the given builder
+     */
+    public StringBuilder format(long value, CharSequence partition, long timeMillis, StringBuilder sb) {
+        Scratch s = prepare( partition, timeMillis );
+        int length = render( value, partition, s.date, s.chars, 0 );
+        sb.append( s.chars, 0, length );
+        return sb;
+    }
+
+    /**
+     * Render the value into the char array starting at offset.
+     * @param value sequence value
+     * @param partition partition key rendered by <code>{partition}</code>, may be null if not used
+     * @param timeMillis time rendered by date parts
+     * @param dest destination array
+     * @param offset start position in destination array
+     * @return the number of chars written
+     */
+    public int format(long value, CharSequence partition, long timeMillis, char[] dest, int offset) {
+        Scratch s = prepare( partition, timeMillis );
+        int length = render( value, partition, s.date, s.chars, 0 );
+        System.arraycopy( s.chars, 0, dest, offset, length );
+        return length;
+    }
+
+    /**
+     * Render the values of a reserved range [first, first+count) and append them to the
+     * StringBuilder separated by the delimiter, date parts are computed only once.
+     * @param first first value of the range
+     * @param count number of values
+     * @param partition partition key rendered by <code>{partition}</code>, may be null if not used
+     * @param timeMillis time rendered by date parts
+     * @param sb destination builder
+     * @param delimiter char appended between two keys
+     * @return the given builder
+     * @throws IllegalArgumentException if the keys may not fit in a StringBuilder
+     */
+    public StringBuilder formatRange(long first, int count, CharSequence partition, long timeMillis, StringBuilder sb, char delimiter) {
+        long capacity = sb.length() + (long) count * (maxLength( partition==null ? 0 : partition.length() ) + 1);
+        if( capacity>Integer.MAX_VALUE ){
+            throw new IllegalArgumentException( "Range of " + count + " keys of \"" + pattern + "\" may take " + capacity + " chars, more than a StringBuilder holds" );
+        }
+        Scratch s = prepare( partition, timeMillis );
+        sb.ensureCapacity( (int) capacity );
+        for( int i=0; i<count; i++ ){
+            if( i>0 ){
+                sb.append( delimiter );
+            }
+            int length = render( first + i, partition, s.date, s.chars, 0 );
+            sb.append( s.chars, 0, length );
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    private Scratch prepare(CharSequence partition, long timeMillis) {
+        Scratch s = scratch.get();
+        int required = maxLength( partition==null ? 0 : partition.length() );
+        if( s.chars.length<required ){
+            s.chars = new char[Math.max( required, s.chars.length * 2 )];
+        }
+        if( hasDate ){
+            fillDate( timeMillis + timeZone.getOffset( timeMillis ), s.date );
+        }
+        return s;
+    }
+
+    private int render(long value, CharSequence partition, int[] date, char[] dest, int offset) {
+        int position = offset;
+        for( Segment segment : segments ){
+            position = segment.write( dest, offset, position, value, partition, date );
+        }
+        return position - offset;
+    }
+
+    /**
+     * Convert local millis into year, month, day, hour, minute and second without Calendar.
+     */
+    private static void fillDate(long localMillis, int[] date) {
+        long days = localMillis / MILLIS_PER_DAY;
+        long millisOfDay = localMillis % MILLIS_PER_DAY;
+        if( millisOfDay<0 ){
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+
+        /*
+         * civil date from days since 1970-01-01 in proleptic Gregorian calendar
+         */
+        long z = days + 719468;
+        long era = (z>=0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int month = (int) (mp<10 ? mp + 3 : mp - 9);
+
+        int secondOfDay = (int) (millisOfDay / 1000);
+        date[YEAR] = (int) (yoe + era * 400) + (month<=2 ? 1 : 0);
+        date[MONTH] = month;
+        date[DAY] = (int) (doy - (153 * mp + 2) / 5 + 1);
+        date[HOUR] = secondOfDay / 3600;
+        date[MINUTE] = secondOfDay / 60 % 60;
+        date[SECOND] = secondOfDay % 60;
+    }
+
+    private static void addLiteral(List<Segment> segments, StringBuilder literal) {
+        if( literal.length()>0 ){
+            segments.add( new Literal( literal.toString() ) );
+            literal.setLength( 0 );
+        }
+    }
+
+    private static void parseSegment(List<Segment> segments, String pattern, String body) {
+        int colon = body.indexOf( ':' );
+        String name = colon<0 ? body : body.substring( 0, colon );
+        String argument = colon<0 ? null : body.substring( colon+1 );
+
+        if( "partition".equals( name ) && argument==null ){
+            segments.add( new Partition() );
+        }
+        else if( "check".equals( name ) && argument==null ){
+            segments.add( new CheckDigit() );
+        }
+        else if( "seq".equals( name ) ){
+            segments.add( new Decimal( parseWidth( pattern, argument, 19 ) ) );
+        }
+        else if( "base62".equals( name ) ){
+            segments.add( new Base62Code( parseWidth( pattern, argument, Base62.MAX_CODE_LENGTH ) ) );
+        }
+        else if( "date".equals( name ) && argument!=null && argument.length()>0 ){
+            parseDate( segments, pattern, argument );
+        }
+        else {
+            throw new IllegalArgumentException( "Unknown segment {" + body + "} in key pattern \"" + pattern + "\"" );
+        }
+    }
+
+    private static int parseWidth(String pattern, String argument, int maxWidth) {
+        if( argument==null ){
+            return 0;
+        }
+        int width = -1;
+        try {
+            width = Integer.parseInt( argument );
+        }
+        catch (NumberFormatException e) {
+            width = -1;
+        }
+        if( width<1 || width>maxWidth ){
+            throw new IllegalArgumentException( "Width \"" + argument + "\" should be between 1 and " + maxWidth + " in key pattern \"" + pattern + "\"" );
+        }
+        return width;
+    }
+
+    private static void parseDate(List<Segment> segments, String pattern, String format) {
+        StringBuilder literal = new StringBuilder();
+        int length = format.length();
+        for( int i=0; i<length; ){
+            char ch = format.charAt( i );
+            int run = 1;
+            while( i+run<length && format.charAt( i+run )==ch ){
+                run++;
+            }
+            int field = -1;
+            if( ch=='y' && (run==4 || run==2) ){
+                field = YEAR;
+            }
+            else if( ch=='M' && run==2 ){
+                field = MONTH;
+            }
+            else if( ch=='d' && run==2 ){
+                field = DAY;
+            }
+            else if( ch=='H' && run==2 ){
+                field = HOUR;
+            }
+            else if( ch=='m' && run==2 ){
+                field = MINUTE;
+            }
+            else if( ch=='s' && run==2 ){
+                field = SECOND;
+            }
+            else if( Character.isLetter( ch ) ){
+                throw new IllegalArgumentException( "Unsupported date part \"" + format.substring( i, i+run ) + "\" in key pattern \"" + pattern + "\"" );
+            }
+
+            if( field<0 ){
+                literal.append( format, i, i+run );
+            }
+            else {
+                addLiteral( segments, literal );
+                segments.add( new DatePart( field, run ) );
+            }
+            i += run;
+        }
+        addLiteral( segments, literal );
+    }
+
+    /**
+     * Write non-negative value as decimal digits right-aligned in [start, end), padded with zeros.
+     */
+    private static void writeDecimal(char[] dest, int start, int end, long value) {
+        int position = end;
+        do {
+            dest[--position] = (char) ('0' + (int) (value % 10));
+            value = value / 10;
+        } while( value>0 );
+        while( position>start ){
+            dest[--position] = '0';
+        }
+    }
+
+    private static int decimalLength(long value) {
+        int length = 1;
+        while( value>=10 ){
+            value = value / 10;
+            length++;
+        }
+        return length;
+    }
+
+    private static final class Scratch {
+        private char[] chars = new char[64];
+        private final int[] date = new int[6];
+    }
+
+    private static abstract class Segment {
+
+        abstract int maxLength();
+
+        /**
+         * @param dest destination array
+         * @param start start position of the whole key
+         * @param position current position
+         * @return position after writing
+         */
+        abstract int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date);
+    }
+
+    private static final class Literal extends Segment {
+        private final char[] chars;
+
+        Literal(String text) {
+            this.chars = text.toCharArray();
+        }
+
+        @Override
+        int maxLength() {
+            return chars.length;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            System.arraycopy( chars, 0, dest, position, chars.length );
+            return position + chars.length;
+        }
+    }
+
+    private static final class Partition extends Segment {
+
+        @Override
+        int maxLength() {
+            return 0;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            if( partition==null ){
+                throw new IllegalArgumentException( "Partition key is needed by {partition}" );
+            }
+            int length = partition.length();
+            for( int i=0; i<length; i++ ){
+                dest[position++] = partition.charAt( i );
+            }
+            return position;
+        }
+    }
+
+    private static final class DatePart extends Segment {
+        private final int field;
+        private final int width;
+
+        DatePart(int field, int width) {
+            this.field = field;
+            this.width = width;
+        }
+
+        @Override
+        int maxLength() {
+            return width;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            int part = date[field];
+            if( field==YEAR && width==2 ){
+                part = part % 100;
+            }
+            writeDecimal( dest, position, position + width, part );
+            return position + width;
+        }
+    }
+
+    private static final class Decimal extends Segment {
+        private final int width;
+
+        Decimal(int width) {
+            this.width = width;
+        }
+
+        @Override
+        int maxLength() {
+            return width==0 ? 19 : width;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            if( value<0 ){
+                throw new IllegalArgumentException( "Sequence value [" + value + "] should not be negative" );
+            }
+            int length = decimalLength( value );
+            if( width!=0 ){
+                if( length>width ){
+                    throw new IllegalArgumentException( "Sequence value [" + value + "] is wider than " + width + " decimal digits" );
+                }
+                length = width;
+            }
+            writeDecimal( dest, position, position + length, value );
+            return position + length;
+        }
+    }
+
+    private static final class Base62Code extends Segment {
+        private final int width;
+
+        Base62Code(int width) {
+            this.width = width;
+        }
+
+        @Override
+        int maxLength() {
+            return width==0 ? Base62.MAX_CODE_LENGTH : width;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            if( width!=0 ){
+                return position + Base62.encodeFixedTo( value, width, dest, position );
+            }
+            return position + Base62.encodeTo( value, dest, position );
+        }
+    }
+
+    private static final class CheckDigit extends Segment {
+
+        @Override
+        int maxLength() {
+            return 1;
+        }
+
+        @Override
+        int write(char[] dest, int start, int position, long value, CharSequence partition, int[] date) {
+            int sum = 0;
+            boolean doubled = true;
+            for( int i=position-1; i>=start; i-- ){
+                char ch = dest[i];
+                if( ch<'0' || ch>'9' ){
+                    continue;
+                }
+                int digit = ch - '0';
+                if( doubled ){
+                    digit = digit * 2;
+                    if( digit>9 ){
+                        digit -= 9;
+                    }
+                }
+                sum += digit;
+                doubled = !doubled;
+            }
+            dest[position] = (char) ('0' + (10 - sum % 10) % 10);
+            return position + 1;
+        }
+    }
+}
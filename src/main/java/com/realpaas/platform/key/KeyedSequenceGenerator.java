@@ -3,6 +3,14 @@
  */
 package com.realpaas.platform.key;
 
+import java.util.Collection;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
 /**
  * <p>
  * 
@@ -52,4 +60,103 @@ public interface KeyedSequenceGenerator {
      * @return the next sequence value
      */
     public long nextValue(String key);
+    
+    /**
+     * Get next sequence value of the given key, waiting at most the given timeout for it. 
+     * A load or refill of the key which takes longer goes on in the background, so that 
+     * a later call may find the next segment ready.
+     * @param key the given key
+     * @param timeout the most time to wait
+     * @param unit the time unit of the timeout
+     * @return the next sequence value
+     * @throws SequenceTimeoutException if no value is got before the timeout
+     */
+    public long nextValue(String key, long timeout, TimeUnit unit);
+    
+    /**
+     * Resolve the given key once and get a handle bound to its sequence, which is 
+     * cheaper than {@link #nextValue(String)} when the same key is used repeatedly.
+     * @param key the given key
+     * @return the handle of the key's sequence
+     */
+    public SequenceHandle handle(String key);
+    
+    /**
+     * Reserve consecutive values of the given key at once, e.g. for a batch of inserts. 
+     * Fewer values than requested are reserved when the current segment of the key does 
+     * not have enough, so callers which need more should reserve again.
+     * @param key the given key
+     * @param count the most number of values to reserve
+     * @return the reserved range of 1 to count values
+     */
+    public SequenceRange reserve(String key, int count);
+    
+    /**
+     * Create the given key if it doesn't exist and reserve its first segment without issuing 
+     * any value, so that the first value of the key is got without touching DB.
+     * @param key the given key
+     */
+    public void preload(String key);
+    
+    /**
+     * Drop the cached segment of the given key which is no longer used, the rest of the segment 
+     * is never issued and next use of the key reserves a new one. Generators which share their 
+     * segments share the eviction too.
+     * @param key the given key
+     * @return true if the key was cached
+     */
+    public boolean evict(String key);
+    
+    /**
+     * Create many keys at once, in bulk if the storage supports it, the existing keys are 
+     * skipped. It is much faster than creating them one by one on their first use.
+     * @param keys the given keys
+     * @param preload true to reserve the first segments of the created keys as well, so that 
+     *        their first values are got without touching DB
+     * @return number of the keys which are created
+     */
+    public int provision(Collection<String> keys, boolean preload);
+    
+    /**
+     * Reserve count values of the given key up front and get a spliterator over them, which 
+     * is split by dividing the reserved values. It takes more than one reservation if the 
+     * values span segments of the key.
+     * @param key the given key
+     * @param count the number of values to reserve
+     * @return a SIZED, SUBSIZED, DISTINCT and ORDERED spliterator over the reserved values
+     */
+    public default Spliterator.OfLong spliterator(String key, long count) {
+        return SequenceRangeSpliterator.reserve( this, key, count );
+    }
+    
+    /**
+     * Reserve count values of the given key up front and get a sequential stream of them, 
+     * it can be made parallel.
+     * @param key the given key
+     * @param count the number of values to reserve
+     * @return the stream of the reserved values
+     */
+    public default LongStream stream(String key, long count) {
+        return StreamSupport.longStream( spliterator( key, count ), false );
+    }
+    
+    /**
+     * Get an endless sequential stream of values of the given key, which are reserved lazily 
+     * in growing chunks. Values reserved but not consumed when the stream ends are never issued.
+     * @param key the given key
+     * @return the endless stream of values
+     */
+    public default LongStream stream(String key) {
+        return StreamSupport.longStream( new ReservingSpliterator( this, key ), false );
+    }
+    
+    /**
+     * Get an endless iterator over values of the given key, which are reserved lazily in 
+     * growing chunks.
+     * @param key the given key
+     * @return the endless iterator of values
+     */
+    public default PrimitiveIterator.OfLong iterator(String key) {
+        return Spliterators.iterator( new ReservingSpliterator( this, key ) );
+    }
 }
@@ -3,6 +3,8 @@
  */
 package com.realpaas.platform.key;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * <p>
  * 
@@ -46,4 +48,31 @@ package com.realpaas.platform.key;
  */
 public interface PartitionedSequenceGenerator extends KeyedSequenceGenerator, OneSequenceGenerator{
 
+    /**
+     * Get next sequence value of the given key in the partition, waiting at most the given timeout for it.
+     * @param key the given key in the partition
+     * @param timeout the most time to wait
+     * @param unit the time unit of the timeout
+     * @return the next sequence value
+     * @throws SequenceTimeoutException if no value is got before the timeout
+     */
+    @Override
+    public long nextValue(String key, long timeout, TimeUnit unit);
+
+    /**
+     * Resolve the given key in the partition once and get a handle bound to its sequence.
+     * @param key the given key in the partition
+     * @return the handle of the key's sequence in the partition
+     */
+    @Override
+    public SequenceHandle handle(String key);
+    
+    /**
+     * Reserve consecutive values of the given key in the partition at once.
+     * @param key the given key in the partition
+     * @param count the most number of values to reserve
+     * @return the reserved range of 1 to count values
+     */
+    @Override
+    public SequenceRange reserve(String key, int count);
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * An endless spliterator over values of a key, which reserves them lazily in chunks growing
+ * from 16 to 65536 values. Every split takes a chunk of its own. Values left in a chunk when
+ * the stream ends are never issued.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * keyedSequenceGenerator.stream( "order" ).limit( 1000 ).forEach( consumer );
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> (every split is used by one thread at a time.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Iterator
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+final class ReservingSpliterator implements Spliterator.OfLong {
+
+    static final int INITIAL_CHUNK = 16;
+
+    static final int MAX_CHUNK = 1 << 16;
+
+    private final KeyedSequenceGenerator generator;
+
+    private final String key;
+
+    /**
+     * number of values of next reservation, doubled after each one
+     */
+    private int chunk = INITIAL_CHUNK;
+
+    /*
+     * values (next - 1, last] of the current reservation are left
+     */
+    private long next;
+    private long last = -1L;
+    private boolean reserved = false;
+
+    ReservingSpliterator(KeyedSequenceGenerator generator, String key) {
+        this.generator = generator;
+        this.key = key;
+    }
+
+    private SequenceRange reserveChunk() {
+        SequenceRange range = generator.reserve( key, chunk );
+        if( chunk<MAX_CHUNK ){
+            chunk = chunk * 2;
+        }
+        return range;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if( !reserved || next>last ){
+            SequenceRange range = reserveChunk();
+            next = range.getFirst();
+            last = range.getLast();
+            reserved = true;
+        }
+        action.accept( next++ );
+        return true;
+    }
+
+    /**
+     * Reserve a chunk for the split, which then divides it without going back to the generator.
+     */
+    @Override
+    public Spliterator.OfLong trySplit() {
+        return new SequenceRangeSpliterator( reserveChunk() );
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
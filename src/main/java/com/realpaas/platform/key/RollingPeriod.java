@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * Period function of rolling sequences, it tells where a period starts and ends in a time zone
+ * and labels periods in the order of time.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * long start = RollingPeriod.DAILY.startOf( System.currentTimeMillis(), timeZone );
+ * long end = RollingPeriod.DAILY.nextStart( start, timeZone );
+ * String label = RollingPeriod.DAILY.label( start, timeZone );     // 2026-10-17
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Strategy
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public enum RollingPeriod {
+    
+    HOURLY( Calendar.HOUR_OF_DAY, "yyyy-MM-dd-HH" ),
+    
+    DAILY( Calendar.DAY_OF_MONTH, "yyyy-MM-dd" ),
+    
+    MONTHLY( Calendar.MONTH, "yyyy-MM" ),
+    
+    YEARLY( Calendar.YEAR, "yyyy" );
+    
+    /**
+     * fields cleared to get the start of a period, from the largest one
+     */
+    private static final int[] FIELDS = { Calendar.MONTH, Calendar.DAY_OF_MONTH, Calendar.HOUR_OF_DAY, Calendar.MINUTE, Calendar.SECOND, Calendar.MILLISECOND };
+    
+    private final int field;
+    
+    private final String labelPattern;
+    
+    private RollingPeriod(int field, String labelPattern) {
+        this.field = field;
+        this.labelPattern = labelPattern;
+    }
+    
+    /**
+     * Get the start of the period which the given time is in.
+     * @param timeMillis the given time
+     * @param timeZone time zone of the period boundaries
+     * @return start of the period in milliseconds
+     */
+    public long startOf(long timeMillis, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance( timeZone );
+        calendar.setTimeInMillis( timeMillis );
+        boolean below = field==Calendar.YEAR;
+        for( int f : FIELDS ){
+            if( below ){
+                calendar.set( f, calendar.getActualMinimum( f ) );
+            }
+            below = below || f==field;
+        }
+        return calendar.getTimeInMillis();
+    }
+    
+    /**
+     * Get the start of the period after the one which starts at the given time.
+     * @param periodStart start of a period
+     * @param timeZone time zone of the period boundaries
+     * @return start of the next period in milliseconds
+     */
+    public long nextStart(long periodStart, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance( timeZone );
+        calendar.setTimeInMillis( periodStart );
+        calendar.add( field, 1 );
+        return calendar.getTimeInMillis();
+    }
+    
+    /**
+     * Get the label of the period which the given time is in, e.g. "2026-10-17" for a day.
+     * @param timeMillis the given time
+     * @param timeZone time zone of the period boundaries
+     * @return label of the period
+     */
+    public String label(long timeMillis, TimeZone timeZone) {
+        SimpleDateFormat format = new SimpleDateFormat( labelPattern );
+        format.setTimeZone( timeZone );
+        return format.format( timeMillis );
+    }
+}
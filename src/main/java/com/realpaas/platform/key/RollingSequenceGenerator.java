@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+/**
+ * <p>
+ * Sequences of keys which restart in every period, such as daily order numbers. The key
+ * of the next period is created and its first segment reserved shortly before the boundary,
+ * so that the switch at the boundary doesn't touch DB.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * StringBuilder sb = new StringBuilder( 32 );
+ * long seq = rollingSequenceGenerator.nextValue( "orders", sb );   // sb: 2026-10-17
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public interface RollingSequenceGenerator {
+    
+    /**
+     * Get next sequence value of the given key in the current period.
+     * @param key the given key
+     * @return the next sequence value
+     */
+    public long nextValue(String key);
+    
+    /**
+     * Get next sequence value of the given key in the current period, and append the label 
+     * of the period which the value is issued in, so that it is never mixed up with the next 
+     * period around the boundary.
+     * @param key the given key
+     * @param period builder which the period label is appended to
+     * @return the next sequence value
+     */
+    public long nextValue(String key, StringBuilder period);
+    
+    /**
+     * Get the key of the given key's sequence in the period which the given time is in.
+     * @param key the given key
+     * @param timeMillis the given time
+     * @return the key in the keyed sequence generator, e.g. "orders.2026-10-17"
+     */
+    public String getPeriodKey(String key, long timeMillis);
+}
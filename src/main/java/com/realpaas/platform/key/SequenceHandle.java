@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A long-lived handle bound to the sequence of one key, which is resolved once by
+ * {@link KeyedSequenceGenerator#handle(String)}. Getting next value through it needs
+ * no key lookup or string concatenation, and it keeps working across refills and
+ * cache eviction.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * SequenceHandle orderSequence = keyedSequenceGenerator.handle( "order" );
+ * long id = orderSequence.nextValue();
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public interface SequenceHandle {
+    
+    /**
+     * Get the key which the handle is bound to.
+     * @return the bound key
+     */
+    public String getKey();
+    
+    /**
+     * Get next sequence value of the bound key.
+     * @return the next sequence value
+     */
+    public long nextValue();
+    
+    /**
+     * Get next sequence value of the bound key, waiting at most the given timeout for it.
+     * @param timeout the most time to wait
+     * @param unit the time unit of the timeout
+     * @return the next sequence value
+     * @throws SequenceTimeoutException if no value is got before the timeout
+     */
+    public long nextValue(long timeout, TimeUnit unit);
+}
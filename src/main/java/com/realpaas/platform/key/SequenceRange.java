@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+/**
+ * <p>
+ * A range of consecutive sequence values [first, last] which are reserved at once, e.g. by
+ * {@link KeyedSequenceGenerator#reserve(String, int)}. Values of the range belong to the
+ * caller only, they are never issued to anyone else.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * SequenceRange range = generator.reserve( "order", 15 );
+ * for( long value = range.getFirst(); value&lt;=range.getLast(); value++ ){
+ *     // use value
+ * }
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Value Object
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class SequenceRange {
+
+    private final long first;
+
+    private final int count;
+
+    public SequenceRange(long first, int count) {
+        if( count<1 ){
+            throw new IllegalArgumentException( "Count of a sequence range [" + count + "] should be positive" );
+        }
+        this.first = first;
+        this.count = count;
+    }
+
+    /**
+     * @return the first value of the range, inclusive
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return the last value of the range, inclusive
+     */
+    public long getLast() {
+        return first + count - 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean contains(long value) {
+        return value>=first && value<=getLast();
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (first ^ (first >>> 32)) * 31 + count;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if( this==obj ){
+            return true;
+        }
+        if( !(obj instanceof SequenceRange) ){
+            return false;
+        }
+        SequenceRange other = (SequenceRange) obj;
+        return first==other.first && count==other.count;
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceRange [ first=" + first + ", last=" + getLast() + ", count=" + count + " ]";
+    }
+}
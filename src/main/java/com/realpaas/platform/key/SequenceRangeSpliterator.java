@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * A spliterator over values which are reserved up front, possibly in several ranges when they
+ * span segments. Splits divide the reserved values by position, so parallel streams never go
+ * back to the generator per value.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * LongStream ids = keyedSequenceGenerator.stream( "order", 100000 ).parallel();
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> (every split is used by one thread at a time.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Iterator
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+final class SequenceRangeSpliterator implements Spliterator.OfLong {
+
+    private final SequenceRange[] ranges;
+
+    /**
+     * starts[i] is the position of the first value of ranges[i] among all values
+     */
+    private final long[] starts;
+
+    /**
+     * positions [origin, fence) are covered by this spliterator
+     */
+    private long origin;
+
+    private final long fence;
+
+    /**
+     * index of the range which origin is in
+     */
+    private int index;
+
+    SequenceRangeSpliterator(SequenceRange range) {
+        this( new SequenceRange[] { range }, new long[] { 0L }, 0L, range.getCount() );
+    }
+
+    private SequenceRangeSpliterator(SequenceRange[] ranges, long[] starts, long origin, long fence) {
+        this.ranges = ranges;
+        this.starts = starts;
+        this.origin = origin;
+        this.fence = fence;
+        this.index = indexOf( origin );
+    }
+
+    /**
+     * Reserve count values of the key up front, by as many reservations as the segments of 
+     * the key need.
+     */
+    static SequenceRangeSpliterator reserve(KeyedSequenceGenerator generator, String key, long count) {
+        if( count<0 ){
+            throw new IllegalArgumentException( "Count of values to reserve [" + count + "] should not be negative" );
+        }
+        List<SequenceRange> reserved = new ArrayList<SequenceRange>();
+        long[] starts = new long[4];
+        long total = 0L;
+        while( total<count ){
+            SequenceRange range = generator.reserve( key, (int) Math.min( count - total, Integer.MAX_VALUE ) );
+            if( reserved.size()==starts.length ){
+                starts = Arrays.copyOf( starts, starts.length * 2 );
+            }
+            starts[reserved.size()] = total;
+            reserved.add( range );
+            total += range.getCount();
+        }
+        return new SequenceRangeSpliterator( reserved.toArray( new SequenceRange[reserved.size()] ), starts, 0L, total );
+    }
+
+    private int indexOf(long position) {
+        int found = Arrays.binarySearch( starts, 0, ranges.length, position );
+        return found>=0 ? found : -found - 2;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if( origin>=fence ){
+            return false;
+        }
+        while( index + 1<ranges.length && origin>=starts[index + 1] ){
+            index++;
+        }
+        long value = ranges[index].getFirst() + (origin - starts[index]);
+        origin++;
+        action.accept( value );
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        long position = origin;
+        int i = index;
+        origin = fence;
+        while( position<fence ){
+            SequenceRange range = ranges[i];
+            long end = Math.min( fence, starts[i] + range.getCount() );
+            long value = range.getFirst() + (position - starts[i]);
+            for( ; position<end; position++ ){
+                action.accept( value++ );
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Split the remaining values in halves, it needs no more reservation.
+     */
+    @Override
+    public Spliterator.OfLong trySplit() {
+        long middle = (origin + fence) >>> 1;
+        if( middle<=origin ){
+            return null;
+        }
+        SequenceRangeSpliterator prefix = new SequenceRangeSpliterator( ranges, starts, origin, middle );
+        origin = middle;
+        index = indexOf( middle );
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | DISTINCT | ORDERED | NONNULL | IMMUTABLE;
+    }
+}
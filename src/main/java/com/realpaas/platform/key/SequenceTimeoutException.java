@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+/**
+ * <p>
+ * Thrown when a call with a deadline doesn't get its value in time. The load or
+ * refill which it waited for is not cancelled, so callers may simply try again later.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * try {
+ *     id = generator.nextValue( "order", 50, TimeUnit.MILLISECONDS );
+ * }
+ * catch (SequenceTimeoutException e) {
+ *     // shed the request, the next segment keeps being reserved
+ * }
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SequenceTimeoutException extends SequenceGeneratorException {
+
+    private static final long serialVersionUID = -3361427158912046263L;
+
+    private final String key;
+
+    public SequenceTimeoutException(String key) {
+        super( "Timed out waiting for next value of \"" + key + "\", its refill goes on in the background" );
+        this.key = key;
+    }
+
+    /**
+     * @return the key whose value was not got before the deadline
+     */
+    public String getKey() {
+        return key;
+    }
+}
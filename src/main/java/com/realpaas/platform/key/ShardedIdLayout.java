@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+/**
+ * <p>
+ * Layout of ids which carry the shard of their data in the high bits, below the sign bit, and a
+ * sequence value in the rest. Any holder of an id finds its shard with one shift instead of a
+ * directory lookup.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * ShardedIdLayout layout = new ShardedIdLayout( 10 );
+ * long id = layout.compose( 37, 123456L );
+ * int shard = ShardedIdLayout.shardOf( id, 10 );     // 37
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class ShardedIdLayout {
+
+    public static final int MAX_SHARD_BITS = 31;
+
+    private final int shardBits;
+
+    private final int sequenceBits;
+
+    private final long maxSequence;
+
+    private final int maxShard;
+
+    /**
+     * @param shardBits number of high bits which hold the shard, from 1 to {@link #MAX_SHARD_BITS}
+     */
+    public ShardedIdLayout(int shardBits) {
+        if( shardBits<1 || shardBits>MAX_SHARD_BITS ){
+            throw new IllegalArgumentException( "Shard bits [" + shardBits + "] should be from 1 to " + MAX_SHARD_BITS );
+        }
+        this.shardBits = shardBits;
+        this.sequenceBits = 63 - shardBits;
+        this.maxSequence = (1L << sequenceBits) - 1;
+        this.maxShard = (int) ((1L << shardBits) - 1);
+    }
+
+    /**
+     * Get the shard of an id of the layout with the given shard bits, it needs no instance.
+     * @param id id of the layout
+     * @param shardBits number of high bits which hold the shard
+     * @return the shard of the id
+     */
+    public static int shardOf(long id, int shardBits) {
+        return (int) (id >>> (63 - shardBits));
+    }
+
+    public int shardOf(long id) {
+        return (int) (id >>> sequenceBits);
+    }
+
+    public long sequenceOf(long id) {
+        return id & maxSequence;
+    }
+
+    /**
+     * Put the shard in the high bits of the sequence value.
+     * @param shard shard from 0 to {@link #getMaxShard()}
+     * @param sequence sequence value from 0 to {@link #getMaxSequence()}
+     * @return the id
+     * @throws SequenceGeneratorException if the sequence value doesn't fit in the sequence field
+     */
+    public long compose(int shard, long sequence) {
+        if( shard<0 || shard>maxShard ){
+            throw new IllegalArgumentException( "Shard [" + shard + "] is out of range [0, " + maxShard + "]" );
+        }
+        if( sequence<0 || sequence>maxSequence ){
+            throw new SequenceGeneratorException( "Sequence field of shard " + shard + " is exhausted, value [" + sequence + "] is out of range [0, " + maxSequence + "]" );
+        }
+        return ((long) shard << sequenceBits) | sequence;
+    }
+
+    public int getShardBits() {
+        return shardBits;
+    }
+
+    public int getSequenceBits() {
+        return sequenceBits;
+    }
+
+    public long getMaxSequence() {
+        return maxSequence;
+    }
+
+    public int getMaxShard() {
+        return maxShard;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedIdLayout [ shardBits=" + shardBits + ", sequenceBits=" + sequenceBits + " ]";
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A 128-bit unique id which sorts by time, it is made of a 48-bit timestamp in milliseconds,
+ * a 32-bit node component and a 48-bit counter of the node, kept in two longs. The node
+ * component is taken from a keyed sequence so that no random number is needed.
+ * <p>Its fixed-width Base62 code has {@link #BASE62_LENGTH} chars, and the lexical order of codes
+ * is the same as the order of ids.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * SortableId id = sortableIdGenerator.nextId();
+ * String code = id.toBase62();             // e.g. "02JhzmLwdTFYbZl02vU7bE"
+ * SortableId.parse( code ).equals( id );   // true
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Value Object
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class SortableId implements Comparable<SortableId>, Serializable {
+
+    private static final long serialVersionUID = -3926512370181935174L;
+
+    /**
+     * Length of the Base62 code of an id, 62^21 &lt; 2^128 &lt; 62^22.
+     */
+    public static final int BASE62_LENGTH = 22;
+
+    public static final int TIMESTAMP_BITS = 48;
+
+    public static final int NODE_BITS = 32;
+
+    public static final int COUNTER_BITS = 48;
+
+    public static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+    public static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    public static final long MAX_COUNTER = (1L << COUNTER_BITS) - 1;
+
+    private static final int RADIX = 62;
+
+    private static final long LIMB_MASK = 0xffffffffL;
+
+    private final long high;
+
+    private final long low;
+
+    public SortableId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Compose an id of its parts.
+     * @param timestamp milliseconds since epoch, in [0, {@link #MAX_TIMESTAMP}]
+     * @param node node component, in [0, {@link #MAX_NODE}]
+     * @param counter monotonic counter of the node, in [0, {@link #MAX_COUNTER}]
+     */
+    public static SortableId of(long timestamp, long node, long counter) {
+        if( timestamp<0 || timestamp>MAX_TIMESTAMP ){
+            throw new IllegalArgumentException( "Timestamp [" + timestamp + "] is out of range [0, " + MAX_TIMESTAMP + "]" );
+        }
+        if( node<0 || node>MAX_NODE ){
+            throw new IllegalArgumentException( "Node [" + node + "] is out of range [0, " + MAX_NODE + "]" );
+        }
+        if( counter<0 || counter>MAX_COUNTER ){
+            throw new IllegalArgumentException( "Counter [" + counter + "] is out of range [0, " + MAX_COUNTER + "]" );
+        }
+        return new SortableId( timestamp << 16 | node >>> 16, (node & 0xffff) << COUNTER_BITS | counter );
+    }
+
+    /**
+     * @return the most significant 64 bits
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return the least significant 64 bits
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return milliseconds since epoch when the id was generated
+     */
+    public long getTimestamp() {
+        return high >>> 16;
+    }
+
+    public long getNode() {
+        return (high & 0xffff) << 16 | low >>> COUNTER_BITS;
+    }
+
+    public long getCounter() {
+        return low & MAX_COUNTER;
+    }
+
+    /**
+     * Encode the id as a fixed-width Base62 code with leading zeros into the given char array 
+     * starting at offset without any allocation, the lexical order of codes is the same as 
+     * the order of ids.
+     * @return the number of chars written, always {@link #BASE62_LENGTH}
+     */
+    public int encodeTo(char[] dest, int offset) {
+        if( offset<0 || offset + BASE62_LENGTH>dest.length ){
+            throw new IndexOutOfBoundsException( "No room for " + BASE62_LENGTH + " chars at offset " + offset );
+        }
+        
+        /*
+         * divide the 128-bit value by the radix limb by limb, 32 bits a limb, so that a 
+         * partial dividend (remainder << 32 | limb) always fits in a long
+         */
+        long limb3 = high >>> 32;
+        long limb2 = high & LIMB_MASK;
+        long limb1 = low >>> 32;
+        long limb0 = low & LIMB_MASK;
+        for( int position=offset + BASE62_LENGTH - 1; position>=offset; position-- ){
+            long dividend = limb3;
+            limb3 = dividend / RADIX;
+            dividend = (dividend - limb3 * RADIX) << 32 | limb2;
+            limb2 = dividend / RADIX;
+            dividend = (dividend - limb2 * RADIX) << 32 | limb1;
+            limb1 = dividend / RADIX;
+            dividend = (dividend - limb1 * RADIX) << 32 | limb0;
+            limb0 = dividend / RADIX;
+            dest[position] = Base62.toChar( (int) (dividend - limb0 * RADIX) );
+        }
+        return BASE62_LENGTH;
+    }
+
+    public String toBase62() {
+        char[] buffer = new char[BASE62_LENGTH];
+        encodeTo( buffer, 0 );
+        return new String( buffer );
+    }
+
+    /**
+     * Decode the fixed-width Base62 code in [start, start + {@link #BASE62_LENGTH}) of the given chars.
+     * @throws IllegalArgumentException if the code is too short, contains illegal chars or overflows 128 bits
+     */
+    public static SortableId parse(CharSequence code, int start) {
+        if( start<0 || start + BASE62_LENGTH>code.length() ){
+            throw new IllegalArgumentException( "Sortable id should be " + BASE62_LENGTH + " Base62 chars" );
+        }
+        long limb3 = 0;
+        long limb2 = 0;
+        long limb1 = 0;
+        long limb0 = 0;
+        for( int i=start; i<start + BASE62_LENGTH; i++ ){
+            int digit = Base62.toDigit( code.charAt( i ) );
+            if( digit<0 ){
+                throw new IllegalArgumentException( code.subSequence( start, start + BASE62_LENGTH ) + " is not legal Base62 code" );
+            }
+            limb0 = limb0 * RADIX + digit;
+            limb1 = limb1 * RADIX + (limb0 >>> 32);
+            limb2 = limb2 * RADIX + (limb1 >>> 32);
+            limb3 = limb3 * RADIX + (limb2 >>> 32);
+            if( limb3>LIMB_MASK ){
+                throw new IllegalArgumentException( code.subSequence( start, start + BASE62_LENGTH ) + " is out of range of sortable id" );
+            }
+            limb0 &= LIMB_MASK;
+            limb1 &= LIMB_MASK;
+            limb2 &= LIMB_MASK;
+        }
+        return new SortableId( limb3 << 32 | limb2, limb1 << 32 | limb0 );
+    }
+
+    public static SortableId parse(CharSequence code) {
+        if( code==null || code.length()!=BASE62_LENGTH ){
+            throw new IllegalArgumentException( "Sortable id should be " + BASE62_LENGTH + " Base62 chars" );
+        }
+        return parse( code, 0 );
+    }
+
+    /**
+     * Compare as unsigned 128-bit values.
+     */
+    @Override
+    public int compareTo(SortableId other) {
+        if( high!=other.high ){
+            return high + Long.MIN_VALUE<other.high + Long.MIN_VALUE ? -1 : 1;
+        }
+        if( low!=other.low ){
+            return low + Long.MIN_VALUE<other.low + Long.MIN_VALUE ? -1 : 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = high * 31 + low;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if( this==obj ){
+            return true;
+        }
+        if( !(obj instanceof SortableId) ){
+            return false;
+        }
+        SortableId other = (SortableId) obj;
+        return high==other.high && low==other.low;
+    }
+
+    @Override
+    public String toString() {
+        return toBase62();
+    }
+}
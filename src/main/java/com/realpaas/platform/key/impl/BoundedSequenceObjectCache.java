@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Sequence object cache bounded by size and idle time for a high cardinality of keys,
+ * such as per-tenant and per-day keys.
+ * <p>When the cache is full, a new key replaces a sampled victim only if it has been used
+ * more often recently, so cold keys can not push out hot ones. A declined key is kept in
+ * a small side slot until another declined key takes the slot, so a warm key which keeps 
+ * being declined still takes its values from one segment instead of reserving a segment
+ * on every use. Keys which are not used for <code>maxIdleMillis</code> are evicted by
+ * periodic sweeps.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="sequenceObjectCache" class="com.realpaas.platform.key.impl.BoundedSequenceObjectCache"&gt;
+ *     &lt;constructor-arg index="0"&gt;&lt;value&gt;100000&lt;/value&gt;&lt;/constructor-arg&gt;
+ *     &lt;constructor-arg index="1"&gt;&lt;value&gt;1800000&lt;/value&gt;&lt;/constructor-arg&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	TinyLFU admission, Clock sampling eviction
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class BoundedSequenceObjectCache implements SequenceObjectCache {
+    
+    private static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    private static final long DEFAULT_MAX_IDLE_MILLIS = 30L * 60 * 1000;
+    
+    /**
+     * number of entries scanned to choose a victim
+     */
+    private static final int SAMPLE_SIZE = 8;
+    
+    /**
+     * max number of side slots for declined keys, relative to the maximum size
+     */
+    private static final int SIDE_SLOT_DIVISOR = 64;
+    
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    
+    /**
+     * declined keys by the hash of key, a declined key replaces the one of the same slot
+     */
+    private final AtomicReferenceArray<Entry> sideSlots;
+    
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    
+    private final int maximumSize;
+    
+    private final long maxIdleMillis;
+    
+    private final FrequencySketch sketch;
+    
+    /**
+     * clock hand over entries to sample victims, guarded by evictionLock
+     */
+    private Iterator<Entry> hand;
+    
+    private volatile long nextSweepMillis;
+    
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+    
+    public BoundedSequenceObjectCache() {
+        this( DEFAULT_MAXIMUM_SIZE, DEFAULT_MAX_IDLE_MILLIS );
+    }
+    
+    /**
+     * @param maximumSize max number of cached keys
+     * @param maxIdleMillis keys which are not used for such a long time are evicted, 0 means never
+     */
+    public BoundedSequenceObjectCache(int maximumSize, long maxIdleMillis) {
+        if( maximumSize<1 ){
+            throw new IllegalArgumentException( "Property \"maximumSize\" [" + maximumSize + "] should be greater than 0" );
+        }
+        if( maxIdleMillis<0 ){
+            throw new IllegalArgumentException( "Property \"maxIdleMillis\" [" + maxIdleMillis + "] should not be negative" );
+        }
+        this.maximumSize = maximumSize;
+        this.maxIdleMillis = maxIdleMillis;
+        this.sketch = new FrequencySketch( maximumSize );
+        this.sideSlots = new AtomicReferenceArray<Entry>( Integer.highestOneBit( Math.max( maximumSize / SIDE_SLOT_DIVISOR, 1 ) ) );
+        this.nextSweepMillis = System.currentTimeMillis() + sweepInterval();
+    }
+
+    @Override
+    public SequenceObject get(String storedKey) {
+        sketch.increment( storedKey );
+        Entry entry = entries.get( storedKey );
+        long now = System.currentTimeMillis();
+        if( now>=nextSweepMillis ){
+            sweep( now );
+        }
+        
+        if( entry==null ){
+            entry = getAside( storedKey );
+        }
+        if( entry==null ){
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        entry.touch( now );
+        return entry.so;
+    }
+
+    @Override
+    public SequenceObject putIfAbsent(String storedKey, SequenceObject so) {
+        Entry existing = entries.get( storedKey );
+        if( existing!=null ){
+            return existing.so;
+        }
+        existing = getAside( storedKey );
+        if( existing!=null ){
+            return existing.so;
+        }
+        
+        if( entries.size()>=maximumSize ){
+            evictionLock.lock();
+            try {
+                /*
+                 * admit the new key only if it is used more often than the victim,
+                 * so that cold keys can not push out hot ones
+                 */
+                Entry victim = sampleVictim( System.currentTimeMillis() );
+                if( victim!=null && entries.size()>=maximumSize ){
+                    if( sketch.frequency( storedKey )<=sketch.frequency( victim.key ) ){
+                        rejectionCount.incrementAndGet();
+                        return putAside( new Entry( storedKey, so, System.currentTimeMillis() ) );
+                    }
+                    if( entries.remove( victim.key, victim ) ){
+                        evictionCount.incrementAndGet();
+                    }
+                }
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+        
+        Entry entry = new Entry( storedKey, so, System.currentTimeMillis() );
+        existing = entries.putIfAbsent( storedKey, entry );
+        if( existing!=null ){
+            return existing.so;
+        }
+        if( entries.size()>maximumSize ){
+            evict();
+        }
+        return null;
+    }
+
+    @Override
+    public SequenceObject remove(String storedKey) {
+        Entry entry = entries.remove( storedKey );
+        Entry aside = getAside( storedKey );
+        if( aside!=null && sideSlots.compareAndSet( slotOf( storedKey ), aside, null ) && entry==null ){
+            entry = aside;
+        }
+        return entry==null ? null : entry.so;
+    }
+
+    /**
+     * @return sequence objects of the cached keys and of the declined keys in side slots
+     */
+    @Override
+    public List<SequenceObject> values() {
+        List<SequenceObject> values = new ArrayList<SequenceObject>( entries.size() + sideSlots.length() );
+        for( Entry entry : entries.values() ){
+            values.add( entry.so );
+        }
+        for( int i=0; i<sideSlots.length(); i++ ){
+            Entry aside = sideSlots.get( i );
+            if( aside!=null ){
+                values.add( aside.so );
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Evict all idle keys right now.
+     */
+    public void cleanUp() {
+        sweep( System.currentTimeMillis() );
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get() + expirationCount.get();
+    }
+    
+    /**
+     * @return the number of keys evicted for size
+     */
+    public long getSizeEvictionCount() {
+        return evictionCount.get();
+    }
+    
+    /**
+     * @return the number of keys evicted for idle time
+     */
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+    
+    /**
+     * @return the number of new keys which are put aside for they are used less often than cached ones
+     */
+    public long getRejectionCount() {
+        return rejectionCount.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests==0 ? 1.0 : (double) hits / requests;
+    }
+    
+    private int slotOf(String storedKey) {
+        int h = storedKey.hashCode();
+        return (h ^ (h >>> 16)) & (sideSlots.length() - 1);
+    }
+    
+    private Entry getAside(String storedKey) {
+        Entry aside = sideSlots.get( slotOf( storedKey ) );
+        return aside!=null && aside.key.equals( storedKey ) ? aside : null;
+    }
+    
+    /**
+     * Keep a declined key in its side slot in place of the previous one.
+     * @return SO of the key if it is already there, or null
+     */
+    private SequenceObject putAside(Entry entry) {
+        int slot = slotOf( entry.key );
+        for( ;; ){
+            Entry current = sideSlots.get( slot );
+            if( current!=null && current.key.equals( entry.key ) ){
+                return current.so;
+            }
+            if( sideSlots.compareAndSet( slot, current, entry ) ){
+                return null;
+            }
+        }
+    }
+    
+    private long sweepInterval() {
+        return maxIdleMillis==0 ? Long.MAX_VALUE / 2 : Math.max( maxIdleMillis / 2, 1 );
+    }
+    
+    private boolean isIdle(Entry entry, long now) {
+        return maxIdleMillis!=0 && now - entry.lastAccessMillis>=maxIdleMillis;
+    }
+    
+    /**
+     * Remove all idle entries, only one thread sweeps at a time and others go on.
+     */
+    private void sweep(long now) {
+        if( !evictionLock.tryLock() ){
+            return;
+        }
+        try {
+            nextSweepMillis = now + sweepInterval();
+            for( Entry entry : entries.values() ){
+                if( isIdle( entry, now ) && entries.remove( entry.key, entry ) ){
+                    expirationCount.incrementAndGet();
+                }
+            }
+            for( int i=0; i<sideSlots.length(); i++ ){
+                Entry aside = sideSlots.get( i );
+                if( aside!=null && isIdle( aside, now ) && sideSlots.compareAndSet( i, aside, null ) ){
+                    expirationCount.incrementAndGet();
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    /**
+     * Trim entries down to the maximum size.
+     */
+    private void evict() {
+        if( !evictionLock.tryLock() ){
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            while( entries.size()>maximumSize ){
+                Entry victim = sampleVictim( now );
+                if( victim==null ){
+                    break;
+                }
+                if( entries.size()>maximumSize && entries.remove( victim.key, victim ) ){
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    /**
+     * Scan next entries by the clock hand, remove idle ones on the way and return the least 
+     * frequently used one (the least recently used one if frequencies are equal). It must 
+     * be called with evictionLock held.
+     */
+    private Entry sampleVictim(long now) {
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for( int i=0; i<SAMPLE_SIZE; i++ ){
+            if( hand==null || !hand.hasNext() ){
+                hand = entries.values().iterator();
+                if( !hand.hasNext() ){
+                    break;
+                }
+            }
+            Entry entry = hand.next();
+            if( isIdle( entry, now ) ){
+                if( entries.remove( entry.key, entry ) ){
+                    expirationCount.incrementAndGet();
+                }
+                continue;
+            }
+            int frequency = sketch.frequency( entry.key );
+            if( victim==null || frequency<victimFrequency 
+                    || (frequency==victimFrequency && entry.lastAccessMillis<victim.lastAccessMillis) ){
+                victim = entry;
+                victimFrequency = frequency;
+            }
+        }
+        return victim;
+    }
+    
+    private static final class Entry {
+        private final String key;
+        private final SequenceObject so;
+        private volatile long lastAccessMillis;
+        
+        Entry(String key, SequenceObject so, long now) {
+            this.key = key;
+            this.so = so;
+            this.lastAccessMillis = now;
+        }
+        
+        void touch(long now) {
+            if( lastAccessMillis!=now ){
+                lastAccessMillis = now;
+            }
+        }
+    }
+}
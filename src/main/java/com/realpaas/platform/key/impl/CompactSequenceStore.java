@@ -0,0 +1,468 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.realpaas.platform.key.SequenceRange;
+
+/**
+ * <p>
+ * Compact store of sequence pointers and valves for millions of live keys, as an
+ * alternative of {@link SequenceObjectCache} for {@link KeyedSequenceGeneratorImpl}.
+ * <p>Keys are interned as modified UTF-8 bytes into an append-only arena and found by an
+ * open-addressing index, pointers and valves are kept side by side in pages of
+ * <code>AtomicLongArray</code> by entry id. No object is kept per key, and looking up a key
+ * creates no object. Entries never move once created, so pointers are updated in place
+ * with the same atomic operations as {@link SequenceObject}, and loading or refilling an
+ * entry is guarded by a striped lock. Entries are never evicted.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="keyedSequenceGenerator" class="com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl"&gt;
+ *     &lt;property name="compactStore"&gt;&lt;bean class="com.realpaas.platform.key.impl.CompactSequenceStore"/&gt;&lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b> (lookups are lock-free, new keys are added under a lock.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Flyweight
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class CompactSequenceStore {
+    
+    /**
+     * valve of an entry which has not been loaded from storage
+     */
+    private static final long NOT_LOADED = Long.MIN_VALUE;
+    
+    /**
+     * valve of a loaded entry while its segment is being replaced, no pointer reaches below it
+     */
+    private static final long CLOSED = Long.MIN_VALUE + 1;
+    
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    
+    private static final int ARENA_CHUNK_SIZE = 1 << 16;
+    private static final int MAX_KEY_BYTES = 0xffff;
+    
+    private static final int LOCK_STRIPES = 256;
+    
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    
+    /**
+     * open-addressing index from key hash to entry id + 1, 0 marks an empty slot. It is 
+     * replaced as a whole when it grows.
+     */
+    private volatile AtomicIntegerArray index;
+    
+    /**
+     * pages of interleaved pointer and valve by entry id, pages never move once created
+     */
+    private volatile AtomicLongArray[] counterPages = new AtomicLongArray[0];
+    
+    /**
+     * pages of (arena chunk, offset, length) references of keys by entry id
+     */
+    private volatile long[][] keyPages = new long[0][];
+    
+    /**
+     * pages of key hashes by entry id
+     */
+    private volatile int[][] hashPages = new int[0][];
+    
+    /**
+     * modified UTF-8 bytes of keys, chunks never move once created
+     */
+    private volatile byte[][] arena = new byte[0][];
+    
+    private int arenaPosition = ARENA_CHUNK_SIZE;
+    
+    private volatile int size;
+    
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    /**
+     * guards all writes of index, pages and arena
+     */
+    private final Object writeLock = new Object();
+    
+    public CompactSequenceStore() {
+        this( DEFAULT_INITIAL_CAPACITY );
+    }
+    
+    /**
+     * @param initialCapacity expected number of keys
+     */
+    public CompactSequenceStore(int initialCapacity) {
+        int capacity = Integer.highestOneBit( Math.max( initialCapacity, 16 ) * 2 - 1 ) << 1;
+        this.index = new AtomicIntegerArray( capacity );
+        for( int i=0; i<LOCK_STRIPES; i++ ){
+            locks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Find the entry of the key, or create a not loaded one with the initial pointer if it is absent.
+     * @param key sequence key
+     * @param pointer initial pointer of a new entry
+     * @return entry id
+     */
+    public int getOrCreate(String key, long pointer) {
+        int hash = hash( key );
+        int id = find( index, key, hash );
+        if( id>=0 ){
+            return id;
+        }
+        
+        synchronized( writeLock ){
+            AtomicIntegerArray table = index;
+            id = find( table, key, hash );
+            if( id>=0 ){
+                return id;
+            }
+            
+            id = size;
+            if( (id & PAGE_MASK)==0 ){
+                addPages( id >>> PAGE_SHIFT );
+            }
+            int page = id >>> PAGE_SHIFT;
+            int slot = id & PAGE_MASK;
+            AtomicLongArray counters = counterPages[page];
+            counters.set( slot << 1, pointer );
+            counters.set( (slot << 1) + 1, NOT_LOADED );
+            keyPages[page][slot] = intern( key );
+            hashPages[page][slot] = hash;
+            
+            if( (id + 1) * 2>table.length() ){
+                table = rehash( table );
+            }
+            insert( table, hash, id );
+            index = table;
+            size = id + 1;
+            return id;
+        }
+    }
+    
+    /**
+     * @return the entry id of the key, or -1 if it is absent
+     */
+    public int find(String key) {
+        return find( index, key, hash( key ) );
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return the lock which guards loading and refilling the entry
+     */
+    public Object lockOf(int id) {
+        return locks[id & (LOCK_STRIPES - 1)];
+    }
+    
+    public boolean isLoaded(int id) {
+        return counters( id ).get( valveIndex( id ) )!=NOT_LOADED;
+    }
+    
+    public long getPointer(int id) {
+        return counters( id ).get( pointerIndex( id ) );
+    }
+    
+    public long getValve(int id) {
+        return counters( id ).get( valveIndex( id ) );
+    }
+    
+    /**
+     * Set pointer and valve loaded from storage, it marks the entry as loaded. The segment of 
+     * a loaded entry is closed first, as {@link SequenceObject#setSegment(long, long)} does, 
+     * so that no caller pairs the new pointer with the old valve when the new segment is lower.
+     */
+    public void sync(int id, long pointer, long valve) {
+        AtomicLongArray counters = counters( id );
+        int valveIndex = valveIndex( id );
+        if( counters.get( valveIndex )!=NOT_LOADED ){
+            counters.set( valveIndex, CLOSED );
+        }
+        counters.set( pointerIndex( id ), pointer );
+        counters.set( valveIndex, valve );
+    }
+    
+    public boolean reachValve(int id) {
+        AtomicLongArray counters = counters( id );
+        return counters.get( pointerIndex( id ) )>=counters.get( valveIndex( id ) );
+    }
+    
+    /**
+     * Roll the pointer of the entry and return it, the pointer never passes the valve.
+     * @return the next value, or {@link SequenceObject#EXHAUSTED} if the pointer has reached 
+     *         the valve or the entry is not loaded
+     */
+    public long nextValue(int id) {
+        AtomicLongArray counters = counters( id );
+        int pointerIndex = pointerIndex( id );
+        for(;;) {
+            long current = counters.get( pointerIndex );
+            if( current>=counters.get( pointerIndex + 1 ) ){
+                return SequenceObject.EXHAUSTED;
+            }
+            if( counters.compareAndSet( pointerIndex, current, current + 1 ) ){
+                return current + 1;
+            }
+        }
+    }
+    
+    /**
+     * Roll the pointer of the entry by up to count values, see {@link SequenceObject#nextRange(int)}.
+     * @return the taken range, or null if the pointer has reached the valve or the entry is 
+     *         not loaded
+     */
+    public SequenceRange nextRange(int id, int count) {
+        AtomicLongArray counters = counters( id );
+        int pointerIndex = pointerIndex( id );
+        for(;;) {
+            long current = counters.get( pointerIndex );
+            long valve = counters.get( pointerIndex + 1 );
+            if( current>=valve ){
+                return null;
+            }
+            long end = valve - current>count ? current + count : valve;
+            if( counters.compareAndSet( pointerIndex, current, end ) ){
+                return new SequenceRange( current + 1, (int) (end - current) );
+            }
+        }
+    }
+    
+    /**
+     * Take the unused rest of the entry's segment away, see {@link SequenceObject#release()}.
+     * @return the pointer before release, or {@link SequenceObject#EXHAUSTED} if nothing is left
+     */
+    public long release(int id) {
+        AtomicLongArray counters = counters( id );
+        int pointerIndex = pointerIndex( id );
+        for(;;) {
+            long current = counters.get( pointerIndex );
+            long valve = counters.get( pointerIndex + 1 );
+            if( current>=valve ){
+                return SequenceObject.EXHAUSTED;
+            }
+            if( counters.compareAndSet( pointerIndex, current, valve ) ){
+                return current;
+            }
+        }
+    }
+    
+    /**
+     * Get the key of the entry, it creates a new String.
+     */
+    public String getKey(int id) {
+        long ref = keyPages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+        byte[] chunk = arena[(int) (ref >>> 32)];
+        int offset = (int) (ref >>> 16) & 0xffff;
+        int length = (int) ref & 0xffff;
+        char[] chars = new char[length];
+        int count = 0;
+        for( int i=offset; i<offset+length; count++ ){
+            int b = chunk[i] & 0xff;
+            if( b<0x80 ){
+                chars[count] = (char) b;
+                i++;
+            }
+            else if( b<0xe0 ){
+                chars[count] = (char) (((b & 0x1f) << 6) | (chunk[i+1] & 0x3f));
+                i += 2;
+            }
+            else {
+                chars[count] = (char) (((b & 0x0f) << 12) | ((chunk[i+1] & 0x3f) << 6) | (chunk[i+2] & 0x3f));
+                i += 3;
+            }
+        }
+        return new String( chars, 0, count );
+    }
+    
+    private AtomicLongArray counters(int id) {
+        return counterPages[id >>> PAGE_SHIFT];
+    }
+    
+    private static int pointerIndex(int id) {
+        return (id & PAGE_MASK) << 1;
+    }
+    
+    private static int valveIndex(int id) {
+        return ((id & PAGE_MASK) << 1) + 1;
+    }
+    
+    private int find(AtomicIntegerArray table, String key, int hash) {
+        int mask = table.length() - 1;
+        for( int i=hash & mask; ; i=(i + 1) & mask ){
+            int ref = table.get( i );
+            if( ref==0 ){
+                return -1;
+            }
+            int id = ref - 1;
+            int page = id >>> PAGE_SHIFT;
+            int slot = id & PAGE_MASK;
+            if( hashPages[page][slot]==hash && matches( keyPages[page][slot], key ) ){
+                return id;
+            }
+        }
+    }
+    
+    private void insert(AtomicIntegerArray table, int hash, int id) {
+        int mask = table.length() - 1;
+        int i = hash & mask;
+        while( table.get( i )!=0 ){
+            i = (i + 1) & mask;
+        }
+        table.set( i, id + 1 );
+    }
+    
+    private AtomicIntegerArray rehash(AtomicIntegerArray table) {
+        AtomicIntegerArray newTable = new AtomicIntegerArray( table.length() * 2 );
+        for( int i=0; i<table.length(); i++ ){
+            int ref = table.get( i );
+            if( ref!=0 ){
+                int id = ref - 1;
+                insert( newTable, hashPages[id >>> PAGE_SHIFT][id & PAGE_MASK], id );
+            }
+        }
+        return newTable;
+    }
+    
+    private void addPages(int page) {
+        AtomicLongArray[] newCounterPages = new AtomicLongArray[page + 1];
+        System.arraycopy( counterPages, 0, newCounterPages, 0, page );
+        newCounterPages[page] = new AtomicLongArray( PAGE_SIZE * 2 );
+        long[][] newKeyPages = new long[page + 1][];
+        System.arraycopy( keyPages, 0, newKeyPages, 0, page );
+        newKeyPages[page] = new long[PAGE_SIZE];
+        int[][] newHashPages = new int[page + 1][];
+        System.arraycopy( hashPages, 0, newHashPages, 0, page );
+        newHashPages[page] = new int[PAGE_SIZE];
+        
+        counterPages = newCounterPages;
+        keyPages = newKeyPages;
+        hashPages = newHashPages;
+    }
+    
+    /**
+     * Copy the key into the arena and return its reference.
+     */
+    private long intern(String key) {
+        int length = encodedLength( key );
+        if( length>MAX_KEY_BYTES ){
+            throw new IllegalArgumentException( "Sequence key is longer than " + MAX_KEY_BYTES + " bytes" );
+        }
+        if( arenaPosition + length>ARENA_CHUNK_SIZE ){
+            byte[][] newArena = new byte[arena.length + 1][];
+            System.arraycopy( arena, 0, newArena, 0, arena.length );
+            newArena[arena.length] = new byte[Math.max( ARENA_CHUNK_SIZE, length )];
+            arena = newArena;
+            arenaPosition = 0;
+        }
+        int chunkIndex = arena.length - 1;
+        byte[] chunk = arena[chunkIndex];
+        int offset = arenaPosition;
+        int position = offset;
+        for( int i=0; i<key.length(); i++ ){
+            char ch = key.charAt( i );
+            if( ch<0x80 ){
+                chunk[position++] = (byte) ch;
+            }
+            else if( ch<0x800 ){
+                chunk[position++] = (byte) (0xc0 | (ch >>> 6));
+                chunk[position++] = (byte) (0x80 | (ch & 0x3f));
+            }
+            else {
+                chunk[position++] = (byte) (0xe0 | (ch >>> 12));
+                chunk[position++] = (byte) (0x80 | ((ch >>> 6) & 0x3f));
+                chunk[position++] = (byte) (0x80 | (ch & 0x3f));
+            }
+        }
+        arenaPosition = position;
+        return ((long) chunkIndex << 32) | ((long) offset << 16) | length;
+    }
+    
+    /**
+     * Compare the key with the interned bytes without creating any object.
+     */
+    private boolean matches(long ref, String key) {
+        byte[] chunk = arena[(int) (ref >>> 32)];
+        int position = (int) (ref >>> 16) & 0xffff;
+        int end = position + ((int) ref & 0xffff);
+        for( int i=0; i<key.length(); i++ ){
+            char ch = key.charAt( i );
+            if( ch<0x80 ){
+                if( position>=end || chunk[position++]!=(byte) ch ){
+                    return false;
+                }
+            }
+            else if( ch<0x800 ){
+                if( position + 2>end 
+                        || chunk[position++]!=(byte) (0xc0 | (ch >>> 6)) 
+                        || chunk[position++]!=(byte) (0x80 | (ch & 0x3f)) ){
+                    return false;
+                }
+            }
+            else {
+                if( position + 3>end 
+                        || chunk[position++]!=(byte) (0xe0 | (ch >>> 12)) 
+                        || chunk[position++]!=(byte) (0x80 | ((ch >>> 6) & 0x3f)) 
+                        || chunk[position++]!=(byte) (0x80 | (ch & 0x3f)) ){
+                    return false;
+                }
+            }
+        }
+        return position==end;
+    }
+    
+    private static int encodedLength(String key) {
+        int length = 0;
+        for( int i=0; i<key.length(); i++ ){
+            char ch = key.charAt( i );
+            length += ch<0x80 ? 1 : (ch<0x800 ? 2 : 3);
+        }
+        return length;
+    }
+    
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Unbounded sequence object cache backed by a ConcurrentHashMap, it never evicts.
+ * It is the default cache of {@link KeyedSequenceGeneratorImpl}.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ConcurrentSequenceObjectCache implements SequenceObjectCache {
+    
+    private final ConcurrentMap<String, SequenceObject> sequenceCache = new ConcurrentHashMap<String, SequenceObject>();
+    
+    private final AtomicLong hitCount = new AtomicLong();
+    
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Override
+    public SequenceObject get(String storedKey) {
+        SequenceObject so = sequenceCache.get( storedKey );
+        if( so==null ){
+            missCount.incrementAndGet();
+        }
+        else {
+            hitCount.incrementAndGet();
+        }
+        return so;
+    }
+
+    @Override
+    public SequenceObject putIfAbsent(String storedKey, SequenceObject so) {
+        return sequenceCache.putIfAbsent( storedKey, so );
+    }
+
+    @Override
+    public SequenceObject remove(String storedKey) {
+        return sequenceCache.remove( storedKey );
+    }
+
+    @Override
+    public List<SequenceObject> values() {
+        return new ArrayList<SequenceObject>( sequenceCache.values() );
+    }
+
+    @Override
+    public int size() {
+        return sequenceCache.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return 0;
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests==0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+/**
+ * <p>
+ * Count-Min sketch with 4-bit counters which estimates how often keys are used
+ * in a recent period, it is used by {@link BoundedSequenceObjectCache} to decide
+ * if a new key is worth to replace a cached one.
+ * <p>Counters are updated without lock, a lost update just makes the estimation
+ * a little lower.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b> (racy updates are tolerated.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	TinyLFU admission
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+class FrequencySketch {
+    
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    
+    private static final long RESET_MASK = 0x7777777777777777L;
+    
+    private final long[] table;
+    
+    private final int tableMask;
+    
+    private final int sampleSize;
+    
+    private int additions;
+    
+    /**
+     * @param capacity max number of entries whose frequencies are tracked
+     */
+    FrequencySketch(int capacity) {
+        int length = Integer.highestOneBit( Math.max( capacity, 16 ) - 1 ) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max( capacity, 16 );
+    }
+    
+    /**
+     * @return estimated frequency of the key, from 0 to 15
+     */
+    int frequency(Object key) {
+        int hash = spread( key.hashCode() );
+        int frequency = Integer.MAX_VALUE;
+        for( int i=0; i<4; i++ ){
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            int index = (int) (h >>> 32) & tableMask;
+            int offset = ((int) h >>> 28) << 2;
+            frequency = Math.min( frequency, (int) ((table[index] >>> offset) & 0xfL) );
+        }
+        return frequency;
+    }
+    
+    /**
+     * Increase the frequency of the key, all frequencies are halved periodically so old
+     * popularity fades out.
+     */
+    void increment(Object key) {
+        int hash = spread( key.hashCode() );
+        boolean added = false;
+        for( int i=0; i<4; i++ ){
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            int index = (int) (h >>> 32) & tableMask;
+            int offset = ((int) h >>> 28) << 2;
+            long mask = 0xfL << offset;
+            if( (table[index] & mask)!=mask ){
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if( added && ++additions>=sampleSize ){
+            reset();
+        }
+    }
+    
+    private void reset() {
+        for( int i=0; i<table.length; i++ ){
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = additions / 2;
+    }
+    
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -3,15 +3,32 @@
  */
 package com.realpaas.platform.key.impl;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.realpaas.platform.key.KeyedSequenceGenerator;
 import com.realpaas.platform.key.SequenceGeneratorException;
+import com.realpaas.platform.key.SequenceHandle;
+import com.realpaas.platform.key.SequenceRange;
+import com.realpaas.platform.key.SequenceTimeoutException;
 
 /**
  * <p>
@@ -54,17 +71,23 @@ import com.realpaas.platform.key.SequenceGeneratorException;
  * </dl>
  * @author	henryleu Email/MSN: hongli_leu@126.com
  */
-public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
+public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator, KeyedSequenceGeneratorImplMBean{
     private static final long DEFAULT_INIT_VALUE = 1;
     private static final int DEFAULT_INCREMENT = 1000;
-    private static final int MIN_INCREMENT = 10;
     
     private long initValue = DEFAULT_INIT_VALUE;
     private int increment = DEFAULT_INCREMENT;
     private int preIncrement = DEFAULT_INCREMENT / 2;
+    private int prefetch = 0;
+    private final ConcurrentMap<String, SegmentConfig> segmentConfigs = new ConcurrentHashMap<String, SegmentConfig>();
 
     private boolean disableLogging = true;
-    private ConcurrentMap<String, SequenceObject> sequenceCache;
+    private SequenceObjectCache sequenceCache;
+    private CompactSequenceStore compactStore;
+    private RefillBulkhead refillBulkhead;
+    private boolean sharedSegments = false;
+    private boolean sharingSegments = false;
+    private boolean customCache = false;
 
     private final Log logger = LogFactory.getLog(getClass());
     private final Random random = new Random( System.currentTimeMillis() );
@@ -74,8 +97,23 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
     
     private SequenceObjectPersister persister;
     
+    private volatile boolean shutdown = false;
+    
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong retrySleepMillis = new AtomicLong();
+    
+    /**
+     * deadline of a call which waits for loads and refills as long as they take
+     */
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+    private long defaultTimeoutMillis = 0;
+    private volatile ExecutorService refillExecutor;
+    private boolean ownRefillExecutor = false;
+    private final ConcurrentMap<String, FutureTask<Void>> pendingRefills = new ConcurrentHashMap<String, FutureTask<Void>>();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    
     public KeyedSequenceGeneratorImpl() {
-        sequenceCache = new ConcurrentHashMap<String, SequenceObject>();
+        sequenceCache = new ConcurrentSequenceObjectCache();
     }
     
     public long getInitValue() {
@@ -91,8 +129,8 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
     }
     
     public void setIncrement(int increment) {
-        if(increment< MIN_INCREMENT){
-            throw new IllegalArgumentException( "Property \"increment\" [" + increment + "] should be greater than or equal to " + MIN_INCREMENT );
+        if(increment< SegmentConfig.MIN_INCREMENT){
+            throw new IllegalArgumentException( "Property \"increment\" [" + increment + "] should be greater than or equal to " + SegmentConfig.MIN_INCREMENT );
         }
         
         this.increment = increment;
@@ -106,6 +144,130 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
         this.preIncrement = preIncrement;
     }
     
+    public int getPrefetch() {
+        return prefetch;
+    }
+    
+    /**
+     * Reserve the next segment of a key in advance when only the given number of values are 
+     * left in the current one, so that threads don't wait for the refill at the valve. It has 
+     * no effect if it is not less than the increment, and 0 means no prefetch. 
+     * @param prefetch prefetch watermark 
+     */
+    public void setPrefetch(int prefetch) {
+        if(prefetch< 0){
+            throw new IllegalArgumentException( "Property \"prefetch\" [" + prefetch + "] should not be negative" );
+        }
+        
+        this.prefetch = prefetch;
+    }
+    
+    public Map<String, SegmentConfig> getSegmentConfigs() {
+        return segmentConfigs;
+    }
+
+    /**
+     * Set segment configurations by key prefix, the one of the longest matched prefix is used 
+     * for a key, and its null properties are inherited from the generator's properties. 
+     * A configuration in the sequence registry overrides them if the persister supports it.
+     * @param segmentConfigs segment configurations by key prefix
+     */
+    public void setSegmentConfigs(Map<String, SegmentConfig> segmentConfigs) {
+        this.segmentConfigs.clear();
+        this.segmentConfigs.putAll( segmentConfigs );
+    }
+
+    public SequenceObjectCache getSequenceCache() {
+        return sequenceCache;
+    }
+
+    /**
+     * Replace the default unbounded cache, e.g. with a {@link BoundedSequenceObjectCache} 
+     * when there are a lot of keys. With shared segments the first generator of the persister 
+     * shares its cache with the others, which must configure no cache or the same one.
+     * @param sequenceCache cache of sequence objects
+     */
+    public void setSequenceCache(SequenceObjectCache sequenceCache) {
+        this.sequenceCache = sequenceCache;
+        this.customCache = true;
+    }
+
+    public CompactSequenceStore getCompactStore() {
+        return compactStore;
+    }
+
+    /**
+     * Keep pointers and valves in a compact store instead of the sequence cache, it saves
+     * memory when there are millions of live keys.
+     * @param compactStore compact store of sequences, or null to use the sequence cache
+     */
+    public void setCompactStore(CompactSequenceStore compactStore) {
+        this.compactStore = compactStore;
+    }
+
+    public RefillBulkhead getRefillBulkhead() {
+        return refillBulkhead;
+    }
+
+    /**
+     * Isolate loads and refills by partition, so that a hot partition cannot occupy all 
+     * connections of the persister.
+     * @param refillBulkhead bulkhead of refills, or null for no isolation
+     */
+    public void setRefillBulkhead(RefillBulkhead refillBulkhead) {
+        this.refillBulkhead = refillBulkhead;
+    }
+
+    @Override
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * Bound the wait of every call without a timeout, a load or refill which takes longer 
+     * goes on in the background and the call fails with {@link SequenceTimeoutException}.
+     * @param defaultTimeoutMillis default timeout in milliseconds, 0 means to wait as long as it takes
+     */
+    @Override
+    public void setDefaultTimeoutMillis(long defaultTimeoutMillis) {
+        if( defaultTimeoutMillis<0 ){
+            throw new IllegalArgumentException( "Property \"defaultTimeoutMillis\" [" + defaultTimeoutMillis + "] should not be negative" );
+        }
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+
+    public ExecutorService getRefillExecutor() {
+        return refillExecutor;
+    }
+
+    /**
+     * Run loads and refills of calls with deadlines, a cached pool of daemon threads is 
+     * created on first use if it is not set.
+     * @param refillExecutor executor of background refills
+     */
+    public void setRefillExecutor(ExecutorService refillExecutor) {
+        this.refillExecutor = refillExecutor;
+        this.ownRefillExecutor = false;
+    }
+
+    public boolean isSharedSegments() {
+        return sharedSegments;
+    }
+
+    /**
+     * Share the segments of keys with all the generators of the same persister in the JVM through 
+     * {@link SharedSegmentRegistry}, instead of keeping them in the sequence cache of this 
+     * generator, so that a key has one current segment and one refill at a time in the JVM. 
+     * The generators should have the same segment configuration, for a segment is sized by 
+     * the one which refills it, and {@link #evict(String)} on any of them drops the segment 
+     * for all of them. It takes effect from {@link #init()}, and doesn't apply to the compact 
+     * store.
+     * @param sharedSegments true to share segments
+     */
+    public void setSharedSegments(boolean sharedSegments) {
+        this.sharedSegments = sharedSegments;
+    }
+
     public boolean isDisableLogging() {
         return disableLogging;
     }
@@ -115,30 +277,69 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
     }
 
     public void init(){
+        if( sharedSegments && !sharingSegments ){
+            sequenceCache = SharedSegmentRegistry.acquire( persister, customCache ? sequenceCache : null );
+            sharingSegments = true;
+        }
     }
     
     public void afterPropertiesSet() throws Exception {
         init();
     }
 
-    @SuppressWarnings("static-access")
     @Override
     public long nextValue(String key) {
+        return nextValue( key, null, defaultDeadline() );
+    }
+
+    @Override
+    public long nextValue(String key, long timeout, TimeUnit unit) {
+        if( timeout<0 ){
+            throw new IllegalArgumentException( "Timeout [" + timeout + "] should not be negative" );
+        }
+        return nextValue( key, null, System.nanoTime() + unit.toNanos( timeout ) );
+    }
+
+    @Override
+    public SequenceHandle handle(String key) {
+        if( key==null ){
+            throw new IllegalArgumentException( "Sequence key is needed to get a handle" );
+        }
+        return new KeyedSequenceHandle( key );
+    }
+
+    /**
+     * Get next value of the key, through the handle if it is not null. Waiting for loads and 
+     * refills and sleeping before attempts never pass the deadline unless it is {@link #NO_DEADLINE}.
+     */
+    @SuppressWarnings("static-access")
+    private long nextValue(String key, KeyedSequenceHandle handle, long deadline) {
         int waitBeforeAttempt = 0;
         long nextValue = 0;
         
         try {
-            nextValue = doGetNextValue( key );
+            nextValue = doGetNextValue( key, handle, deadline );
+        }
+        catch (SequenceTimeoutException e) {
+            throw e;
         }
         catch (SequenceGeneratorException e) {
             logger.warn("Fail to attempt to get next value", e);
             for(int i = 1; i < attemptTimes; i++) {
                 try {
                     waitBeforeAttempt = constantMillisBeforeAttempt + random.nextInt( maxRandomMillisBeforeAttempt );
+                    if( deadline!=NO_DEADLINE ) {
+                        waitBeforeAttempt = (int) Math.min( waitBeforeAttempt, TimeUnit.NANOSECONDS.toMillis( remainingNanos( key, deadline ) ) );
+                    }
+                    retryCount.incrementAndGet();
+                    retrySleepMillis.addAndGet( waitBeforeAttempt );
                     Thread.currentThread().sleep( waitBeforeAttempt );
-                    nextValue = doGetNextValue( key );
+                    nextValue = doGetNextValue( key, handle, deadline );
                     return nextValue;
                 }
+                catch (SequenceTimeoutException internalE) {
+                    throw internalE;
+                }
                 catch (SequenceGeneratorException internalE) {
                     logger.warn("Fail to attempt to get next value", internalE);
                 }
@@ -156,10 +357,82 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
         return nextValue;
     }
 
-    private long doGetNextValue(String key) {
+    private long doGetNextValue(String key, KeyedSequenceHandle handle, long deadline) {
+        if( compactStore!=null ){
+            return doGetNextCompactValue( key, handle, deadline );
+        }
+        
         String storedKey = key;
-        SequenceObject so = getOrCreateSequenceObject( storedKey );
+        SequenceObject so = loadSequenceObject( storedKey, handle, deadline );
         long nextValue = -1;
+
+        /*
+         * Get current value and roll next. If next value reaches the valve of the key,
+         * increase and update the valve of the key in Cache and DB, then try again.
+         */
+        nextValue = so.nextValue();
+        while( nextValue==SequenceObject.EXHAUSTED ) {
+            refill( storedKey, so, deadline );
+            nextValue = so.nextValue();
+        }
+        
+        /*
+         * Only the thread which gets the value at the prefetch point reserves next segment, 
+         * the others keep getting values from the current segment meanwhile.
+         */
+        if( so.isPrefetchPoint( nextValue ) ) {
+            prefetch( storedKey, so, deadline );
+        }
+        
+        if( !isDisableLogging() && logger.isDebugEnabled()) {
+            logger.debug("Sequence [ key=\"" + key + "\", value=" + nextValue + " ]");
+        }
+        
+        return nextValue;
+    }
+
+    /**
+     * Get the SO of the key, through the handle if it is not null, and load it from DB if 
+     * it has not been loaded.
+     */
+    private SequenceObject loadSequenceObject(final String storedKey, KeyedSequenceHandle handle, long deadline) {
+        SequenceObject resolvedSo = null;
+        if( handle==null ){
+            resolvedSo = getOrCreateSequenceObject( storedKey );
+        }
+        else {
+            resolvedSo = handle.sequenceObject;
+            
+            /*
+             * the handle's SO may have been evicted from Cache, rebind it to the cached 
+             * one before loading or refilling, so that the key keeps one SO in Cache
+             */
+            if( !resolvedSo.getLoaded() || resolvedSo.reachValve( getPreIncrement() ) ) {
+                resolvedSo = handle.rebind();
+            }
+        }
+        
+        final SequenceObject so = resolvedSo;
+        while( !so.getLoaded() ) {
+            if( deadline==NO_DEADLINE ) {
+                load( storedKey, so );
+            }
+            else {
+                awaitInBackground( storedKey, new Runnable() {
+                    @Override
+                    public void run() {
+                        load( storedKey, so );
+                    }
+                }, deadline );
+            }
+        }
+        return so;
+    }
+
+    /**
+     * Load the SO from DB if it has not been loaded, only one of the waiting threads does it.
+     */
+    private void load(String storedKey, SequenceObject so) {
         
         /*
          * the SequenceObject of the key is not in in Cache, so it need to 
@@ -167,51 +440,98 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
          */
         if( !so.getLoaded() ) {
             synchronized( so ){
-//                SequenceObject storedSo = getSequenceObject(storedKey);
-                SequenceObject storedSo = persister.loadSequenceObject( storedKey );
-                if(storedSo == null) {
+                if( !so.getLoaded() ) {
+                    checkRunning();
+                    RefillBulkhead.Permit permit = acquireRefill( storedKey );
+                    try {
+                        /*
+                         * Create or update the SequenceObject of the key in one step if the 
+                         * persister supports it, otherwise look it up first
+                         */
+                        configure( so );
+                        if( !persister.createOrUpdateSequenceObject( storedKey, so ) ) {
+                            SequenceObject storedSo = persister.loadSequenceObject( storedKey );
+                            if(storedSo == null) {
+                                
+                                /*
+                                 * Create the SequenceObject of the key in DB
+                                 */
+                                persister.createSequenceObject( storedKey, so.getValve() );
+                            }
+                            else {
+                                /*
+                                 * Get and update the SequenceObject of the key when loading it from key
+                                 * table in DB since last time platform reset
+                                 */
+                                configure( storedSo );
+                                persister.updateSequenceObject( storedKey, storedSo );
+                                so.syncWith( storedSo );
+                            }
+                        }
+                    }
+                    finally {
+                        releaseRefill( permit );
+                    }
                     
                     /*
-                     * Create the SequenceObject of the key in DB
+                     * Set loaded flag to true after create/update SequenceObject in DB for 
+                     * the first time when platform launches
                      */
-//                    createSequenceObject( storedKey, so.getValve() );
-                    persister.createSequenceObject( storedKey, so.getValve() );
+                    so.setLoaded();
                 }
-                else {
-                    /*
-                     * Get and update the SequenceObject of the key when loading it from key
-                     * table in DB since last time platform reset
-                     */
-//                    updateSequenceObject( storedKey, storedSo );
-                    persister.updateSequenceObject( storedKey, storedSo );
-                    so.syncWith( storedSo );
-                }
-                
-                /*
-                 * Set loaded flag to true after create/update SequenceObject in DB for 
-                 * the first time when platform launches
-                 */
-                so.setLoaded();
             }
         }
-        else { // the SequenceObject of the key has already been in Cache
-            /*
-             * Check if next value reaches the valve of the key in this
-             * pre-increment in advance, if yes, increase and update the valve
-             * of the key in Cache and DB.
-             */
+    }
+
+    private void refill(final String storedKey, final SequenceObject so, long deadline) {
+        if( deadline==NO_DEADLINE ) {
+            refill( storedKey, so );
+            return;
+        }
+        awaitInBackground( storedKey, new Runnable() {
+            @Override
+            public void run() {
+                refill( storedKey, so );
+            }
+        }, deadline );
+    }
+
+    /**
+     * Refill the SO with next segment if it is exhausted, only one of the waiting threads 
+     * does it and the others find the SO refilled.
+     */
+    private void refill(String storedKey, SequenceObject so) {
+        synchronized( so ){
             if( so.reachValve( getPreIncrement() ) ) {
-                synchronized( so ){
-//                    updateSequenceObject( storedKey, so );
-                    persister.updateSequenceObject( storedKey, so );
+                checkRunning();
+                if( !so.switchToPrefetched() ) {
+                    configure( so );
+                    RefillBulkhead.Permit permit = acquireRefill( storedKey );
+                    try {
+                        persister.updateSequenceObject( storedKey, so );
+                    }
+                    finally {
+                        releaseRefill( permit );
+                    }
                 }
             }
         }
+    }
 
-        /*
-         * Get current value and roll next
-         */
-        nextValue = so.nextValue();
+    /**
+     * The same as {@link #doGetNextValue(String, KeyedSequenceHandle, long)} but on the compact store, 
+     * a transient SO is used to exchange pointer and valve with the persister only when loading 
+     * or refilling.
+     */
+    private long doGetNextCompactValue(String key, KeyedSequenceHandle handle, long deadline) {
+        int id = loadCompactEntry( key, handle, deadline );
+        long nextValue = -1;
+        
+        nextValue = compactStore.nextValue( id );
+        while( nextValue==SequenceObject.EXHAUSTED ) {
+            refillCompactEntry( key, id, deadline );
+            nextValue = compactStore.nextValue( id );
+        }
         
         if( !isDisableLogging() && logger.isDebugEnabled()) {
             logger.debug("Sequence [ key=\"" + key + "\", value=" + nextValue + " ]");
@@ -220,9 +540,452 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
         return nextValue;
     }
 
+    /**
+     * Get the entry of the key in the compact store and load it from DB if it has not been loaded.
+     * @return id of the entry
+     */
+    private int loadCompactEntry(final String key, KeyedSequenceHandle handle, long deadline) {
+        final int id = handle==null || handle.compactId<0 ? compactStore.getOrCreate( key, getInitValue() ) : handle.compactId;
+        while( !compactStore.isLoaded( id ) ) {
+            if( deadline==NO_DEADLINE ) {
+                loadCompactEntry( key, id );
+            }
+            else {
+                awaitInBackground( key, new Runnable() {
+                    @Override
+                    public void run() {
+                        loadCompactEntry( key, id );
+                    }
+                }, deadline );
+            }
+        }
+        return id;
+    }
+
+    private void loadCompactEntry(String key, int id) {
+        if( !compactStore.isLoaded( id ) ) {
+            synchronized( compactStore.lockOf( id ) ){
+                if( !compactStore.isLoaded( id ) ) {
+                    checkRunning();
+                    SequenceObject so = instantiateInitialSequenceObject( key );
+                    RefillBulkhead.Permit permit = acquireRefill( key );
+                    try {
+                        if( !persister.createOrUpdateSequenceObject( key, so ) ) {
+                            SequenceObject storedSo = persister.loadSequenceObject( key );
+                            if(storedSo == null) {
+                                persister.createSequenceObject( key, so.getValve() );
+                            }
+                            else {
+                                configure( storedSo );
+                                persister.updateSequenceObject( key, storedSo );
+                                so.syncWith( storedSo );
+                            }
+                        }
+                    }
+                    finally {
+                        releaseRefill( permit );
+                    }
+                    compactStore.sync( id, so.getPointer(), so.getValve() );
+                }
+            }
+        }
+    }
+
+    private void refillCompactEntry(final String key, final int id, long deadline) {
+        if( deadline==NO_DEADLINE ) {
+            refillCompactEntry( key, id );
+            return;
+        }
+        awaitInBackground( key, new Runnable() {
+            @Override
+            public void run() {
+                refillCompactEntry( key, id );
+            }
+        }, deadline );
+    }
+
+    private void refillCompactEntry(String key, int id) {
+        synchronized( compactStore.lockOf( id ) ){
+            if( compactStore.reachValve( id ) ) {
+                checkRunning();
+                SequenceObject so = new SequenceObject( key, compactStore.getPointer( id ), compactStore.getValve( id ) );
+                configure( so );
+                RefillBulkhead.Permit permit = acquireRefill( key );
+                try {
+                    persister.updateSequenceObject( key, so );
+                }
+                finally {
+                    releaseRefill( permit );
+                }
+                compactStore.sync( id, so.getPointer(), so.getValve() );
+            }
+        }
+    }
+
+    @Override
+    public SequenceRange reserve(String key, int count) {
+        if( count<1 ){
+            throw new IllegalArgumentException( "Count of values to reserve [" + count + "] should be positive" );
+        }
+        long deadline = defaultDeadline();
+        for(int i = 1; ; i++) {
+            try {
+                return doReserve( key, count, deadline );
+            }
+            catch (SequenceTimeoutException e) {
+                throw e;
+            }
+            catch (SequenceGeneratorException e) {
+                if( i>=attemptTimes ){
+                    throw new SequenceGeneratorException( "After " + attemptTimes + " Attempts, Fail to reserve values", e );
+                }
+                logger.warn("Fail to attempt to reserve values", e);
+            }
+            int waitBeforeAttempt = constantMillisBeforeAttempt + random.nextInt( maxRandomMillisBeforeAttempt );
+            if( deadline!=NO_DEADLINE ) {
+                waitBeforeAttempt = (int) Math.min( waitBeforeAttempt, TimeUnit.NANOSECONDS.toMillis( remainingNanos( key, deadline ) ) );
+            }
+            retryCount.incrementAndGet();
+            retrySleepMillis.addAndGet( waitBeforeAttempt );
+            try {
+                Thread.sleep( waitBeforeAttempt );
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SequenceGeneratorException( e );
+            }
+        }
+    }
+
+    @Override
+    public void preload(String key) {
+        if( compactStore!=null ){
+            loadCompactEntry( key, null, NO_DEADLINE );
+        }
+        else {
+            loadSequenceObject( key, null, NO_DEADLINE );
+        }
+    }
+
+    /**
+     * Keys to preload are created with their first segments reserved, which are then put into 
+     * Cache, otherwise they are created at their initial values, just as if each one were 
+     * created on its first use.
+     */
+    @Override
+    public int provision(Collection<String> keys, boolean preload) {
+        checkRunning();
+        Map<String, SequenceObject> initialSos = new LinkedHashMap<String, SequenceObject>();
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for( String key : keys ){
+            if( !initialSos.containsKey( key ) ){
+                SequenceObject so = instantiateInitialSequenceObject( key );
+                initialSos.put( key, so );
+                values.put( key, preload ? so.getValve() : so.getPointer() );
+            }
+        }
+        
+        Set<String> createdKeys = persister.createSequenceObjects( values );
+        if( preload ){
+            for( String key : createdKeys ){
+                seed( key, initialSos.get( key ) );
+            }
+        }
+        return createdKeys.size();
+    }
+
+    /**
+     * Put the first segment of a newly created key into Cache, unless the key has been loaded 
+     * meanwhile, in which case the segment is left unused.
+     */
+    private void seed(String key, SequenceObject so) {
+        if( compactStore!=null ){
+            int id = compactStore.getOrCreate( key, getInitValue() );
+            synchronized( compactStore.lockOf( id ) ){
+                if( !compactStore.isLoaded( id ) ) {
+                    compactStore.sync( id, so.getPointer(), so.getValve() );
+                }
+            }
+            return;
+        }
+        SequenceObject cachedSo = getOrCreateSequenceObject( key );
+        synchronized( cachedSo ){
+            if( !cachedSo.getLoaded() ) {
+                cachedSo.syncWith( so );
+                cachedSo.setLoaded();
+            }
+        }
+    }
+
+    /**
+     * Handles bound to an evicted SO keep using it until it is exhausted, then they rebind. 
+     * Entries of the compact store are never evicted, for it can't remove them. With shared 
+     * segments it evicts the key from every generator sharing the cache.
+     */
+    @Override
+    public boolean evict(String key) {
+        return sequenceCache.remove( key )!=null;
+    }
+
+    /**
+     * Take up to count values from the current segment of the key at once, it refills the 
+     * segment the same way as {@link #doGetNextValue(String, KeyedSequenceHandle, long)} if it 
+     * is exhausted.
+     */
+    private SequenceRange doReserve(String key, int count, long deadline) {
+        SequenceRange range = null;
+        if( compactStore!=null ){
+            int id = loadCompactEntry( key, null, deadline );
+            range = compactStore.nextRange( id, count );
+            while( range==null ) {
+                refillCompactEntry( key, id, deadline );
+                range = compactStore.nextRange( id, count );
+            }
+        }
+        else {
+            SequenceObject so = loadSequenceObject( key, null, deadline );
+            range = so.nextRange( count );
+            while( range==null ) {
+                refill( key, so, deadline );
+                range = so.nextRange( count );
+            }
+            if( so.coversPrefetchPoint( range ) ) {
+                prefetch( key, so, deadline );
+            }
+        }
+        
+        if( !isDisableLogging() && logger.isDebugEnabled()) {
+            logger.debug("Sequence [ key=\"" + key + "\", range=" + range + " ]");
+        }
+        
+        return range;
+    }
+
+    /**
+     * Prefetch in the background when the caller has a deadline, so that it doesn't wait for it.
+     */
+    private void prefetch(final String storedKey, final SequenceObject so, long deadline) {
+        if( deadline==NO_DEADLINE ) {
+            prefetch( storedKey, so );
+            return;
+        }
+        try {
+            refillExecutor().execute( new Runnable() {
+                @Override
+                public void run() {
+                    prefetch( storedKey, so );
+                }
+            } );
+        }
+        catch (RejectedExecutionException e) {
+            logger.warn("Fail to prefetch next segment of \"" + storedKey + "\" in the background", e);
+        }
+    }
+
+    /**
+     * Run the load or refill of the key in the background and wait for it until the deadline, 
+     * the task keeps running after the deadline so that the next caller finds it done. Callers 
+     * of one key share one pending task, they check what they need again after it is done.
+     * @throws SequenceTimeoutException if the task is not done before the deadline
+     */
+    private void awaitInBackground(final String storedKey, Runnable task, long deadline) {
+        FutureTask<Void> pending = pendingRefills.get( storedKey );
+        if( pending==null ){
+            FutureTask<Void> created = new FutureTask<Void>( task, null ) {
+                @Override
+                protected void done() {
+                    pendingRefills.remove( storedKey, this );
+                }
+            };
+            pending = pendingRefills.putIfAbsent( storedKey, created );
+            if( pending==null ){
+                pending = created;
+                try {
+                    refillExecutor().execute( created );
+                }
+                catch (RejectedExecutionException e) {
+                    pendingRefills.remove( storedKey, created );
+                    throw new SequenceGeneratorException( "Fail to refill \"" + storedKey + "\" in the background", e );
+                }
+            }
+        }
+        
+        try {
+            pending.get( remainingNanos( storedKey, deadline ), TimeUnit.NANOSECONDS );
+        }
+        catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
+            throw new SequenceTimeoutException( storedKey );
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SequenceGeneratorException( "Interrupted while waiting for a refill of \"" + storedKey + "\"", e );
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if( cause instanceof RuntimeException ){
+                throw (RuntimeException) cause;
+            }
+            throw new SequenceGeneratorException( cause );
+        }
+    }
+    
+    /**
+     * @return nanoseconds left before the deadline
+     * @throws SequenceTimeoutException if the deadline has passed
+     */
+    private long remainingNanos(String storedKey, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if( remaining<=0 ){
+            timeoutCount.incrementAndGet();
+            throw new SequenceTimeoutException( storedKey );
+        }
+        return remaining;
+    }
+    
+    private long defaultDeadline() {
+        return defaultTimeoutMillis>0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( defaultTimeoutMillis ) : NO_DEADLINE;
+    }
+    
+    private ExecutorService refillExecutor() {
+        ExecutorService executor = refillExecutor;
+        if( executor==null ){
+            synchronized( this ){
+                if( refillExecutor==null ){
+                    refillExecutor = Executors.newCachedThreadPool( new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+                        
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread( runnable, "genkey-refill-" + threadCount.incrementAndGet() );
+                            thread.setDaemon( true );
+                            return thread;
+                        }
+                    } );
+                    ownRefillExecutor = true;
+                }
+                executor = refillExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Reserve the next segment of the key in advance, it is kept in the SO and switched to when 
+     * the current segment is exhausted. A failure is only logged since the segment can still be 
+     * reserved at the valve.
+     */
+    private void prefetch(String storedKey, SequenceObject so) {
+        synchronized( so ){
+            if( so.hasPrefetched() || shutdown ) {
+                return;
+            }
+            SequenceObject nextSo = new SequenceObject( storedKey, so.getValve(), so.getValve(), so.getIncrement() );
+            configure( nextSo );
+            RefillBulkhead.Permit permit = null;
+            try {
+                permit = acquireRefill( storedKey );
+                persister.updateSequenceObject( storedKey, nextSo );
+                so.setPrefetched( nextSo.getPointer(), nextSo.getValve() );
+                so.configure( nextSo.getIncrement(), nextSo.getPrefetch() );
+            }
+            catch (Exception e) {
+                logger.warn("Fail to prefetch next segment of \"" + storedKey + "\"", e);
+            }
+            finally {
+                releaseRefill( permit );
+            }
+        }
+    }
+
+    /**
+     * Shut the generator down gracefully: no segment is loaded or refilled any more, and the 
+     * unused rest of every cached segment is taken away atomically and released to the persister, 
+     * so that it can be claimed by later refills instead of being thrown away. 
+     * <p>Values can still be got from segments which are not cached, e.g. SOs which have been 
+     * evicted but are still bound to handles, until they are exhausted.
+     */
+    public void destroy() {
+        if( shutdown ){
+            return;
+        }
+        shutdown = true;
+        
+        int released = 0;
+        if( compactStore!=null ){
+            for( int id=0; id<compactStore.size(); id++ ){
+                synchronized( compactStore.lockOf( id ) ){
+                    if( compactStore.isLoaded( id ) ){
+                        released += releaseRange( compactStore.getKey( id ), compactStore.release( id ), compactStore.getValve( id ) );
+                    }
+                }
+            }
+        }
+        
+        /*
+         * shared segments are still used by other generators until the last one is shut down
+         */
+        boolean ownSegments = !sharingSegments || SharedSegmentRegistry.release( persister );
+        if( ownSegments ){
+            for( SequenceObject so : sequenceCache.values() ){
+                synchronized( so ){
+                    if( so.getLoaded() ){
+                        released += releaseRange( so.getKey(), so.release(), so.getValve() );
+                        long[] prefetched = so.releasePrefetched();
+                        if( prefetched!=null ){
+                            released += releaseRange( so.getKey(), prefetched[0], prefetched[1] );
+                        }
+                    }
+                }
+            }
+        }
+        if( ownRefillExecutor ){
+            refillExecutor.shutdown();
+        }
+        logger.info( "Sequence generator is shut down, " + released + " unused ranges are released" );
+    }
+    
+    public boolean isShutdown() {
+        return shutdown;
+    }
+    
+    private int releaseRange(String storedKey, long pointer, long valve) {
+        if( pointer==SequenceObject.EXHAUSTED ){
+            return 0;
+        }
+        try {
+            persister.releaseRange( storedKey, pointer, valve );
+            return 1;
+        }
+        catch (Exception e) {
+            logger.warn("Fail to release unused range (" + pointer + ", " + valve + "] of \"" + storedKey + "\"", e);
+            return 0;
+        }
+    }
+    
+    private RefillBulkhead.Permit acquireRefill(String storedKey) {
+        return refillBulkhead==null ? null : refillBulkhead.acquire( storedKey );
+    }
+    
+    private void releaseRefill(RefillBulkhead.Permit permit) {
+        if( permit!=null ){
+            refillBulkhead.release( permit );
+        }
+    }
+    
+    /**
+     * It must be called with the SO's lock held before loading or refilling.
+     */
+    private void checkRunning() {
+        if( shutdown ){
+            throw new IllegalStateException( "Sequence generator has been shut down" );
+        }
+    }
+
     /**
      * if no key-matched SO in Cache, create initial one and put it to Cache if it is absent,
-     * or return it directly from Cache.
+     * or return it directly from Cache. The newly created SO is used without caching if the 
+     * Cache declines it.
      * <p>Newly created SO's loaded flag is set to false
      * @param storedKey SO's Key
      * @return SequenceObject object.
@@ -245,7 +1008,113 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
      * @return newly created SequenceObject object
      */
     private SequenceObject instantiateInitialSequenceObject(final String storedKey) {
-        return new SequenceObject( storedKey, getInitValue(), getInitValue() + getIncrement() );
+        SegmentConfig config = getSegmentConfig( storedKey );
+        long keyInitValue = config!=null && config.getInitValue()!=null ? config.getInitValue() : getInitValue();
+        SequenceObject so = new SequenceObject( storedKey, keyInitValue, keyInitValue + getIncrement() );
+        configure( so );
+        so.setValve( keyInitValue + so.getIncrement() );
+        return so;
+    }
+    
+    /**
+     * Apply the segment configuration of the SO's key, it takes effect from next refill.
+     */
+    private void configure(SequenceObject so) {
+        SegmentConfig config = getSegmentConfig( so.getKey() );
+        int keyIncrement = config!=null && config.getIncrement()!=null ? config.getIncrement() : getIncrement();
+        int keyPrefetch = config!=null && config.getPrefetch()!=null ? config.getPrefetch() : getPrefetch();
+        so.configure( keyIncrement, keyPrefetch );
+    }
+    
+    /**
+     * Get the segment configuration of the longest prefix which the key starts with.
+     * @return matched configuration, or null if there is none
+     */
+    private SegmentConfig getSegmentConfig(String storedKey) {
+        if( segmentConfigs.isEmpty() ){
+            return null;
+        }
+        SegmentConfig config = null;
+        int matchedLength = -1;
+        for( Map.Entry<String, SegmentConfig> entry : segmentConfigs.entrySet() ){
+            String prefix = entry.getKey();
+            if( prefix.length()>matchedLength && storedKey.startsWith( prefix ) ){
+                config = entry.getValue();
+                matchedLength = prefix.length();
+            }
+        }
+        return config;
+    }
+
+    @Override
+    public void setPrefixSegmentConfig(String prefix, Long initValue, Integer increment, Integer prefetch) {
+        segmentConfigs.put( prefix, new SegmentConfig( initValue, increment, prefetch ) );
+    }
+
+    @Override
+    public void removePrefixSegmentConfig(String prefix) {
+        segmentConfigs.remove( prefix );
+    }
+
+    @Override
+    public void setKeySegmentConfig(String key, Integer increment, Integer prefetch) {
+        // reject what a segment configuration can't take before it reaches the registry
+        new SegmentConfig( null, increment, prefetch );
+        persister.updateSegmentConfig( key, increment, prefetch );
+        SequenceObject so = sequenceCache.get( key );
+        if( so!=null ){
+            synchronized( so ){
+                configure( so );
+                so.configure( increment!=null ? increment : so.getIncrement(), prefetch!=null ? prefetch : so.getPrefetch() );
+            }
+        }
+    }
+
+    @Override
+    public String getKeySegmentConfig(String key) {
+        SequenceObject so = sequenceCache.get( key );
+        if( so==null ){
+            /*
+             * the stored configuration of the key takes effect on its first load
+             */
+            so = instantiateInitialSequenceObject( key );
+            SegmentConfig stored = persister.loadSegmentConfig( key );
+            if( stored!=null ){
+                so.configure( stored.getIncrement()!=null ? stored.getIncrement() : so.getIncrement(), 
+                        stored.getPrefetch()!=null ? stored.getPrefetch() : so.getPrefetch() );
+            }
+        }
+        return "SegmentConfig [ key=\"" + key + "\", increment=" + so.getIncrement() + ", prefetch=" + so.getPrefetch() + " ]";
+    }
+
+    @Override
+    public int getCachedKeyCount() {
+        return sequenceCache.size();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return sequenceCache.getHitRate();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    public long getRetrySleepMillis() {
+        return retrySleepMillis.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @Override
+    public String getRefillStats() {
+        return refillBulkhead==null ? "No refill bulkhead" : refillBulkhead.toString();
     }
     
 
@@ -253,4 +1122,66 @@ public class KeyedSequenceGeneratorImpl implements KeyedSequenceGenerator{
         this.persister = persister;
     }
     
+    /**
+     * Handle bound to the SO of a key in Cache, or to the entry of the key in the compact store.
+     */
+    private final class KeyedSequenceHandle implements SequenceHandle {
+        private final String key;
+        
+        private final int compactId;
+        
+        private volatile SequenceObject sequenceObject;
+        
+        KeyedSequenceHandle(String key) {
+            this.key = key;
+            if( compactStore!=null ){
+                this.compactId = compactStore.getOrCreate( key, getInitValue() );
+            }
+            else {
+                this.compactId = -1;
+                this.sequenceObject = getOrCreateSequenceObject( key );
+            }
+        }
+        
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public long nextValue() {
+            return KeyedSequenceGeneratorImpl.this.nextValue( key, this, defaultDeadline() );
+        }
+
+        @Override
+        public long nextValue(long timeout, TimeUnit unit) {
+            if( timeout<0 ){
+                throw new IllegalArgumentException( "Timeout [" + timeout + "] should not be negative" );
+            }
+            return KeyedSequenceGeneratorImpl.this.nextValue( key, this, System.nanoTime() + unit.toNanos( timeout ) );
+        }
+        
+        /**
+         * Bind to the SO of the key in Cache, or put the bound SO back if it has been evicted.
+         * @return the SO which is bound now
+         */
+        SequenceObject rebind() {
+            SequenceObject so = sequenceObject;
+            SequenceObject cachedSo = sequenceCache.get( key );
+            if( cachedSo==null ){
+                cachedSo = sequenceCache.putIfAbsent( key, so );
+            }
+            if( cachedSo!=null && cachedSo!=so ){
+                sequenceObject = cachedSo;
+                return cachedSo;
+            }
+            return so;
+        }
+        
+        @Override
+        public String toString() {
+            return "SequenceHandle [ key=\"" + key + "\" ]";
+        }
+    }
+    
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+/**
+ * <p>
+ * Management interface of {@link KeyedSequenceGeneratorImpl}, it is registered as a standard MBean,
+ * e.g. by Spring's MBeanExporter, to change segment configurations at runtime.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean class="org.springframework.jmx.export.MBeanExporter"&gt;
+ *     &lt;property name="beans"&gt;
+ *         &lt;map&gt;
+ *             &lt;entry key="realpaas:name=keyedSequenceGenerator" value-ref="keyedSequenceGenerator"/&gt;
+ *         &lt;/map&gt;
+ *     &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>NOT-APPLICABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public interface KeyedSequenceGeneratorImplMBean {
+    
+    /**
+     * Set the segment configuration of a key prefix, it takes effect from next refill of 
+     * the matched keys.
+     * @param prefix key prefix
+     * @param initValue initial value of new keys, or null to inherit
+     * @param increment size of segments, or null to inherit
+     * @param prefetch prefetch watermark, or null to inherit
+     */
+    public void setPrefixSegmentConfig(String prefix, Long initValue, Integer increment, Integer prefetch);
+    
+    /**
+     * Remove the segment configuration of a key prefix.
+     * @param prefix key prefix
+     */
+    public void removePrefixSegmentConfig(String prefix);
+    
+    /**
+     * Store the segment configuration of a key in the sequence registry, so that all nodes 
+     * pick it up on their next refill, and push it to the cached sequence of this node.
+     * @param key sequence key
+     * @param increment size of segments, or null to inherit
+     * @param prefetch prefetch watermark, or null to inherit
+     */
+    public void setKeySegmentConfig(String key, Integer increment, Integer prefetch);
+    
+    /**
+     * Get the segment configuration in effect for a key.
+     * @param key sequence key
+     * @return description of the configuration
+     */
+    public String getKeySegmentConfig(String key);
+    
+    public int getIncrement();
+    
+    public void setIncrement(int increment);
+    
+    public int getPrefetch();
+    
+    public void setPrefetch(int prefetch);
+    
+    public int getCachedKeyCount();
+    
+    public double getCacheHitRate();
+    
+    /**
+     * @return number of attempts which are retried after failures of getting next value
+     */
+    public long getRetryCount();
+    
+    /**
+     * @return total milliseconds slept before retried attempts
+     */
+    public long getRetrySleepMillis();
+    
+    /**
+     * @return queued, active, completed and rejected refills by partition
+     */
+    public String getRefillStats();
+    
+    public long getDefaultTimeoutMillis();
+    
+    public void setDefaultTimeoutMillis(long defaultTimeoutMillis);
+    
+    /**
+     * @return number of calls which fail for their deadlines
+     */
+    public long getTimeoutCount();
+}
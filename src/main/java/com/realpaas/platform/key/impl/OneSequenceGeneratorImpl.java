@@ -5,6 +5,7 @@ package com.realpaas.platform.key.impl;
 
 import com.realpaas.platform.key.KeyedSequenceGenerator;
 import com.realpaas.platform.key.OneSequenceGenerator;
+import com.realpaas.platform.key.SequenceHandle;
 
 /**
  * <p>
@@ -55,12 +56,19 @@ public class OneSequenceGeneratorImpl implements OneSequenceGenerator {
     
     private KeyedSequenceGenerator keyedSequenceGenerator;
     
+    /**
+     * handle of the sequence key, resolved on first use
+     */
+    private volatile SequenceHandle sequenceHandle;
+    
     public void setSequenceKey(String sequenceKey) {
         this.sequenceKey = sequenceKey;
+        this.sequenceHandle = null;
     }
 
     public void setKeyedSequenceGenerator(KeyedSequenceGenerator keyedSequenceGenerator) {
         this.keyedSequenceGenerator = keyedSequenceGenerator;
+        this.sequenceHandle = null;
     }
 
     /* (non-Javadoc)
@@ -68,7 +76,12 @@ public class OneSequenceGeneratorImpl implements OneSequenceGenerator {
      */
     @Override
     public long nextValue() {
-        return keyedSequenceGenerator.nextValue( sequenceKey );
+        SequenceHandle handle = sequenceHandle;
+        if( handle==null ){
+            handle = keyedSequenceGenerator.handle( sequenceKey );
+            sequenceHandle = handle;
+        }
+        return handle.nextValue();
     }
 
 }
@@ -3,8 +3,19 @@
  */
 package com.realpaas.platform.key.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import com.realpaas.platform.key.KeyedSequenceGenerator;
 import com.realpaas.platform.key.PartitionedSequenceGenerator;
+import com.realpaas.platform.key.SequenceGeneratorException;
+import com.realpaas.platform.key.SequenceHandle;
+import com.realpaas.platform.key.SequenceRange;
+import com.realpaas.platform.key.ShardedIdLayout;
 
 /**
  * <p>
@@ -55,22 +66,185 @@ public class PartitionedSequenceGeneratorImpl implements PartitionedSequenceGene
     
     private KeyedSequenceGenerator keyedSequenceGenerator;
     
+    /**
+     * handle of the partition key, resolved on first use
+     */
+    private volatile SequenceHandle partitionHandle;
+    
+    /**
+     * layout of the issued ids, null to issue the plain sequence values
+     */
+    private ShardedIdLayout idLayout;
+    
+    /**
+     * shard of each partition key, shared by the generators of all partitions
+     */
+    private Map<String, Integer> shardMapping = Collections.emptyMap();
+    
+    /**
+     * shard of the partition, resolved from the mapping when any of them is set, -1 if none
+     */
+    private volatile int shard = -1;
+    
     public void setPartitionKey(String partitionKey) {
         this.partitionKey = partitionKey;
+        this.partitionHandle = null;
+        resolveShard();
+    }
+
+    /**
+     * Set the number of high bits which carry the shard of the partition in every issued id,
+     * the sequence value of the key is kept in the other bits. 0 (default) issues the plain
+     * sequence values.
+     * @param shardBits 0 or from 1 to {@link ShardedIdLayout#MAX_SHARD_BITS}
+     */
+    public void setShardBits(int shardBits) {
+        this.idLayout = shardBits==0 ? null : new ShardedIdLayout( shardBits );
+        resolveShard();
+    }
+
+    /**
+     * Set the shard of each partition key, the shard of this partition is resolved from it 
+     * once, so set it again to remap the partition. Remapping a partition only affects ids 
+     * issued afterwards, the ids issued before still decode to the old shard.
+     */
+    public void setShardMapping(Map<String, Integer> shardMapping) {
+        this.shardMapping = shardMapping;
+        resolveShard();
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Check that a shard is mapped to the partition if ids should carry one.
+     * @throws IllegalStateException if no shard is mapped to the partition
+     */
+    public void init() {
+        checkShard();
+    }
+
+    private void resolveShard() {
+        Integer mappedShard = shardMapping.get( partitionKey );
+        if( mappedShard!=null && idLayout!=null && (mappedShard<0 || mappedShard>idLayout.getMaxShard()) ){
+            throw new IllegalArgumentException( "Shard [" + mappedShard + "] of partition [" + partitionKey + "] is out of range [0, " + idLayout.getMaxShard() + "]" );
+        }
+        this.shard = mappedShard==null ? -1 : mappedShard;
+    }
+
+    public ShardedIdLayout getIdLayout() {
+        return idLayout;
     }
 
     public void setKeyedSequenceGenerator(KeyedSequenceGenerator keyedSequenceGenerator) {
         this.keyedSequenceGenerator = keyedSequenceGenerator;
+        this.partitionHandle = null;
     }
 
     @Override
     public long nextValue() {
-        return keyedSequenceGenerator.nextValue( partitionKey );
+        SequenceHandle handle = partitionHandle;
+        if( handle==null ){
+            handle = keyedSequenceGenerator.handle( partitionKey );
+            partitionHandle = handle;
+        }
+        checkShard();
+        return toId( handle.nextValue() );
     }
 
     @Override
     public long nextValue(String key) {
-        return keyedSequenceGenerator.nextValue( partitionKey + "." + key );
+        checkShard();
+        return toId( keyedSequenceGenerator.nextValue( partitionKey + "." + key ) );
     }
-    
+
+    @Override
+    public long nextValue(String key, long timeout, TimeUnit unit) {
+        checkShard();
+        return toId( keyedSequenceGenerator.nextValue( partitionKey + "." + key, timeout, unit ) );
+    }
+
+    @Override
+    public SequenceHandle handle(String key) {
+        checkShard();
+        SequenceHandle handle = keyedSequenceGenerator.handle( partitionKey + "." + key );
+        return idLayout==null ? handle : new ShardedHandle( handle );
+    }
+
+    @Override
+    public SequenceRange reserve(String key, int count) {
+        checkShard();
+        SequenceRange range = keyedSequenceGenerator.reserve( partitionKey + "." + key, count );
+        if( idLayout==null ){
+            return range;
+        }
+        // the sequence field is the low bits, so a range within the field stays contiguous
+        toId( range.getLast() );
+        return new SequenceRange( toId( range.getFirst() ), range.getCount() );
+    }
+
+    @Override
+    public void preload(String key) {
+        keyedSequenceGenerator.preload( partitionKey + "." + key );
+    }
+
+    @Override
+    public boolean evict(String key) {
+        return keyedSequenceGenerator.evict( partitionKey + "." + key );
+    }
+
+    @Override
+    public int provision(Collection<String> keys, boolean preload) {
+        List<String> partitionedKeys = new ArrayList<String>( keys.size() );
+        for( String key : keys ){
+            partitionedKeys.add( partitionKey + "." + key );
+        }
+        return keyedSequenceGenerator.provision( partitionedKeys, preload );
+    }
+
+    /**
+     * Fail before a value is taken if ids should carry a shard but none is mapped to the partition.
+     */
+    private void checkShard() {
+        if( idLayout!=null && shard<0 ){
+            throw new IllegalStateException( "No shard is mapped to partition [" + partitionKey + "]" );
+        }
+    }
+
+    /**
+     * Compose the id of a sequence value of this partition.
+     * @throws SequenceGeneratorException if the value exhausts the sequence field
+     */
+    private long toId(long value) {
+        ShardedIdLayout layout = idLayout;
+        return layout==null ? value : layout.compose( shard, value );
+    }
+
+    private class ShardedHandle implements SequenceHandle {
+
+        private final SequenceHandle handle;
+
+        ShardedHandle(SequenceHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public String getKey() {
+            return handle.getKey();
+        }
+
+        @Override
+        public long nextValue() {
+            checkShard();
+            return toId( handle.nextValue() );
+        }
+
+        @Override
+        public long nextValue(long timeout, TimeUnit unit) {
+            checkShard();
+            return toId( handle.nextValue( timeout, unit ) );
+        }
+    }
+
 }
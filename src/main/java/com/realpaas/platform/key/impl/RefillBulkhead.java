@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.realpaas.platform.key.SequenceGeneratorException;
+
+/**
+ * <p>
+ * Bulkhead of refills by partition, so that one hot partition cannot occupy all connections of
+ * the persister and stall the refills of the others. Each partition may run a bounded number
+ * of refills at the same time, all partitions share a fair pool of permits, and critical
+ * partitions may have reserved permits on top of it. A refill which cannot get a permit
+ * before timeout is rejected, queueing and rejections are counted by partition.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="refillBulkhead" class="com.realpaas.platform.key.impl.RefillBulkhead"&gt;
+ *     &lt;property name="maxConcurrentRefills"&gt;&lt;value&gt;2&lt;/value&gt;&lt;/property&gt;
+ *     &lt;property name="sharedPermits"&gt;&lt;value&gt;8&lt;/value&gt;&lt;/property&gt;
+ *     &lt;property name="reservedPermits"&gt;
+ *         &lt;map&gt;&lt;entry key="billing" value="2"/&gt;&lt;/map&gt;
+ *     &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b> (properties should be set before it is used.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Bulkhead
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class RefillBulkhead {
+    private static final int DEFAULT_MAX_CONCURRENT_REFILLS = 2;
+    private static final int DEFAULT_SHARED_PERMITS = 8;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 3000;
+    
+    private int maxConcurrentRefills = DEFAULT_MAX_CONCURRENT_REFILLS;
+    private int sharedPermitCount = DEFAULT_SHARED_PERMITS;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private char partitionDelimiter = '.';
+    private Map<String, Integer> reservedPermits = Collections.emptyMap();
+    
+    /**
+     * permits shared by all partitions, it is fair so waiting refills are served in order
+     */
+    private Semaphore sharedPermits = new Semaphore( DEFAULT_SHARED_PERMITS, true );
+    
+    private final ConcurrentMap<String, Compartment> compartments = new ConcurrentHashMap<String, Compartment>();
+    
+    private final Log logger = LogFactory.getLog(getClass());
+    
+    public int getMaxConcurrentRefills() {
+        return maxConcurrentRefills;
+    }
+
+    /**
+     * Set the max number of concurrent refills of one partition, it should be less than 
+     * the shared permits so that a hot partition always leaves capacity to the others.
+     * @param maxConcurrentRefills max concurrent refills per partition
+     */
+    public void setMaxConcurrentRefills(int maxConcurrentRefills) {
+        if( maxConcurrentRefills<1 ){
+            throw new IllegalArgumentException( "Property \"maxConcurrentRefills\" [" + maxConcurrentRefills + "] should be greater than 0" );
+        }
+        this.maxConcurrentRefills = maxConcurrentRefills;
+    }
+
+    public int getSharedPermits() {
+        return sharedPermitCount;
+    }
+
+    /**
+     * Set the number of refills which can run at the same time across all partitions, it is
+     * usually a bit less than the size of the connection pool. 
+     * @param sharedPermits number of shared permits
+     */
+    public void setSharedPermits(int sharedPermits) {
+        if( sharedPermits<1 ){
+            throw new IllegalArgumentException( "Property \"sharedPermits\" [" + sharedPermits + "] should be greater than 0" );
+        }
+        this.sharedPermitCount = sharedPermits;
+        this.sharedPermits = new Semaphore( sharedPermits, true );
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Set how long a refill waits for a permit before it is rejected.
+     * @param timeoutMillis timeout in milliseconds
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public char getPartitionDelimiter() {
+        return partitionDelimiter;
+    }
+
+    /**
+     * Set the delimiter between partition and key, the partition of a key is the part before 
+     * the first delimiter or the whole key if there is none. 
+     * @param partitionDelimiter delimiter, '.' by default as PartitionedSequenceGeneratorImpl does
+     */
+    public void setPartitionDelimiter(char partitionDelimiter) {
+        this.partitionDelimiter = partitionDelimiter;
+    }
+
+    public Map<String, Integer> getReservedPermits() {
+        return reservedPermits;
+    }
+
+    /**
+     * Reserve permits for critical partitions in addition to the shared ones, their refills 
+     * use reserved permits first and are never starved by other partitions.
+     * @param reservedPermits number of reserved permits by partition
+     */
+    public void setReservedPermits(Map<String, Integer> reservedPermits) {
+        this.reservedPermits = new HashMap<String, Integer>( reservedPermits );
+        this.compartments.clear();
+    }
+
+    /**
+     * Acquire a permit for a refill of the key, it must be released after the refill.
+     * @param storedKey key to refill
+     * @return the permit
+     * @throws SequenceGeneratorException if no permit is available before timeout
+     */
+    public Permit acquire(String storedKey) {
+        Compartment compartment = compartmentOf( partitionOf( storedKey ) );
+        compartment.queued.incrementAndGet();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+            if( !compartment.limit.tryAcquire( timeoutMillis, TimeUnit.MILLISECONDS ) ){
+                throw reject( compartment, "concurrent refills of the partition are at limit " + compartment.maxPermits );
+            }
+            if( compartment.reserved!=null && compartment.reserved.tryAcquire() ){
+                compartment.active.incrementAndGet();
+                return compartment.reservedPermit;
+            }
+            if( !sharedPermits.tryAcquire( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ) ){
+                compartment.limit.release();
+                throw reject( compartment, "shared refill capacity is exhausted" );
+            }
+            compartment.active.incrementAndGet();
+            return compartment.sharedPermit;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject( compartment, "refill is interrupted" );
+        }
+        finally {
+            compartment.queued.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Release the permit of a refill.
+     * @param permit permit acquired for the refill
+     */
+    public void release(Permit permit) {
+        Compartment compartment = permit.compartment;
+        compartment.active.decrementAndGet();
+        compartment.refills.incrementAndGet();
+        if( permit.reserved ){
+            compartment.reserved.release();
+        }
+        else {
+            sharedPermits.release();
+        }
+        compartment.limit.release();
+    }
+    
+    public String partitionOf(String storedKey) {
+        int index = storedKey.indexOf( partitionDelimiter );
+        return index<0 ? storedKey : storedKey.substring( 0, index );
+    }
+    
+    public List<String> getPartitions() {
+        return new ArrayList<String>( compartments.keySet() );
+    }
+    
+    /**
+     * @return number of refills of the partition which are waiting for permits
+     */
+    public int getQueueLength(String partition) {
+        Compartment compartment = compartments.get( partition );
+        return compartment==null ? 0 : compartment.queued.get();
+    }
+    
+    /**
+     * @return number of refills of the partition which are running
+     */
+    public int getActiveCount(String partition) {
+        Compartment compartment = compartments.get( partition );
+        return compartment==null ? 0 : compartment.active.get();
+    }
+    
+    /**
+     * @return number of refills of the partition which are completed
+     */
+    public long getRefillCount(String partition) {
+        Compartment compartment = compartments.get( partition );
+        return compartment==null ? 0 : compartment.refills.get();
+    }
+    
+    /**
+     * @return number of refills of the partition which are rejected
+     */
+    public long getRejectionCount(String partition) {
+        Compartment compartment = compartments.get( partition );
+        return compartment==null ? 0 : compartment.rejections.get();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( "RefillBulkhead [ availableSharedPermits=" );
+        sb.append( sharedPermits.availablePermits() );
+        for( Compartment compartment : compartments.values() ){
+            sb.append( ", " ).append( compartment.partition )
+              .append( "={ queued=" ).append( compartment.queued.get() )
+              .append( ", active=" ).append( compartment.active.get() )
+              .append( ", refills=" ).append( compartment.refills.get() )
+              .append( ", rejections=" ).append( compartment.rejections.get() ).append( " }" );
+        }
+        return sb.append( " ]" ).toString();
+    }
+    
+    private SequenceGeneratorException reject(Compartment compartment, String reason) {
+        compartment.rejections.incrementAndGet();
+        String strError = "Refill of partition \"" + compartment.partition + "\" is rejected: " + reason;
+        logger.warn( strError );
+        return new SequenceGeneratorException( strError );
+    }
+    
+    private Compartment compartmentOf(String partition) {
+        Compartment compartment = compartments.get( partition );
+        if( compartment==null ){
+            Integer reserved = reservedPermits.get( partition );
+            compartment = new Compartment( partition, reserved==null ? 0 : reserved );
+            Compartment previousOne = compartments.putIfAbsent( partition, compartment );
+            if( previousOne!=null ){
+                compartment = previousOne;
+            }
+        }
+        return compartment;
+    }
+    
+    /**
+     * Permit of a refill, it records where it is acquired from.
+     */
+    public static final class Permit {
+        private final Compartment compartment;
+        private final boolean reserved;
+        
+        private Permit(Compartment compartment, boolean reserved) {
+            this.compartment = compartment;
+            this.reserved = reserved;
+        }
+    }
+    
+    /**
+     * Refill limit and statistics of a partition.
+     */
+    private final class Compartment {
+        private final String partition;
+        private final int maxPermits;
+        private final Semaphore limit;
+        private final Semaphore reserved;
+        private final Permit sharedPermit = new Permit( this, false );
+        private final Permit reservedPermit = new Permit( this, true );
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong refills = new AtomicLong();
+        private final AtomicLong rejections = new AtomicLong();
+        
+        Compartment(String partition, int reservedPermits) {
+            this.partition = partition;
+            this.maxPermits = Math.max( maxConcurrentRefills, reservedPermits );
+            this.limit = new Semaphore( maxPermits, true );
+            this.reserved = reservedPermits>0 ? new Semaphore( reservedPermits ) : null;
+        }
+    }
+}
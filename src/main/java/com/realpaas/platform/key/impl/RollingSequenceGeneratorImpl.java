@@ -0,0 +1,382 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.realpaas.platform.key.KeyedSequenceGenerator;
+import com.realpaas.platform.key.RollingPeriod;
+import com.realpaas.platform.key.RollingSequenceGenerator;
+import com.realpaas.platform.key.SequenceHandle;
+
+/**
+ * <p>
+ * Rolling sequences on a keyed sequence generator, the key of a period is the given key and
+ * the period label, e.g. "orders.2026-10-17". Keys used in the current period and the configured
+ * ones are created with their first segments before the boundary, so that nodes don't race to
+ * create them at the boundary. Values are issued in the current period until the clock passes
+ * its end, then the generator switches to the pre-created period at once and evicts the keys of
+ * the ended one a while later.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="rollingSequenceGenerator" class="com.realpaas.platform.key.impl.RollingSequenceGeneratorImpl"
+ *         init-method="init" destroy-method="destroy"&gt;
+ *     &lt;property name="keyedSequenceGenerator" ref="keyedSequenceGenerator" /&gt;
+ *     &lt;property name="period" value="DAILY" /&gt;
+ *     &lt;property name="timeZone" value="Asia/Shanghai" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Decorator
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class RollingSequenceGeneratorImpl implements RollingSequenceGenerator {
+
+    public static final long DEFAULT_PRE_CREATE_MILLIS = 60000L;
+    
+    public static final long DEFAULT_EVICT_DELAY_MILLIS = 60000L;
+    
+    private KeyedSequenceGenerator keyedSequenceGenerator;
+    
+    private RollingPeriod period = RollingPeriod.DAILY;
+    
+    private TimeZone timeZone = TimeZone.getDefault();
+    
+    private long preCreateMillis = DEFAULT_PRE_CREATE_MILLIS;
+    
+    private long evictDelayMillis = DEFAULT_EVICT_DELAY_MILLIS;
+    
+    private List<String> keys = Collections.emptyList();
+    
+    /*
+     * the period which values are issued in and the pre-created next one, switched under the 
+     * lock of this
+     */
+    private volatile Period current;
+    private Period next;
+    
+    private volatile ScheduledExecutorService scheduler;
+    
+    private final Random random = new Random();
+    
+    private final AtomicLong preCreatedCount = new AtomicLong();
+    
+    private final AtomicLong evictedCount = new AtomicLong();
+    
+    private final Log logger = LogFactory.getLog(getClass());
+
+    public void setKeyedSequenceGenerator(KeyedSequenceGenerator keyedSequenceGenerator) {
+        this.keyedSequenceGenerator = keyedSequenceGenerator;
+    }
+
+    public RollingPeriod getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(RollingPeriod period) {
+        this.period = period;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public long getPreCreateMillis() {
+        return preCreateMillis;
+    }
+
+    /**
+     * Create the keys of the next period at a random time in the last preCreateMillis to the 
+     * last half of it before the boundary, so that nodes don't create them at once.
+     * @param preCreateMillis lead time of the creation in milliseconds
+     */
+    public void setPreCreateMillis(long preCreateMillis) {
+        if( preCreateMillis<0 || preCreateMillis>Integer.MAX_VALUE ){
+            throw new IllegalArgumentException( "Property \"preCreateMillis\" [" + preCreateMillis + "] is out of range" );
+        }
+        this.preCreateMillis = preCreateMillis;
+    }
+
+    public long getEvictDelayMillis() {
+        return evictDelayMillis;
+    }
+
+    /**
+     * Keep the keys of an ended period cached a while for callers which got the period just 
+     * before the boundary.
+     * @param evictDelayMillis delay of the eviction after the boundary in milliseconds
+     */
+    public void setEvictDelayMillis(long evictDelayMillis) {
+        if( evictDelayMillis<0 ){
+            throw new IllegalArgumentException( "Property \"evictDelayMillis\" [" + evictDelayMillis + "] should not be negative" );
+        }
+        this.evictDelayMillis = evictDelayMillis;
+    }
+
+    /**
+     * Keys which are created for every next period even if they were not used in the current 
+     * one, keys used in the current period are always created.
+     * @param keys keys to create ahead
+     */
+    public void setKeys(List<String> keys) {
+        this.keys = keys==null ? Collections.<String>emptyList() : new ArrayList<String>( keys );
+    }
+
+    public long getPreCreatedCount() {
+        return preCreatedCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Start the scheduler which creates keys of next periods ahead and evicts keys of ended 
+     * ones. Without it the generator still rolls at boundaries, but keys are created on 
+     * first use and evicted at once.
+     */
+    public void init() {
+        if( keyedSequenceGenerator==null ){
+            throw new IllegalStateException( "Property \"keyedSequenceGenerator\" is needed to roll sequences" );
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread( runnable, "genkey-rolling" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        roll( currentTimeMillis() );
+    }
+
+    public void destroy() {
+        ScheduledExecutorService executor = scheduler;
+        scheduler = null;
+        if( executor!=null ){
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public long nextValue(String key) {
+        return nextValue( key, null );
+    }
+
+    @Override
+    public long nextValue(String key, StringBuilder period) {
+        long now = currentTimeMillis();
+        Period p = current;
+        if( p==null || now<p.start || now>=p.end ){
+            p = roll( now );
+        }
+        long value = p.handle( key ).nextValue();
+        if( period!=null ){
+            period.append( p.label );
+        }
+        return value;
+    }
+
+    @Override
+    public String getPeriodKey(String key, long timeMillis) {
+        return key + "." + period.label( timeMillis, timeZone );
+    }
+
+    /**
+     * Create the keys of the next period and reserve their first segments, it is run by the 
+     * scheduler before the boundary and may also be called directly. Keys which fail to be 
+     * created are created on first use instead.
+     * @return the number of keys created ahead
+     */
+    public int preCreateNextPeriod() {
+        Period p = current;
+        if( p==null ){
+            p = roll( currentTimeMillis() );
+        }
+        Period n = new Period( p.end );
+        Set<String> nextKeys = new LinkedHashSet<String>( keys );
+        nextKeys.addAll( p.handles.keySet() );
+        
+        int created = 0;
+        for( String key : nextKeys ){
+            try {
+                keyedSequenceGenerator.preload( n.periodKey( key ) );
+                n.handle( key );
+                created++;
+            }
+            catch (RuntimeException e) {
+                logger.warn("Fail to create \"" + n.periodKey( key ) + "\" ahead of the period", e);
+            }
+        }
+        preCreatedCount.addAndGet( created );
+        
+        synchronized( this ){
+            if( current==p ){
+                next = n;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Switch to the period of the given time, to the pre-created one if it is. Only one caller 
+     * switches, the others see the new period through the volatile field.
+     */
+    private synchronized Period roll(long now) {
+        Period p = current;
+        if( p!=null && now>=p.start && now<p.end ){
+            return p;
+        }
+        Period rolled = next!=null && now>=next.start && now<next.end ? next : new Period( period.startOf( now, timeZone ) );
+        next = null;
+        current = rolled;
+        
+        if( p!=null ){
+            evictLater( p );
+        }
+        preCreateLater( rolled, now );
+        return rolled;
+    }
+    
+    private void preCreateLater(final Period p, long now) {
+        ScheduledExecutorService executor = scheduler;
+        if( executor==null ){
+            return;
+        }
+        long lead = p.end - now;
+        long delay = lead>preCreateMillis ? lead - preCreateMillis + random.nextInt( (int) (preCreateMillis / 2) + 1 ) : 0;
+        try {
+            executor.schedule( new Runnable() {
+                @Override
+                public void run() {
+                    if( current==p ){
+                        preCreateNextPeriod();
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS );
+        }
+        catch (RejectedExecutionException e) {
+            // shut down
+        }
+    }
+    
+    private void evictLater(final Period p) {
+        ScheduledExecutorService executor = scheduler;
+        if( executor!=null ){
+            try {
+                executor.schedule( new Runnable() {
+                    @Override
+                    public void run() {
+                        evict( p );
+                    }
+                }, evictDelayMillis, TimeUnit.MILLISECONDS );
+                return;
+            }
+            catch (RejectedExecutionException e) {
+                // shut down, evict at once
+            }
+        }
+        evict( p );
+    }
+    
+    private void evict(Period p) {
+        for( String key : p.handles.keySet() ){
+            if( keyedSequenceGenerator.evict( p.periodKey( key ) ) ){
+                evictedCount.incrementAndGet();
+            }
+        }
+    }
+    
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+    
+    /**
+     * A period with the handles of the keys used or created in it.
+     */
+    private final class Period {
+        private final long start;
+        
+        private final long end;
+        
+        private final String label;
+        
+        private final ConcurrentMap<String, SequenceHandle> handles = new ConcurrentHashMap<String, SequenceHandle>();
+        
+        Period(long start) {
+            this.start = start;
+            this.end = period.nextStart( start, timeZone );
+            this.label = period.label( start, timeZone );
+        }
+        
+        String periodKey(String key) {
+            return key + "." + label;
+        }
+        
+        SequenceHandle handle(String key) {
+            SequenceHandle handle = handles.get( key );
+            if( handle==null ){
+                handle = keyedSequenceGenerator.handle( periodKey( key ) );
+                SequenceHandle previous = handles.putIfAbsent( key, handle );
+                if( previous!=null ){
+                    handle = previous;
+                }
+            }
+            return handle;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+/**
+ * <p>
+ * Segment configuration of a key or a key prefix: initial value, increment (segment size)
+ * and prefetch watermark. A null property means it is inherited from the configuration
+ * at the next lower precedence: registry row of the key, prefix configuration, then
+ * generator properties.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;property name="segmentConfigs"&gt;
+ *     &lt;map&gt;
+ *         &lt;entry key="order"&gt;
+ *             &lt;bean class="com.realpaas.platform.key.impl.SegmentConfig"&gt;
+ *                 &lt;property name="increment"&gt;&lt;value&gt;100000&lt;/value&gt;&lt;/property&gt;
+ *                 &lt;property name="prefetch"&gt;&lt;value&gt;20000&lt;/value&gt;&lt;/property&gt;
+ *             &lt;/bean&gt;
+ *         &lt;/entry&gt;
+ *     &lt;/map&gt;
+ * &lt;/property&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> (it is replaced as a whole instead of being changed once in use.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SegmentConfig {
+    
+    /**
+     * smallest segment, a smaller one would cost a registry round trip for every few values
+     */
+    public static final int MIN_INCREMENT = 10;
+    
+    private Long initValue;
+    
+    private Integer increment;
+    
+    private Integer prefetch;
+    
+    public SegmentConfig() {
+    }
+    
+    public SegmentConfig(Long initValue, Integer increment, Integer prefetch) {
+        setInitValue( initValue );
+        setIncrement( increment );
+        setPrefetch( prefetch );
+    }
+    
+    public Long getInitValue() {
+        return initValue;
+    }
+    
+    public void setInitValue(Long initValue) {
+        this.initValue = initValue;
+    }
+    
+    public Integer getIncrement() {
+        return increment;
+    }
+    
+    public void setIncrement(Integer increment) {
+        if( increment!=null && increment<MIN_INCREMENT ){
+            throw new IllegalArgumentException( "Property \"increment\" [" + increment + "] should be greater than or equal to " + MIN_INCREMENT );
+        }
+        this.increment = increment;
+    }
+    
+    public Integer getPrefetch() {
+        return prefetch;
+    }
+    
+    public void setPrefetch(Integer prefetch) {
+        if( prefetch!=null && prefetch<0 ){
+            throw new IllegalArgumentException( "Property \"prefetch\" [" + prefetch + "] should not be negative" );
+        }
+        this.prefetch = prefetch;
+    }
+    
+    @Override
+    public String toString() {
+        return "SegmentConfig [ initValue=" + initValue + ", increment=" + increment + ", prefetch=" + prefetch + " ]";
+    }
+}
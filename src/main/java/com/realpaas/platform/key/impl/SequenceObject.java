@@ -6,6 +6,8 @@ package com.realpaas.platform.key.impl;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.realpaas.platform.key.SequenceRange;
+
 /**
  * <p>
  * 
@@ -48,6 +50,12 @@ import java.util.concurrent.atomic.AtomicLong;
  * @author	henryleu Email/MSN: hongli_leu@126.com
  */
 public class SequenceObject {
+    
+    /**
+     * returned by {@link #nextValue()} when the pointer has reached the valve
+     */
+    public static final long EXHAUSTED = Long.MIN_VALUE;
+    
     private final String key;
     
     private final AtomicLong pointer;
@@ -56,7 +64,20 @@ public class SequenceObject {
     
     private final AtomicBoolean loaded;
     
-    private final int increment;
+    private volatile int increment;
+    
+    /**
+     * prefetch watermark: the next segment is reserved in advance when the pointer 
+     * reaches (valve - prefetch), 0 means no prefetch
+     */
+    private volatile int prefetch;
+    
+    /*
+     * the next segment which is reserved in advance, guarded by this
+     */
+    private boolean prefetched;
+    private long prefetchedPointer;
+    private long prefetchedValve;
     
     public SequenceObject(String key, long pointer, long valve) {
         super();
@@ -96,6 +117,22 @@ public class SequenceObject {
         this.valve.set( valve );
     }
     
+    /**
+     * Publish a new segment (pointer, valve] to the callers of {@link #nextValue()}, which read 
+     * pointer and valve without lock. The segment is closed first by the valve, so no caller 
+     * can pair the new pointer with the old valve, which would overrun into values issued from 
+     * the old segment when the new one is lower, e.g. a claimed free range. A caller which pairs 
+     * the old pointer with the new valve fails its CAS, unless the pointer is also a state of 
+     * the new segment. It should be called by one thread at a time, e.g. the refilling one.
+     * @param pointer the last used value of the new segment
+     * @param valve the last value of the new segment
+     */
+    public void setSegment(long pointer, long valve) {
+        this.valve.set( EXHAUSTED );
+        this.pointer.set( pointer );
+        this.valve.set( valve );
+    }
+    
     public boolean getLoaded() {
         return loaded.get();
     }
@@ -107,14 +144,134 @@ public class SequenceObject {
     public int getIncrement() {
         return increment;
     }
+    
+    public int getPrefetch() {
+        return prefetch;
+    }
+    
+    /**
+     * Change the segment configuration, it takes effect from next refill.
+     * @param increment size of next segments
+     * @param prefetch prefetch watermark, 0 means no prefetch
+     */
+    public void configure(int increment, int prefetch) {
+        this.increment = increment;
+        this.prefetch = prefetch;
+    }
+    
+    /**
+     * Check if the value is the one at which the next segment should be reserved in advance,
+     * only one value of a segment is the prefetch point so only one thread is triggered.
+     */
+    public boolean isPrefetchPoint(long value) {
+        int currentPrefetch = prefetch;
+        return currentPrefetch>0 && value==valve.get() - currentPrefetch;
+    }
+    
+    public synchronized boolean hasPrefetched() {
+        return prefetched;
+    }
+    
+    /**
+     * Keep the next segment (pointer, valve] reserved in advance.
+     */
+    public synchronized void setPrefetched(long pointer, long valve) {
+        this.prefetchedPointer = pointer;
+        this.prefetchedValve = valve;
+        this.prefetched = true;
+    }
+    
+    /**
+     * Switch to the segment reserved in advance if there is one.
+     * @return true if it is switched
+     */
+    public synchronized boolean switchToPrefetched() {
+        if( !prefetched ){
+            return false;
+        }
+        prefetched = false;
+        setSegment( prefetchedPointer, prefetchedValve );
+        return true;
+    }
+    
+    /**
+     * Take the segment reserved in advance away.
+     * @return the released range {pointer, valve}, or null if there is none
+     */
+    public synchronized long[] releasePrefetched() {
+        if( !prefetched ){
+            return null;
+        }
+        prefetched = false;
+        return new long[] { prefetchedPointer, prefetchedValve };
+    }
 
+    /**
+     * Roll the pointer and return it, the pointer never passes the valve.
+     * @return the next value, or {@link #EXHAUSTED} if the pointer has reached the valve
+     */
     public long nextValue() {
-        return pointer.incrementAndGet();
+        for(;;) {
+            long current = pointer.get();
+            if( current>=valve.get() ){
+                return EXHAUSTED;
+            }
+            if( pointer.compareAndSet( current, current + 1 ) ){
+                return current + 1;
+            }
+        }
+    }
+    
+    /**
+     * Roll the pointer by up to count values at once, fewer values are taken if the rest of 
+     * the segment is not enough.
+     * @param count the most number of values to take
+     * @return the taken range, or null if the pointer has reached the valve
+     */
+    public SequenceRange nextRange(int count) {
+        for(;;) {
+            long current = pointer.get();
+            long currentValve = valve.get();
+            if( current>=currentValve ){
+                return null;
+            }
+            long end = currentValve - current>count ? current + count : currentValve;
+            if( pointer.compareAndSet( current, end ) ){
+                return new SequenceRange( current + 1, (int) (end - current) );
+            }
+        }
+    }
+    
+    /**
+     * The same as {@link #isPrefetchPoint(long)} but for each value of the range.
+     */
+    public boolean coversPrefetchPoint(SequenceRange range) {
+        int currentPrefetch = prefetch;
+        return currentPrefetch>0 && range.contains( valve.get() - currentPrefetch );
+    }
+    
+    /**
+     * Take the unused rest of the segment away by moving the pointer to the valve atomically,
+     * no value of the rest can be got by {@link #nextValue()} any more.
+     * @return the pointer before release, the released range is (pointer, valve], or 
+     *         {@link #EXHAUSTED} if nothing is left
+     */
+    public long release() {
+        for(;;) {
+            long current = pointer.get();
+            long currentValve = valve.get();
+            if( current>=currentValve ){
+                return EXHAUSTED;
+            }
+            if( pointer.compareAndSet( current, currentValve ) ){
+                return current;
+            }
+        }
     }
     
     public void syncWith(SequenceObject newSo){
-        setPointer( newSo.getPointer() );
-        setValve( newSo.getValve() );
+        setSegment( newSo.getPointer(), newSo.getValve() );
+        configure( newSo.getIncrement(), newSo.getPrefetch() );
     }
     
     /**
@@ -126,7 +283,7 @@ public class SequenceObject {
          * reach valve is value
          * considering multiple thread access, use >= instead of ==
          */
-        return pointer.get() == valve.get();
+        return pointer.get() >= valve.get();
     }
     
     /**
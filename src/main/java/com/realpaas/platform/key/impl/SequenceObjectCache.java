@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Cache of sequence objects with loaded segments by sequence key. Evicting a key is
+ * always safe, the rest of its segment is just forgotten and a new segment is
+ * reserved next time the key is used.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b> (implementations must be safe for concurrent use.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public interface SequenceObjectCache {
+    
+    /**
+     * Get the cached sequence object of the key.
+     * @param storedKey sequence key in storage
+     * @return the cached object, or null if it is absent
+     */
+    public SequenceObject get(String storedKey);
+    
+    /**
+     * Cache the sequence object if no object of the key is cached. The cache may decline to
+     * keep the object, then the caller should use it once without caching.
+     * @param storedKey sequence key in storage
+     * @param so newly created sequence object
+     * @return the previous cached object, or null if there is none
+     */
+    public SequenceObject putIfAbsent(String storedKey, SequenceObject so);
+    
+    /**
+     * Remove the cached sequence object of the key, the rest of its segment is just forgotten.
+     * @param storedKey sequence key in storage
+     * @return the removed object, or null if it is absent
+     */
+    public SequenceObject remove(String storedKey);
+    
+    /**
+     * @return a snapshot of all cached sequence objects
+     */
+    public List<SequenceObject> values();
+    
+    /**
+     * @return the number of cached sequence objects
+     */
+    public int size();
+    
+    public long getHitCount();
+    
+    public long getMissCount();
+    
+    /**
+     * @return the number of objects evicted for size or idle time
+     */
+    public long getEvictionCount();
+    
+    /**
+     * @return hit count / request count, 1.0 if there is no request
+     */
+    public double getHitRate();
+}
@@ -3,6 +3,12 @@
  */
 package com.realpaas.platform.key.impl;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.realpaas.platform.key.SequenceGeneratorException;
+
 /**
  * <p>
  * 
@@ -60,10 +66,83 @@ public interface SequenceObjectPersister {
      */
     public void createSequenceObject(String storedKey, Long value);
     
+    /**
+     * Create the sequence infos of many keys in Storage with their initial values, the keys 
+     * which already exist are skipped and keep their values. By default each key is looked up 
+     * and then created one by one, Storage should override it with a bulk operation.
+     * @param values initial value of each stored key
+     * @return stored keys which are created
+     */
+    public default Set<String> createSequenceObjects(Map<String, Long> values) {
+        Set<String> created = new HashSet<String>();
+        for( Map.Entry<String, Long> entry : values.entrySet() ){
+            String storedKey = entry.getKey();
+            if( loadSequenceObject( storedKey )!=null ){
+                continue;
+            }
+            try {
+                createSequenceObject( storedKey, entry.getValue() );
+            }
+            catch (SequenceGeneratorException e) {
+                /*
+                 * it may be created by another node meanwhile, otherwise it fails
+                 */
+                if( loadSequenceObject( storedKey )==null ){
+                    throw e;
+                }
+                continue;
+            }
+            created.add( storedKey );
+        }
+        return created;
+    }
+    
     /**
      * Get and update sequence object in DB, and copy to sequence object in Cache  
      * @param storedKey
      * @param cachedSo
      */
     public void updateSequenceObject(String storedKey, SequenceObject cachedSo);
+    
+    /**
+     * Reserve the first segment of the sequence in one atomic step: create the sequence info 
+     * with the valve of the cached object if it is absent, otherwise update it as 
+     * {@link #updateSequenceObject(String, SequenceObject)} does, then copy the reserved 
+     * segment to the cached object. Concurrent first touches of one key never conflict.
+     * @param storedKey sequence key in storage
+     * @param cachedSo initial sequence object whose increment is the size of the segment
+     * @return false if Storage does not support it, the caller should load and then create 
+     *         or update the sequence object instead
+     */
+    public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo);
+    
+    /**
+     * Return an unused range (pointer, valve] of the sequence to Storage, so that it can be 
+     * claimed by a later refill of any node instead of advancing the sequence. Storage may
+     * ignore it if reusing ranges is not supported or disabled.
+     * @param storedKey sequence key in storage
+     * @param pointer the last used value of the range
+     * @param valve the last value of the range
+     */
+    public void releaseRange(String storedKey, long pointer, long valve);
+    
+    /**
+     * Store the segment configuration of the sequence in Storage, it overrides the generator's
+     * configuration from the next load or refill of any node. 
+     * @param storedKey sequence key in storage
+     * @param increment size of segments, or null to inherit the generator's configuration
+     * @param prefetch prefetch watermark, or null to inherit the generator's configuration
+     */
+    public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch);
+    
+    /**
+     * Get the segment configuration of the sequence stored by 
+     * {@link #updateSegmentConfig(String, Integer, Integer)}.
+     * @param storedKey sequence key in storage
+     * @return increment and prefetch of the sequence, null for the inherited ones, or null if 
+     *         Storage keeps no configuration of the sequence
+     */
+    public default SegmentConfig loadSegmentConfig(String storedKey) {
+        return null;
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * JVM-wide registry of the segments of sequences, keyed by the persister and the sequence key.
+ * Generators which share a persister share one sequence object of a key, so the key has one
+ * current segment in the JVM and only one of them refills it at a time, the others find it
+ * refilled. The cache of a persister lives as long as any generator refers to it.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * SequenceObjectCache cache = SharedSegmentRegistry.acquire( persister );
+ * ...
+ * if( SharedSegmentRegistry.release( persister ) ){
+ *     // the last one, release the unused segments of the cache
+ * }
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Registry
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class SharedSegmentRegistry {
+
+    /**
+     * shared cache of each persister, by identity of the persister
+     */
+    private static final Map<SequenceObjectPersister, Entry> ENTRIES = new IdentityHashMap<SequenceObjectPersister, Entry>();
+
+    private SharedSegmentRegistry() {
+    }
+
+    /**
+     * Get the shared cache of the persister's sequences and count a reference to it, an 
+     * unbounded cache is created on the first acquisition.
+     * @param persister persister of the sequences
+     * @return cache of sequence objects shared by all generators of the persister
+     */
+    public static SequenceObjectCache acquire(SequenceObjectPersister persister) {
+        return acquire( persister, null );
+    }
+
+    /**
+     * Get the shared cache of the persister's sequences and count a reference to it. The first 
+     * acquisition shares the given cache, or an unbounded one if it is null, the later ones get 
+     * that cache and may only give null or the same cache.
+     * @param persister persister of the sequences
+     * @param cache cache to share on the first acquisition, null for the default one
+     * @return cache of sequence objects shared by all generators of the persister
+     * @throws IllegalStateException if the persister already shares another cache
+     */
+    public static synchronized SequenceObjectCache acquire(SequenceObjectPersister persister, SequenceObjectCache cache) {
+        if( persister==null ){
+            throw new IllegalArgumentException( "Persister is needed to share segments" );
+        }
+        Entry entry = ENTRIES.get( persister );
+        if( entry==null ){
+            entry = new Entry( cache==null ? new ConcurrentSequenceObjectCache() : cache );
+            ENTRIES.put( persister, entry );
+        }
+        else if( cache!=null && cache!=entry.cache ){
+            throw new IllegalStateException( "Segments of the persister are already shared through another cache " + entry.cache );
+        }
+        entry.references++;
+        return entry.cache;
+    }
+
+    /**
+     * Drop a reference to the shared cache of the persister's sequences, the cache is removed 
+     * from the registry with its last reference.
+     * @param persister persister of the sequences
+     * @return true if it was the last reference, then the caller owns the segments of the cache
+     */
+    public static synchronized boolean release(SequenceObjectPersister persister) {
+        Entry entry = ENTRIES.get( persister );
+        if( entry==null ){
+            throw new IllegalStateException( "Segments of the persister are not shared" );
+        }
+        if( --entry.references>0 ){
+            return false;
+        }
+        ENTRIES.remove( persister );
+        return true;
+    }
+
+    /**
+     * @return number of generators sharing the segments of the persister
+     */
+    public static synchronized int getReferenceCount(SequenceObjectPersister persister) {
+        Entry entry = ENTRIES.get( persister );
+        return entry==null ? 0 : entry.references;
+    }
+
+    private static class Entry {
+        private final SequenceObjectCache cache;
+        private int references;
+
+        private Entry(SequenceObjectCache cache) {
+            this.cache = cache;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl;
+
+import com.realpaas.platform.key.KeyedSequenceGenerator;
+import com.realpaas.platform.key.SortableId;
+import com.realpaas.platform.key.SortableIdGenerator;
+
+/**
+ * <p>
+ * A generator of {@link SortableId}s whose node component is one value of a keyed sequence, it
+ * gets one more value only when its 48-bit counter is used up. Ids of one generator are
+ * strictly increasing even when the clock goes back.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * SortableIdGeneratorImpl generator = new SortableIdGeneratorImpl();
+ * generator.setKeyedSequenceGenerator( keyedSequenceGenerator );
+ * SortableId id = generator.nextId();
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SortableIdGeneratorImpl implements SortableIdGenerator {
+
+    public static final String DEFAULT_NODE_KEY = "sortable.node";
+    
+    private String nodeKey = DEFAULT_NODE_KEY;
+    
+    private KeyedSequenceGenerator keyedSequenceGenerator;
+    
+    /*
+     * state of the generator, guarded by this
+     */
+    private long node = -1;
+    private long lastTimestamp = 0;
+    private long counter = 0;
+    
+    public void setNodeKey(String nodeKey) {
+        this.nodeKey = nodeKey;
+    }
+
+    public void setKeyedSequenceGenerator(KeyedSequenceGenerator keyedSequenceGenerator) {
+        this.keyedSequenceGenerator = keyedSequenceGenerator;
+    }
+
+    @Override
+    public SortableId nextId() {
+        long timestamp = currentTimeMillis();
+        synchronized( this ){
+            /*
+             * the timestamp never goes back even if the clock does, so ids keep increasing
+             */
+            if( timestamp<lastTimestamp ){
+                timestamp = lastTimestamp;
+            }
+            lastTimestamp = timestamp;
+            
+            /*
+             * a new node component is taken when the counter is used up, it is greater than 
+             * the current one so that ids in the same millisecond keep increasing
+             */
+            if( node<0 || counter==SortableId.MAX_COUNTER ){
+                node = nextNode();
+                counter = 0;
+            }
+            else {
+                counter++;
+            }
+            return SortableId.of( timestamp, node, counter );
+        }
+    }
+    
+    /**
+     * Take a node component which no other generator sharing the registry has, from 
+     * the segment of the node key.
+     */
+    private long nextNode() {
+        long value = keyedSequenceGenerator.nextValue( nodeKey );
+        if( value<0 || value>SortableId.MAX_NODE ){
+            throw new IllegalStateException( "Node component [" + value + "] of \"" + nodeKey + "\" is out of range [0, " + SortableId.MAX_NODE + "]" );
+        }
+        return value;
+    }
+    
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.hibernate;
+
+import com.realpaas.platform.key.KeyedSequenceGenerator;
+
+/**
+ * <p>
+ * Register a {@link KeyedSequenceGenerator} for {@link KeyedSequenceIdentifierGenerator}s in
+ * a container, it should be initialized before the session factory.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="identifierGeneratorRegistrar" class="com.realpaas.platform.key.impl.hibernate.KeyedSequenceGeneratorRegistrar" init-method="init" destroy-method="destroy"&gt;
+ *     &lt;property name="keyedSequenceGenerator"&gt;&lt;ref local="keyedSequenceGenerator"/&gt;&lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class KeyedSequenceGeneratorRegistrar {
+
+    private String name = KeyedSequenceIdentifierGenerator.DEFAULT_GENERATOR;
+
+    private KeyedSequenceGenerator keyedSequenceGenerator;
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setKeyedSequenceGenerator(KeyedSequenceGenerator keyedSequenceGenerator) {
+        this.keyedSequenceGenerator = keyedSequenceGenerator;
+    }
+
+    public void init() {
+        if( keyedSequenceGenerator==null ){
+            throw new IllegalStateException( "Property \"keyedSequenceGenerator\" is needed to register \"" + name + "\"" );
+        }
+        KeyedSequenceIdentifierGenerator.register( name, keyedSequenceGenerator );
+    }
+
+    public void destroy() {
+        KeyedSequenceIdentifierGenerator.unregister( name );
+    }
+
+}
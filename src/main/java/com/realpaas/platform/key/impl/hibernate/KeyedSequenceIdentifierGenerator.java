@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.hibernate;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.type.Type;
+
+import com.realpaas.platform.key.KeyedSequenceGenerator;
+import com.realpaas.platform.key.SequenceRange;
+
+/**
+ * <p>
+ * A Hibernate identifier generator backed by a {@link KeyedSequenceGenerator}, each entity type
+ * maps to a sequence key. Identifiers are reserved in chunks of the JDBC batch size, so that
+ * a batch of inserts costs one reservation and the inserts keep being batched, which an
+ * IDENTITY column prevents.
+ * <p>The KeyedSequenceGenerator is looked up by name, it is registered by
+ * {@link KeyedSequenceGeneratorRegistrar} or {@link #register(String, KeyedSequenceGenerator)}.
+ * Identifiers of a chunk which is not used up are lost when the session factory is closed.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &#64;Id
+ * &#64;GeneratedValue(generator="genkey")
+ * &#64;GenericGenerator(name="genkey", strategy="com.realpaas.platform.key.impl.hibernate.KeyedSequenceIdentifierGenerator",
+ *     parameters={ &#64;Parameter(name="key", value="order") })
+ * public Long getId() {
+ *     return id;
+ * }
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Registry
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class KeyedSequenceIdentifierGenerator implements IdentifierGenerator, Configurable {
+
+    /**
+     * parameter of the name which the KeyedSequenceGenerator is registered with
+     */
+    public static final String GENERATOR = "generator";
+
+    /**
+     * parameter of the sequence key, the entity name is used if it is absent
+     */
+    public static final String KEY = "key";
+
+    /**
+     * parameter of the prefix which is prepended to the sequence key
+     */
+    public static final String KEY_PREFIX = "key_prefix";
+
+    /**
+     * parameter of the number of identifiers reserved at once, hibernate.jdbc.batch_size
+     * is used if it is absent
+     */
+    public static final String CHUNK_SIZE = "chunk_size";
+
+    public static final String DEFAULT_GENERATOR = "default";
+
+    private static final ConcurrentMap<String, KeyedSequenceGenerator> generators = new ConcurrentHashMap<String, KeyedSequenceGenerator>();
+
+    private String generatorName = DEFAULT_GENERATOR;
+
+    private String key;
+
+    private int chunkSize;
+
+    private Class<?> identifierClass;
+
+    /*
+     * the reserved chunk (next - 1, last], guarded by this
+     */
+    private long next = 1;
+
+    private long last = 0;
+
+    /**
+     * Register a KeyedSequenceGenerator for the identifier generators of the given name, 
+     * since identifier generators are instantiated by Hibernate rather than the container.
+     * @param name name of the generator
+     * @param keyedSequenceGenerator the generator
+     */
+    public static void register(String name, KeyedSequenceGenerator keyedSequenceGenerator) {
+        generators.put( name, keyedSequenceGenerator );
+    }
+
+    public static void unregister(String name) {
+        generators.remove( name );
+    }
+
+    @Override
+    public void configure(Type type, Properties params, Dialect dialect) throws MappingException {
+        identifierClass = type.getReturnedClass();
+        if( identifierClass!=Long.class && identifierClass!=Integer.class && identifierClass!=String.class ){
+            throw new MappingException( "Identifier type [" + identifierClass.getName() + "] is not supported, it should be Long, Integer or String" );
+        }
+
+        generatorName = params.getProperty( GENERATOR, DEFAULT_GENERATOR );
+        key = params.getProperty( KEY );
+        if( key==null ){
+            key = params.getProperty( ENTITY_NAME );
+        }
+        if( key==null ){
+            throw new MappingException( "Parameter \"" + KEY + "\" is needed to generate identifiers" );
+        }
+        String keyPrefix = params.getProperty( KEY_PREFIX );
+        if( keyPrefix!=null ){
+            key = keyPrefix + key;
+        }
+
+        String chunkSizeParam = params.getProperty( CHUNK_SIZE );
+        if( chunkSizeParam!=null ){
+            chunkSize = Integer.parseInt( chunkSizeParam );
+            if( chunkSize<1 ){
+                throw new MappingException( "Parameter \"" + CHUNK_SIZE + "\" [" + chunkSize + "] should be positive" );
+            }
+        }
+    }
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) throws HibernateException {
+        long value;
+        synchronized( this ){
+            if( next>last ){
+                SequenceRange range = keyedSequenceGenerator().reserve( key, chunkSizeOf( session ) );
+                next = range.getFirst();
+                last = range.getLast();
+            }
+            value = next++;
+        }
+        return toIdentifier( value );
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Reserve as many identifiers as a JDBC batch holds, so that one reservation serves 
+     * one batch of inserts.
+     */
+    private int chunkSizeOf(SessionImplementor session) {
+        if( chunkSize>0 ){
+            return chunkSize;
+        }
+        int batchSize = session.getFactory().getSettings().getJdbcBatchSize();
+        return batchSize>0 ? batchSize : 1;
+    }
+
+    private KeyedSequenceGenerator keyedSequenceGenerator() {
+        KeyedSequenceGenerator keyedSequenceGenerator = generators.get( generatorName );
+        if( keyedSequenceGenerator==null ){
+            throw new IdentifierGenerationException( "No KeyedSequenceGenerator is registered as \"" + generatorName + "\"" );
+        }
+        return keyedSequenceGenerator;
+    }
+
+    private Serializable toIdentifier(long value) {
+        if( identifierClass==Long.class ){
+            return Long.valueOf( value );
+        }
+        if( identifierClass==Integer.class ){
+            if( value>Integer.MAX_VALUE ){
+                throw new IdentifierGenerationException( "Identifier [" + value + "] of \"" + key + "\" overflows Integer" );
+            }
+            return Integer.valueOf( (int) value );
+        }
+        return String.valueOf( value );
+    }
+
+}
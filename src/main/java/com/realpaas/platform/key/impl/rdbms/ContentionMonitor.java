@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.rdbms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl.ConcurrencyStrategy;
+
+/**
+ * <p>
+ * Conflict rates of registry updates by key, and the concurrency strategy which each key is
+ * updated with. In adaptive mode a key is escalated from optimistic version checks to row locks
+ * and then to atomic increments as its conflict rate rises, and relaxed back when the rate falls
+ * well below the threshold. Locking strategies can't conflict, so one of some updates of them
+ * probes the optimistic way to keep sampling. Only keys which conflict are tracked, a key is
+ * dropped once it is back to optimistic updates with a rate well below the threshold, so the 
+ * tracked keys are bounded by the contended ones rather than by all keys ever updated.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * ContentionMonitor monitor = persister.getContentionMonitor();
+ * monitor.strategyOf( "order" );          // PESSIMISTIC
+ * monitor.getConflictCount( ConcurrencyStrategy.OPTIMISTIC );
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class ContentionMonitor {
+
+    public static final double DEFAULT_ESCALATE_CONFLICT_RATE = 0.2;
+
+    public static final double DEFAULT_ATOMIC_CONFLICT_RATE = 0.5;
+
+    public static final double DEFAULT_RELAX_RATIO = 0.25;
+
+    public static final int DEFAULT_WINDOW = 16;
+
+    public static final int DEFAULT_PROBE_INTERVAL = 8;
+
+    private static final ConcurrencyStrategy[] STRATEGIES = ConcurrencyStrategy.values();
+
+    private final ConcurrencyStrategy initialStrategy;
+
+    private final boolean adaptive;
+
+    private double escalateConflictRate = DEFAULT_ESCALATE_CONFLICT_RATE;
+
+    private double atomicConflictRate = DEFAULT_ATOMIC_CONFLICT_RATE;
+
+    private double relaxRatio = DEFAULT_RELAX_RATIO;
+
+    private int window = DEFAULT_WINDOW;
+
+    private int probeInterval = DEFAULT_PROBE_INTERVAL;
+
+    /**
+     * contention of the tracked keys, the others are updated with the initial strategy
+     */
+    private final ConcurrentMap<String, KeyContention> keys = new ConcurrentHashMap<String, KeyContention>();
+
+    /*
+     * updates, conflicts and nanoseconds of updates by strategy ordinal
+     */
+    private final AtomicLongArray updates = new AtomicLongArray( STRATEGIES.length );
+    private final AtomicLongArray conflicts = new AtomicLongArray( STRATEGIES.length );
+    private final AtomicLongArray nanos = new AtomicLongArray( STRATEGIES.length );
+
+    /**
+     * @param initialStrategy strategy of every key at first, the only one if not adaptive
+     * @param adaptive true to switch strategies of keys by their conflict rates
+     */
+    public ContentionMonitor(ConcurrencyStrategy initialStrategy, boolean adaptive) {
+        this.initialStrategy = initialStrategy;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @param escalateConflictRate conflict rate above which an optimistic key is locked pessimistically
+     */
+    public void setEscalateConflictRate(double escalateConflictRate) {
+        this.escalateConflictRate = escalateConflictRate;
+    }
+
+    /**
+     * @param atomicConflictRate conflict rate above which a pessimistic key is incremented atomically
+     */
+    public void setAtomicConflictRate(double atomicConflictRate) {
+        this.atomicConflictRate = atomicConflictRate;
+    }
+
+    /**
+     * A key goes back to the lighter strategy only when its conflict rate falls below the rate 
+     * of escalation times this ratio, so that it doesn't flap around one threshold.
+     * @param relaxRatio ratio in (0, 1)
+     */
+    public void setRelaxRatio(double relaxRatio) {
+        if( relaxRatio<=0 || relaxRatio>=1 ){
+            throw new IllegalArgumentException( "Relax ratio [" + relaxRatio + "] should be in (0, 1)" );
+        }
+        this.relaxRatio = relaxRatio;
+    }
+
+    /**
+     * @param window number of samples which the conflict rate averages, a key keeps its 
+     *        strategy for at least so many samples after a switch
+     */
+    public void setWindow(int window) {
+        if( window<1 ){
+            throw new IllegalArgumentException( "Window [" + window + "] should be positive" );
+        }
+        this.window = window;
+    }
+
+    /**
+     * @param probeInterval one of so many updates of a locking strategy tries the optimistic 
+     *        one to sample conflicts
+     */
+    public void setProbeInterval(int probeInterval) {
+        if( probeInterval<1 ){
+            throw new IllegalArgumentException( "Probe interval [" + probeInterval + "] should be positive" );
+        }
+        this.probeInterval = probeInterval;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return the strategy which the key is updated with
+     */
+    public ConcurrencyStrategy strategyOf(String storedKey) {
+        if( !adaptive ){
+            return initialStrategy;
+        }
+        KeyContention contention = keys.get( storedKey );
+        return contention==null ? initialStrategy : contention.strategy;
+    }
+
+    /**
+     * Check if the next update of the key under a locking strategy should try the optimistic 
+     * one first, so that the conflict rate keeps being sampled.
+     */
+    public boolean shouldProbe(String storedKey) {
+        if( !adaptive ){
+            return false;
+        }
+        KeyContention contention = contentionOf( storedKey );
+        synchronized( contention ){
+            if( contention.strategy==ConcurrencyStrategy.OPTIMISTIC ){
+                return false;
+            }
+            contention.updatesSinceProbe++;
+            if( contention.updatesSinceProbe<probeInterval ){
+                return false;
+            }
+            contention.updatesSinceProbe = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Record a conflict of an optimistic update, the update fails or falls back afterwards.
+     * @param strategy strategy of the key, a locking one if the update was a probe
+     */
+    public void recordConflict(String storedKey, ConcurrencyStrategy strategy) {
+        conflicts.incrementAndGet( strategy.ordinal() );
+        sample( storedKey, 1.0 );
+    }
+
+    /**
+     * Record a successful update of the key with the given strategy.
+     * @param optimistic true if the update was optimistic, so it is a sample of no conflict
+     */
+    public void recordUpdate(String storedKey, ConcurrencyStrategy strategy, boolean optimistic, long elapsedNanos) {
+        updates.incrementAndGet( strategy.ordinal() );
+        nanos.addAndGet( strategy.ordinal(), elapsedNanos );
+        if( optimistic ){
+            sample( storedKey, 0.0 );
+        }
+    }
+
+    private void sample(String storedKey, double conflict) {
+        if( !adaptive ){
+            return;
+        }
+        KeyContention contention;
+        if( conflict==0.0 && initialStrategy==ConcurrencyStrategy.OPTIMISTIC ){
+            /*
+             * an untracked key has no conflict yet, and a calm sample doesn't change it
+             */
+            contention = keys.get( storedKey );
+            if( contention==null ){
+                return;
+            }
+        }
+        else {
+            contention = contentionOf( storedKey );
+        }
+        synchronized( contention ){
+            contention.conflictRate += (conflict - contention.conflictRate) / window;
+            contention.samplesSinceSwitch++;
+            if( contention.samplesSinceSwitch<window ){
+                return;
+            }
+            
+            /*
+             * escalate above a threshold, relax well below it
+             */
+            ConcurrencyStrategy strategy = contention.strategy;
+            double rate = contention.conflictRate;
+            if( strategy==ConcurrencyStrategy.OPTIMISTIC && rate>escalateConflictRate ){
+                strategy = ConcurrencyStrategy.PESSIMISTIC;
+            }
+            else if( strategy==ConcurrencyStrategy.PESSIMISTIC && rate>atomicConflictRate ){
+                strategy = ConcurrencyStrategy.ATOMIC;
+            }
+            else if( strategy==ConcurrencyStrategy.PESSIMISTIC && rate<escalateConflictRate * relaxRatio ){
+                strategy = ConcurrencyStrategy.OPTIMISTIC;
+            }
+            else if( strategy==ConcurrencyStrategy.ATOMIC && rate<atomicConflictRate * relaxRatio ){
+                strategy = ConcurrencyStrategy.PESSIMISTIC;
+            }
+            if( strategy!=contention.strategy ){
+                contention.strategy = strategy;
+                contention.samplesSinceSwitch = 0;
+                contention.updatesSinceProbe = 0;
+            }
+            
+            /*
+             * forget a calm optimistic key, it starts over from the initial strategy if it 
+             * conflicts again
+             */
+            else if( strategy==ConcurrencyStrategy.OPTIMISTIC && rate<escalateConflictRate * relaxRatio ){
+                keys.remove( storedKey, contention );
+            }
+        }
+    }
+
+    private KeyContention contentionOf(String storedKey) {
+        KeyContention contention = keys.get( storedKey );
+        if( contention==null ){
+            contention = new KeyContention( initialStrategy );
+            KeyContention previous = keys.putIfAbsent( storedKey, contention );
+            if( previous!=null ){
+                contention = previous;
+            }
+        }
+        return contention;
+    }
+
+    public long getUpdateCount(ConcurrencyStrategy strategy) {
+        return updates.get( strategy.ordinal() );
+    }
+
+    public long getConflictCount(ConcurrencyStrategy strategy) {
+        return conflicts.get( strategy.ordinal() );
+    }
+
+    /**
+     * @return updates per second of time spent in updates with the strategy, 0 if there is none
+     */
+    public double getThroughput(ConcurrencyStrategy strategy) {
+        long spent = nanos.get( strategy.ordinal() );
+        return spent==0 ? 0.0 : updates.get( strategy.ordinal() ) * 1000000000.0 / spent;
+    }
+
+    /**
+     * @return the number of tracked keys
+     */
+    public int getTrackedKeyCount() {
+        return keys.size();
+    }
+
+    /**
+     * @return the number of tracked keys which are updated with the strategy, the untracked 
+     *         ones are updated with the initial strategy
+     */
+    public int getKeyCount(ConcurrencyStrategy strategy) {
+        int count = 0;
+        for( KeyContention contention : keys.values() ){
+            if( contention.strategy==strategy ){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( 256 );
+        sb.append( "ContentionMonitor [ adaptive=" ).append( adaptive );
+        for( ConcurrencyStrategy strategy : STRATEGIES ){
+            sb.append( ", " ).append( strategy ).append( "={ keys=" ).append( adaptive ? getKeyCount( strategy ) : 0 );
+            sb.append( ", updates=" ).append( getUpdateCount( strategy ) );
+            sb.append( ", conflicts=" ).append( getConflictCount( strategy ) );
+            sb.append( ", throughput=" ).append( (long) getThroughput( strategy ) ).append( "/s }" );
+        }
+        return sb.append( " ]" ).toString();
+    }
+
+    /**
+     * Contention state of a key, guarded by itself.
+     */
+    private static final class KeyContention {
+        private volatile ConcurrencyStrategy strategy;
+
+        private double conflictRate = 0.0;
+
+        private int samplesSinceSwitch = 0;
+
+        private int updatesSinceProbe = 0;
+
+        KeyContention(ConcurrencyStrategy strategy) {
+            this.strategy = strategy;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.rdbms;
+
+import com.realpaas.platform.key.SequenceGeneratorException;
+
+/**
+ * <p>
+ * Thrown when a sequence is accessed in a registry which it has been moved away from, e.g. by
+ * the rebalancing of {@link ShardedSequenceObjectPersister}.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>IMMUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SequenceMovedException extends SequenceGeneratorException{
+
+    private static final long serialVersionUID = -2815206412958337740L;
+    
+    private final String storedKey;
+    
+    private final long fencedValue;
+
+    public SequenceMovedException(String storedKey, long fencedValue) {
+        super( "Sequence Entry with key \"" + storedKey + "\" has been moved at " + fencedValue );
+        this.storedKey = storedKey;
+        this.fencedValue = fencedValue;
+    }
+
+    public String getStoredKey() {
+        return storedKey;
+    }
+
+    /**
+     * @return the value at which the sequence is fenced, it continues from it in another registry
+     */
+    public long getFencedValue() {
+        return fencedValue;
+    }
+}
@@ -8,6 +8,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
@@ -15,6 +21,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.realpaas.platform.key.SequenceGeneratorException;
+import com.realpaas.platform.key.impl.SegmentConfig;
 import com.realpaas.platform.key.impl.SequenceObject;
 import com.realpaas.platform.key.impl.SequenceObjectPersister;
 
@@ -59,20 +66,95 @@ import com.realpaas.platform.key.impl.SequenceObjectPersister;
  * </dl>
  * @author	henryleu Email/MSN: hongli_leu@126.com
  */
-public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
+public class SequenceObjectPersisterImpl implements SequenceObjectPersister, SequenceObjectPersisterImplMBean{
 
     private static final String SEQUENCE_TABLE_NAME = "PLF_SEQUENCE_REGISTRY";
     private static final String SEQUENCE_NAME = "SEQ_NAME";
     private static final String SEQUENCE_VALUE = "SEQ_VALUE";
     private static final String SEQUENCE_VERSION = "SEQ_VERSION";
+    private static final String SEQUENCE_INCREMENT = "SEQ_INCREMENT";
+    private static final String SEQUENCE_PREFETCH = "SEQ_PREFETCH";
+    private static final String FREE_RANGE_TABLE_NAME = "PLF_SEQUENCE_FREE_RANGE";
+    private static final String RANGE_START = "RANGE_START";
+    private static final String RANGE_END = "RANGE_END";
+    
+    /**
+     * version of a registry row whose sequence has been moved to another registry
+     */
+    public static final long MOVED_VERSION = -1;
+    
+    /**
+     * attempts of a provisioning chunk, it is retried when a key of it is created by another node
+     */
+    private static final int PROVISION_ATTEMPTS = 3;
+    
+    /**
+     * SQL dialect of the statement which creates or updates a registry row atomically
+     */
+    public static enum UpsertDialect {
+        /**
+         * not supported, a row is looked up before it is created or updated, for any other 
+         * database such as Oracle, SQL Server and DB2
+         */
+        NONE,
+        /**
+         * INSERT ... ON DUPLICATE KEY UPDATE, the row is read back in the same transaction, 
+         * for MySQL and MariaDB (and H2 in MySQL mode)
+         */
+        MYSQL,
+        /**
+         * INSERT ... ON CONFLICT ... DO UPDATE ... RETURNING, in one statement, for 
+         * PostgreSQL 9.5 and later
+         */
+        POSTGRESQL
+    }
+    
+    /**
+     * Concurrency control of the update which advances a registry row by one segment
+     */
+    public static enum ConcurrencyStrategy {
+        /**
+         * the row is read then updated only if its version is unchanged, it fails on a conflict
+         */
+        OPTIMISTIC,
+        /**
+         * the row is read with SELECT ... FOR UPDATE, so concurrent updates wait for each other
+         */
+        PESSIMISTIC,
+        /**
+         * the row is incremented in one UPDATE then read back in the same transaction
+         */
+        ATOMIC
+    }
     
     private DataSource dataSource;
     private String sequenceSchemaName = "";
     private String sequenceTableName = SEQUENCE_TABLE_NAME;
+    private String freeRangeTableName = FREE_RANGE_TABLE_NAME;
+    private boolean reuseFreeRanges = false;
+    private boolean keyConfigEnabled = false;
+    private UpsertDialect upsertDialect = UpsertDialect.NONE;
+    private int queryTimeout = 0;
+    private ContentionMonitor contentionMonitor = new ContentionMonitor( ConcurrencyStrategy.OPTIMISTIC, false );
+    private int provisionBatchSize = 500;
+    private int provisionChunkSize = 5000;
     
     private String insertSql;
     private String updateSql;
     private String selectSql;
+    private String selectForUpdateSql;
+    private String selectKeySql;
+    private String incrementSql;
+    private String updateConfigSql;
+    private String selectKeysSql;
+    private String compareAndSetSql;
+    private String unfenceSql;
+    private String upsertSql;
+    private String insertFreeRangeSql;
+    private String selectFreeRangeSql;
+    private String deleteFreeRangeSql;
+    private String selectExistingKeysSql;
+    private String bulkInsertSql;
     
     private final Log logger = LogFactory.getLog(getClass());
 
@@ -82,7 +164,20 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
     public void init(){
         insertSql = makeInsertSql();
         updateSql = makeUpdateSql();
-        selectSql = makeSelectSql();        
+        selectSql = makeSelectSql( false );        
+        selectForUpdateSql = selectSql + "FOR UPDATE";
+        selectKeySql = makeSelectSql( true );
+        incrementSql = makeIncrementSql();
+        updateConfigSql = makeUpdateConfigSql();
+        selectKeysSql = makeSelectKeysSql();
+        compareAndSetSql = makeCompareAndSetSql();
+        unfenceSql = makeUnfenceSql();
+        upsertSql = makeUpsertSql();
+        insertFreeRangeSql = makeInsertFreeRangeSql();
+        selectFreeRangeSql = makeSelectFreeRangeSql();
+        deleteFreeRangeSql = makeDeleteFreeRangeSql();
+        selectExistingKeysSql = makeSelectExistingKeysSql( provisionBatchSize );
+        bulkInsertSql = makeBulkInsertSql( provisionBatchSize );
     }
     
     @Override
@@ -123,11 +218,13 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
             /*
              * Execute data operations
              */
-            preparedStatement = connection.prepareStatement(selectSql);
+            preparedStatement = prepareStatement( connection, selectSql );
             preparedStatement.setString(1, storedKey);
             rs = preparedStatement.executeQuery();
             if(rs.next()) {
+                checkNotMoved( storedKey, rs );
                 so = new SequenceObject( storedKey, rs.getLong(1), rs.getLong(1) );
+                configure( so, rs );
             }
             else {
                 so = null;
@@ -208,7 +305,7 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
             /*
              * Execute data operations
              */
-            preparedStatement = connection.prepareStatement( insertSql );
+            preparedStatement = prepareStatement( connection, insertSql );
             preparedStatement.setString(1, storedKey);
             preparedStatement.setLong(2, value);
             preparedStatement.setLong(3, 0);
@@ -256,9 +353,38 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         }
     }
 
+    /**
+     * Create registry rows of many keys with multi-row inserts, in one transaction per chunk 
+     * of {@link #getProvisionChunkSize()} keys. The existing keys of a chunk are looked up 
+     * first and skipped. A chunk is retried if a key of it is created by another node meanwhile.
+     */
     @Override
-    public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
-        SequenceObject so = null;
+    public Set<String> createSequenceObjects(Map<String, Long> values) {
+        Set<String> created = new HashSet<String>();
+        List<String> storedKeys = new ArrayList<String>( values.keySet() );
+        for( int from=0; from<storedKeys.size(); from+=provisionChunkSize ){
+            List<String> chunk = storedKeys.subList( from, Math.min( from + provisionChunkSize, storedKeys.size() ) );
+            for( int attempt=1; ; attempt++ ){
+                try {
+                    created.addAll( createChunk( chunk, values ) );
+                    break;
+                }
+                catch (SequenceGeneratorException e) {
+                    if( attempt>=PROVISION_ATTEMPTS ){
+                        throw e;
+                    }
+                    logger.warn( "Retry to create a chunk of " + chunk.size() + " Sequence Entries: " + e.getMessage() );
+                }
+            }
+        }
+        if( !isDisableLogging() && logger.isInfoEnabled() ) {
+            logger.info( created.size() + " of " + values.size() + " Sequence Entries are created" );
+        }
+        return created;
+    }
+
+    private List<String> createChunk(List<String> chunk, Map<String, Long> values) {
+        List<String> missingKeys = new ArrayList<String>( chunk.size() );
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet rs = null;
@@ -278,6 +404,121 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
             throw new SequenceGeneratorException( strError, e );
         }
         
+        try {
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Look up the existing keys batch by batch
+             */
+            Set<String> existingKeys = new HashSet<String>();
+            for( int from=0; from<chunk.size(); from+=provisionBatchSize ){
+                List<String> batch = chunk.subList( from, Math.min( from + provisionBatchSize, chunk.size() ) );
+                String sql = batch.size()==provisionBatchSize ? selectExistingKeysSql : makeSelectExistingKeysSql( batch.size() );
+                if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                    logger.debug(sql);
+                }
+                preparedStatement = prepareStatement( connection, sql );
+                int index = 1;
+                for( String storedKey : batch ){
+                    preparedStatement.setString(index++, storedKey);
+                }
+                rs = preparedStatement.executeQuery();
+                while(rs.next()) {
+                    existingKeys.add( rs.getString(1) );
+                }
+                close(null, preparedStatement, rs);
+                rs = null;
+                preparedStatement = null;
+            }
+            for( String storedKey : chunk ){
+                if( !existingKeys.contains( storedKey ) ){
+                    missingKeys.add( storedKey );
+                }
+            }
+            
+            /*
+             * Insert the missing keys batch by batch
+             */
+            for( int from=0; from<missingKeys.size(); from+=provisionBatchSize ){
+                List<String> batch = missingKeys.subList( from, Math.min( from + provisionBatchSize, missingKeys.size() ) );
+                String sql = batch.size()==provisionBatchSize ? bulkInsertSql : makeBulkInsertSql( batch.size() );
+                if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                    logger.debug(sql);
+                }
+                preparedStatement = prepareStatement( connection, sql );
+                int index = 1;
+                for( String storedKey : batch ){
+                    preparedStatement.setString(index++, storedKey);
+                    preparedStatement.setLong(index++, values.get( storedKey ));
+                }
+                int count = preparedStatement.executeUpdate();
+                if(count != batch.size()) {
+                    throw new SQLException("Fail to insert " + batch.size() + " Sequence Entries, " + count + " are inserted");
+                }
+                close(null, preparedStatement, null);
+                preparedStatement = null;
+            }
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to create a chunk of " + chunk.size() + " Sequence Entries: ";
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                strError = strError + e1.getMessage();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            strError = strError + e.getMessage();
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, rs);
+        }
+        
+        return missingKeys;
+    }
+
+    @Override
+    public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        SequenceObject so = null;
+        Connection connection = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
         try {
             /*
              * Prepare transaction
@@ -288,17 +529,112 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
             changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
 
             /*
-             * Execute data operations
+             * Claim a free range released by any node before advancing the sequence
+             */
+            if( isReuseFreeRanges() ) {
+                long[] range = claimFreeRange( connection, storedKey );
+                if( range!=null ) {
+                    connection.commit();
+                    cachedSo.setSegment( range[0], range[1] );
+                    return;
+                }
+            }
+
+            /*
+             * Advance the sequence with the strategy of the key, a probe of a locking strategy 
+             * tries the optimistic way first and falls back to the strategy on a conflict
+             */
+            ConcurrencyStrategy strategy = contentionMonitor.strategyOf( storedKey );
+            boolean optimistic = strategy==ConcurrencyStrategy.OPTIMISTIC || contentionMonitor.shouldProbe( storedKey );
+            long start = System.nanoTime();
+            if( optimistic ) {
+                so = selectAndStep( connection, storedKey, cachedSo, false );
+                if( so==null ) {
+                    contentionMonitor.recordConflict( storedKey, strategy );
+                    if( strategy==ConcurrencyStrategy.OPTIMISTIC ) {
+                        String strError = "Fail to update \"Sequence Entry(" + storedKey + ")\" for a concurrent update";
+                        logger.error( strError );
+                        throw new SequenceGeneratorException( strError );
+                    }
+                    optimistic = false;
+                }
+            }
+            if( so==null ) {
+                so = strategy==ConcurrencyStrategy.ATOMIC ? stepAtomically( connection, storedKey, cachedSo ) : selectAndStep( connection, storedKey, cachedSo, true );
+                if( so==null ) {
+                    String strError = "Fail to update locked \"Sequence Entry(" + storedKey + ")\"";
+                    logger.error( strError );
+                    throw new SequenceGeneratorException( strError );
+                }
+            }
+            contentionMonitor.recordUpdate( storedKey, optimistic ? ConcurrencyStrategy.OPTIMISTIC : strategy, optimistic, System.nanoTime() - start );
+
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to update \"Sequence Entry(");
+            String strError = null;
+            sbError.append(storedKey).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
              */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, null, null);
+        }
+        
+        /*
+         * Sync SequenceObject between DB and cache
+         */
+        cachedSo.setSegment( so.getPointer(), so.getValve() );
+        cachedSo.configure( so.getIncrement(), so.getPrefetch() );
+    }
+
+    /**
+     * Select the registry row of the key, locking it if forUpdate, and advance it by one segment 
+     * if its version is unchanged.
+     * @return the SO of the new segment, or null if the row has been updated concurrently
+     */
+    private SequenceObject selectAndStep(Connection connection, String storedKey, SequenceObject cachedSo, boolean forUpdate) throws SQLException {
+        String sql = forUpdate ? selectForUpdateSql : selectSql;
+        SequenceObject so = null;
+        long version = 0;
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        try {
             if( !isDisableLogging() && logger.isDebugEnabled() ) {
-                logger.debug(selectSql);
+                logger.debug(sql);
             }
-            preparedStatement = connection.prepareStatement(selectSql);
+            preparedStatement = prepareStatement( connection, sql );
             preparedStatement.setString(1, storedKey);
             rs = preparedStatement.executeQuery();
-            final long version;
             if(rs.next()) {
-                so = new SequenceObject( storedKey, rs.getLong(1), rs.getLong(1) ); //TODO: set increment value loaded from storage
+                checkNotMoved( storedKey, rs );
+                so = new SequenceObject( storedKey, rs.getLong(1), rs.getLong(1), cachedSo.getIncrement() );
+                so.configure( cachedSo.getIncrement(), cachedSo.getPrefetch() );
+                configure( so, rs );
                 version = rs.getLong(2);
             }
             else {
@@ -306,33 +642,161 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
                 logger.error(strError);
                 throw new SequenceGeneratorException( strError );
             }
-            
+        }
+        finally {
+            close(null, preparedStatement, rs);
+        }
+        
+        try {
             if( !isDisableLogging() && logger.isDebugEnabled() ) {
                 logger.debug(updateSql);
             }
-            
             long valve = so.step( so.getIncrement() ); //TODO: remove the parameter instead of calculating it in SequenceObject internally
-            preparedStatement = connection.prepareStatement(updateSql);
+            preparedStatement = prepareStatement( connection, updateSql );
             preparedStatement.setLong(1, valve);
             preparedStatement.setLong(2, version+1);
             preparedStatement.setString(3, storedKey);
             preparedStatement.setLong(4, version);
-            
-            int count = preparedStatement.executeUpdate();
-            if(count != 1) {
-                StringBuilder sbError = new StringBuilder("Fail to update \"Sequence Entry(");
-                sbError.append(storedKey).append(", ").append(valve).append(")");
-                logger.error( sbError.toString() );
-                throw new SequenceGeneratorException( sbError.toString() );
+            return preparedStatement.executeUpdate()==1 ? so : null;
+        }
+        finally {
+            close(null, preparedStatement, null);
+        }
+    }
+
+    /**
+     * Increment the registry row of the key by one segment in one statement and read it back, 
+     * the row stays locked by the increment until the transaction ends.
+     * @return the SO of the new segment
+     */
+    private SequenceObject stepAtomically(Connection connection, String storedKey, SequenceObject cachedSo) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        int count = 0;
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(incrementSql);
+            }
+            preparedStatement = prepareStatement( connection, incrementSql );
+            preparedStatement.setInt(1, cachedSo.getIncrement());
+            preparedStatement.setString(2, storedKey);
+            preparedStatement.setLong(3, MOVED_VERSION);
+            count = preparedStatement.executeUpdate();
+        }
+        finally {
+            close(null, preparedStatement, null);
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(selectKeySql);
             }
+            preparedStatement = prepareStatement( connection, selectKeySql );
+            preparedStatement.setString(1, storedKey);
+            rs = preparedStatement.executeQuery();
+            if( !rs.next() ) {
+                String strError = "Fail to find Sequence Entry with key \"" + storedKey + "\" in DB";
+                logger.error(strError);
+                throw new SequenceGeneratorException( strError );
+            }
+            checkNotMoved( storedKey, rs );
+            if( count!=1 ) {
+                return null;
+            }
+            long valve = rs.getLong(1);
+            SequenceObject so = new SequenceObject( storedKey, valve, valve, cachedSo.getIncrement() );
+            so.configure( cachedSo.getIncrement(), cachedSo.getPrefetch() );
+            configure( so, rs );
+            so.setPointer( valve - so.getIncrement() );
+            return so;
+        }
+        finally {
+            close(null, preparedStatement, rs);
+        }
+    }
+
+    @Override
+    public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        if( upsertDialect==UpsertDialect.NONE ) {
+            return false;
+        }
+        
+        SequenceObject so = null;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
 
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(upsertSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations: the row is inserted with the valve of the first segment, 
+             * or advanced by one segment if it exists, and a moved row is left as it is. The 
+             * row stays locked until commit, so reading it back sees this reservation.
+             */
+            int increment = cachedSo.getIncrement();
+            preparedStatement = prepareStatement( connection, upsertSql );
+            preparedStatement.setString(1, storedKey);
+            preparedStatement.setLong(2, cachedSo.getValve());
+            preparedStatement.setLong(3, increment);
+            if( upsertDialect==UpsertDialect.POSTGRESQL ) {
+                rs = preparedStatement.executeQuery();
+            }
+            else {
+                preparedStatement.executeUpdate();
+                close(null, preparedStatement, null);
+                if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                    logger.debug(selectSql);
+                }
+                preparedStatement = prepareStatement( connection, selectSql );
+                preparedStatement.setString(1, storedKey);
+                rs = preparedStatement.executeQuery();
+            }
+            if(rs.next()) {
+                checkNotMoved( storedKey, rs );
+                long valve = rs.getLong(1);
+                so = new SequenceObject( storedKey, valve - increment, valve, increment );
+                so.configure( increment, cachedSo.getPrefetch() );
+                configure( so, rs );
+            }
+            else {
+                String strError = "Fail to find Sequence Entry with key \"" + storedKey + "\" in DB";
+                logger.error(strError);
+                throw new SequenceGeneratorException( strError );
+            }
+            
             /*
              * Commit transaction
              */
             connection.commit();
         }
         catch (SQLException e) {
-            StringBuilder sbError = new StringBuilder("Fail to update \"Sequence Entry(");
+            StringBuilder sbError = new StringBuilder("Fail to create or update \"Sequence Entry(");
             String strError = null;
             sbError.append(storedKey).append("): ");
             
@@ -365,34 +829,891 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         /*
          * Sync SequenceObject between DB and cache
          */
-        cachedSo.setPointer( so.getPointer() );
-        cachedSo.setValve( so.getValve() );
-    }
-
-    public DataSource getDataSource() {
-        return dataSource;
-    }
-    
-    public void setDataSource(DataSource dataSource) {
-        this.dataSource = dataSource;
-    }
-    
-    public String getSequenceSchemaName() {
-        return sequenceSchemaName;
-    }
-
-    public void setSequenceSchemaName(String sequenceSchemaName) {
-        this.sequenceSchemaName = sequenceSchemaName;
+        cachedSo.setSegment( so.getPointer(), so.getValve() );
+        cachedSo.configure( so.getIncrement(), so.getPrefetch() );
+        return true;
     }
 
-    public String getSequenceTableName() {
-        return sequenceTableName;
-    }
+    @Override
+    public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch) {
+        if( !isKeyConfigEnabled() ) {
+            throw new SequenceGeneratorException( "Segment configuration in sequence registry is not enabled" );
+        }
+        
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(updateConfigSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations
+             */
+            preparedStatement = prepareStatement( connection, updateConfigSql );
+            if( increment==null ) {
+                preparedStatement.setNull(1, Types.INTEGER);
+            }
+            else {
+                preparedStatement.setInt(1, increment);
+            }
+            if( prefetch==null ) {
+                preparedStatement.setNull(2, Types.INTEGER);
+            }
+            else {
+                preparedStatement.setInt(2, prefetch);
+            }
+            preparedStatement.setString(3, storedKey);
+            int count = preparedStatement.executeUpdate();
+            if(count != 1) {
+                StringBuilder sbError = new StringBuilder("Fail to find Sequence Entry with key \"");
+                sbError.append(storedKey).append("\" in DB");
+                throw new SequenceGeneratorException(sbError.toString());
+            }
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to update \"Sequence Config(");
+            String strError = null;
+            sbError.append(storedKey).append(", ").append(increment).append(", ").append(prefetch).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, null);
+        }
+    }
+
+    /**
+     * @return configuration of the key's row, null if key config is not enabled or the row 
+     *         doesn't exist
+     */
+    @Override
+    public SegmentConfig loadSegmentConfig(String storedKey) {
+        if( !isKeyConfigEnabled() ) {
+            return null;
+        }
+        
+        SegmentConfig config = null;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+        
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(selectKeySql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, true, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations: a column is inherited where configure(SequenceObject, ResultSet) 
+             * would keep the SO's one
+             */
+            preparedStatement = prepareStatement( connection, selectKeySql );
+            preparedStatement.setString(1, storedKey);
+            rs = preparedStatement.executeQuery();
+            if(rs.next()) {
+                config = new SegmentConfig();
+                int increment = rs.getInt(3);
+                if( !rs.wasNull() && increment>=SegmentConfig.MIN_INCREMENT ) {
+                    config.setIncrement( increment );
+                }
+                int prefetch = rs.getInt(4);
+                if( !rs.wasNull() && prefetch>=0 ) {
+                    config.setPrefetch( prefetch );
+                }
+            }
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to get segment config of \"Sequence Entry(");
+            String strError = null;
+            sbError.append(storedKey).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, rs);
+        }
+        
+        return config;
+    }
+    
+    /**
+     * Fence the sequence of the key before it is moved to another registry: the row is marked
+     * as moved with the optimistic version check, so any refill which reads the row before 
+     * fails to update it, and any refill after gets a {@link SequenceMovedException}. No value
+     * above the returned one has been reserved from this registry.
+     * @param storedKey sequence key in storage
+     * @return the fenced value, the sequence continues from it in the other registry
+     * @throws SequenceGeneratorException if the row is updated by a refill meanwhile, it can be retried
+     */
+    public long fenceSequenceObject(String storedKey) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+        long value;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+
+            /*
+             * Execute data operations
+             */
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(selectSql);
+            }
+            preparedStatement = prepareStatement( connection, selectSql );
+            preparedStatement.setString(1, storedKey);
+            rs = preparedStatement.executeQuery();
+            final long version;
+            if(rs.next()) {
+                checkNotMoved( storedKey, rs );
+                value = rs.getLong(1);
+                version = rs.getLong(2);
+            }
+            else {
+                String strError = "Fail to find Sequence Entry with key \"" + storedKey + "\" in DB";
+                logger.error(strError);
+                throw new SequenceGeneratorException( strError );
+            }
+            close(null, preparedStatement, rs);
+            rs = null;
+            
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(updateSql);
+            }
+            preparedStatement = prepareStatement( connection, updateSql );
+            preparedStatement.setLong(1, value);
+            preparedStatement.setLong(2, MOVED_VERSION);
+            preparedStatement.setString(3, storedKey);
+            preparedStatement.setLong(4, version);
+            
+            int count = preparedStatement.executeUpdate();
+            if(count != 1) {
+                StringBuilder sbError = new StringBuilder("Fail to fence \"Sequence Entry(");
+                sbError.append(storedKey).append(", ").append(value).append(")");
+                logger.warn( sbError.toString() );
+                throw new SequenceGeneratorException( sbError.toString() );
+            }
+
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to fence \"Sequence Entry(");
+            String strError = null;
+            sbError.append(storedKey).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, rs);
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Set the value of the sequence if it is the expected one and the sequence has not been 
+     * moved, in one statement.
+     * @param storedKey sequence key in storage
+     * @param expect expected value
+     * @param update new value
+     * @return true if it is set
+     */
+    public boolean compareAndSetValue(String storedKey, long expect, long update) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+        int count;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(compareAndSetSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations
+             */
+            preparedStatement = prepareStatement( connection, compareAndSetSql );
+            preparedStatement.setLong(1, update);
+            preparedStatement.setString(2, storedKey);
+            preparedStatement.setLong(3, expect);
+            preparedStatement.setLong(4, MOVED_VERSION);
+            count = preparedStatement.executeUpdate();
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to set \"Sequence Entry(");
+            String strError = null;
+            sbError.append(storedKey).append(", ").append(expect).append(", ").append(update).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, null);
+        }
+        
+        return count==1;
+    }
+
+    /**
+     * Take the fence of the sequence back when it is moved back to this registry, the row is 
+     * marked as not moved and its value is set if it is still the fenced one, in one statement.
+     * The version is set above the value, so no refill which read the row before it was fenced 
+     * can update it: every update raises the version by one and the value by at least one.
+     * @param storedKey sequence key in storage
+     * @param expect the fenced value
+     * @param update value the sequence continues from, not below the fenced one
+     * @return true if it is un-fenced, false if the row is not fenced with the expected value
+     */
+    public boolean unfenceSequenceObject(String storedKey, long expect, long update) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+        int count;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(unfenceSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations
+             */
+            preparedStatement = prepareStatement( connection, unfenceSql );
+            preparedStatement.setLong(1, update);
+            preparedStatement.setLong(2, update + 1);
+            preparedStatement.setString(3, storedKey);
+            preparedStatement.setLong(4, expect);
+            preparedStatement.setLong(5, MOVED_VERSION);
+            count = preparedStatement.executeUpdate();
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to un-fence \"Sequence Entry(");
+            String strError = null;
+            sbError.append(storedKey).append(", ").append(expect).append(", ").append(update).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, null);
+        }
+        
+        return count==1;
+    }
+    
+    /**
+     * Load keys of all sequences in this registry which have not been moved.
+     * @return sequence keys
+     */
+    public List<String> loadSequenceKeys() {
+        List<String> keys = new ArrayList<String>();
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet rs = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+        
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(selectKeysSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, true, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations
+             */
+            preparedStatement = prepareStatement( connection, selectKeysSql );
+            preparedStatement.setLong(1, MOVED_VERSION);
+            rs = preparedStatement.executeQuery();
+            while(rs.next()) {
+                keys.add( rs.getString(1) );
+            }
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get keys of Sequence Entries: ";
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                strError = strError + e1.getMessage();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            strError = strError + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, rs);
+        }
+        
+        return keys;
+    }
+    
+    private void checkNotMoved(String storedKey, ResultSet rs) throws SQLException {
+        if( rs.getLong(2)==MOVED_VERSION ) {
+            throw new SequenceMovedException( storedKey, rs.getLong(1) );
+        }
+    }
+    
+    /**
+     * Override the segment configuration of the SO by the one in the registry row, a null column 
+     * keeps the SO's one.
+     */
+    private void configure(SequenceObject so, ResultSet rs) throws SQLException {
+        if( !isKeyConfigEnabled() ) {
+            return;
+        }
+        int increment = rs.getInt(3);
+        if( rs.wasNull() || increment<SegmentConfig.MIN_INCREMENT ) {
+            increment = so.getIncrement();
+        }
+        int prefetch = rs.getInt(4);
+        if( rs.wasNull() || prefetch<0 ) {
+            prefetch = so.getPrefetch();
+        }
+        so.configure( increment, prefetch );
+    }
+
+    @Override
+    public void releaseRange(String storedKey, long pointer, long valve) {
+        if( !isReuseFreeRanges() || pointer>=valve ) {
+            return;
+        }
+        
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+
+        /*
+         * Setup connection
+         */
+        try {
+            connection = getDataSource().getConnection();
+        }
+        catch (SQLException e) {
+            String strError = "Fail to get DB Connection : " + e.getMessage();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException( strError, e );
+        }
+        
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(insertFreeRangeSql);
+            }
+            
+            /*
+             * Prepare transaction
+             */
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            transactionIsolationLevel = connection.getTransactionIsolation();
+            changeTransactionSettings(connection, false, false, Connection.TRANSACTION_READ_COMMITTED);
+            
+            /*
+             * Execute data operations
+             */
+            preparedStatement = prepareStatement( connection, insertFreeRangeSql );
+            preparedStatement.setString(1, storedKey);
+            preparedStatement.setLong(2, pointer);
+            preparedStatement.setLong(3, valve);
+            preparedStatement.executeUpdate();
+            
+            /*
+             * Commit transaction
+             */
+            connection.commit();
+        }
+        catch (SQLException e) {
+            StringBuilder sbError = new StringBuilder("Fail to release \"Sequence Range(");
+            String strError = null;
+            sbError.append(storedKey).append(", ").append(pointer).append(", ").append(valve).append("): ");
+            
+            /*
+             * Rollback transaction
+             */
+            try {
+                connection.rollback();
+            }
+            catch (SQLException e1) {
+                sbError.append(e1.getMessage());
+                strError = sbError.toString();
+                logger.error(strError, e1);
+                throw new SequenceGeneratorException(strError, e1);
+            }
+            
+            sbError.append(e.getMessage());
+            strError = sbError.toString();
+            logger.error(strError, e);
+            throw new SequenceGeneratorException(strError, e);
+        }
+        finally {
+            /*
+             * Restore settings and close resources
+             */
+            changeTransactionSettings(connection, autoCommit, readOnly, transactionIsolationLevel);
+            close(connection, preparedStatement, null);
+        }
+    }
+
+    /**
+     * Claim the lowest free range of the key in the current transaction. A range is owned by 
+     * the one whose DELETE removes its row, so it is never handed over twice even if several 
+     * nodes claim it at the same time.
+     * @return the claimed range {pointer, valve}, or null if there is no free range
+     */
+    private long[] claimFreeRange(Connection connection, String storedKey) throws SQLException {
+        PreparedStatement selectStatement = null;
+        PreparedStatement deleteStatement = null;
+        ResultSet rs = null;
+        try {
+            if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                logger.debug(selectFreeRangeSql);
+            }
+            selectStatement = prepareStatement( connection, selectFreeRangeSql );
+            selectStatement.setString(1, storedKey);
+            rs = selectStatement.executeQuery();
+            while( rs.next() ) {
+                long pointer = rs.getLong(1);
+                long valve = rs.getLong(2);
+                
+                if( !isDisableLogging() && logger.isDebugEnabled() ) {
+                    logger.debug(deleteFreeRangeSql);
+                }
+                if( deleteStatement==null ) {
+                    deleteStatement = prepareStatement( connection, deleteFreeRangeSql );
+                }
+                deleteStatement.setString(1, storedKey);
+                deleteStatement.setLong(2, pointer);
+                if( deleteStatement.executeUpdate()==1 ) {
+                    return new long[] { pointer, valve };
+                }
+            }
+            return null;
+        }
+        finally {
+            close(null, deleteStatement, null);
+            close(null, selectStatement, rs);
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+    
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+    
+    public String getSequenceSchemaName() {
+        return sequenceSchemaName;
+    }
+
+    public void setSequenceSchemaName(String sequenceSchemaName) {
+        this.sequenceSchemaName = sequenceSchemaName;
+    }
+
+    public String getSequenceTableName() {
+        return sequenceTableName;
+    }
 
     public void setSequenceTableName(String sequenceTableName) {
         this.sequenceTableName = sequenceTableName;
     }
     
+    public String getFreeRangeTableName() {
+        return freeRangeTableName;
+    }
+
+    public void setFreeRangeTableName(String freeRangeTableName) {
+        this.freeRangeTableName = freeRangeTableName;
+    }
+
+    public boolean isReuseFreeRanges() {
+        return reuseFreeRanges;
+    }
+
+    /**
+     * Enable to keep ranges released on shutdown in the free range table and claim them 
+     * on refills, the table must exist if it is enabled.
+     * @param reuseFreeRanges true to reuse released ranges
+     */
+    public void setReuseFreeRanges(boolean reuseFreeRanges) {
+        this.reuseFreeRanges = reuseFreeRanges;
+    }
+
+    public boolean isKeyConfigEnabled() {
+        return keyConfigEnabled;
+    }
+
+    /**
+     * Enable to read per-key increment and prefetch watermark from the nullable columns 
+     * SEQ_INCREMENT and SEQ_PREFETCH of the registry table, they override the generator's 
+     * configuration on every load and refill. The columns must exist if it is enabled.
+     * @param keyConfigEnabled true to read segment configuration from the registry
+     */
+    public void setKeyConfigEnabled(boolean keyConfigEnabled) {
+        this.keyConfigEnabled = keyConfigEnabled;
+    }
+
+    public UpsertDialect getUpsertDialect() {
+        return upsertDialect;
+    }
+
+    /**
+     * Create or update a row in one atomic statement on the first touch of a key, it should 
+     * match the database. A segment reserved this way is never taken from free ranges, and 
+     * the row's segment configuration takes effect from the next refill.
+     * @param upsertDialect dialect of the statement, or NONE to look the row up first
+     */
+    public void setUpsertDialect(UpsertDialect upsertDialect) {
+        this.upsertDialect = upsertDialect;
+    }
+
+    /**
+     * @return statement of the upsert dialect made by {@link #init()}, null for NONE
+     */
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Bound every statement on the sequence tables, so that a refill running in the background 
+     * after its caller's deadline doesn't hang on a locked row for ever.
+     * @param queryTimeout JDBC query timeout in seconds, 0 means no limit
+     */
+    public void setQueryTimeout(int queryTimeout) {
+        if( queryTimeout<0 ){
+            throw new IllegalArgumentException( "Property \"queryTimeout\" [" + queryTimeout + "] should not be negative" );
+        }
+        this.queryTimeout = queryTimeout;
+    }
+
+    public int getProvisionBatchSize() {
+        return provisionBatchSize;
+    }
+
+    /**
+     * @param provisionBatchSize number of keys looked up or inserted by one statement when 
+     *        keys are provisioned in bulk, it takes effect from {@link #init()}
+     */
+    public void setProvisionBatchSize(int provisionBatchSize) {
+        if( provisionBatchSize<1 ){
+            throw new IllegalArgumentException( "Property \"provisionBatchSize\" [" + provisionBatchSize + "] should be positive" );
+        }
+        this.provisionBatchSize = provisionBatchSize;
+    }
+
+    public int getProvisionChunkSize() {
+        return provisionChunkSize;
+    }
+
+    /**
+     * @param provisionChunkSize number of keys provisioned in one transaction, it bounds the 
+     *        locks held and the work redone when a chunk is retried
+     */
+    public void setProvisionChunkSize(int provisionChunkSize) {
+        if( provisionChunkSize<1 ){
+            throw new IllegalArgumentException( "Property \"provisionChunkSize\" [" + provisionChunkSize + "] should be positive" );
+        }
+        this.provisionChunkSize = provisionChunkSize;
+    }
+
+    public ContentionMonitor getContentionMonitor() {
+        return contentionMonitor;
+    }
+
+    /**
+     * Decide the concurrency strategy of every key, by default all keys are updated optimistically.
+     * @param contentionMonitor monitor of a fixed strategy or an adaptive one
+     */
+    public void setContentionMonitor(ContentionMonitor contentionMonitor) {
+        this.contentionMonitor = contentionMonitor;
+    }
+
+    @Override
+    public String getConcurrencyStrategy(String storedKey) {
+        return contentionMonitor.strategyOf( storedKey ).toString();
+    }
+
+    @Override
+    public String getConcurrencyStats() {
+        return contentionMonitor.toString();
+    }
+
     public void setDisableLogging(boolean disableLogging) {
         this.disableLogging = disableLogging;
     }
@@ -401,6 +1722,14 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         return disableLogging;
     }
     
+    private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement( sql );
+        if( queryTimeout>0 ){
+            preparedStatement.setQueryTimeout( queryTimeout );
+        }
+        return preparedStatement;
+    }
+    
     private String makeInsertSql(){
         StringBuilder sbSql = new StringBuilder(100);
         sbSql.append("INSERT INTO ");
@@ -420,6 +1749,42 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         return sbSql.toString();
     }
 
+    private String makeUpsertSql(){
+        String advanceValue = " = CASE WHEN R." + SEQUENCE_VERSION + " = " + MOVED_VERSION + " THEN R." + SEQUENCE_VALUE + " ELSE R." + SEQUENCE_VALUE + " + ? END, ";
+        String advanceVersion = " = CASE WHEN R." + SEQUENCE_VERSION + " = " + MOVED_VERSION + " THEN " + MOVED_VERSION + " ELSE R." + SEQUENCE_VERSION + " + 1 END";
+        StringBuilder sbSql = new StringBuilder(300);
+        switch( upsertDialect ){
+        case MYSQL:
+            sbSql.append("INSERT INTO ");
+            appendSequenceTableName(sbSql);
+            sbSql.append(" ( ").append(SEQUENCE_NAME).append(", ").append(SEQUENCE_VALUE).append(", ").append(SEQUENCE_VERSION);
+            sbSql.append(" ) VALUES ( ?, ?, 0 ) ON DUPLICATE KEY UPDATE ");
+            
+            /*
+             * MySQL has no alias for the updated row, and assigns columns from left to right
+             */
+            sbSql.append(SEQUENCE_VALUE).append(advanceValue.replace( "R.", "" ));
+            sbSql.append(SEQUENCE_VERSION).append(advanceVersion.replace( "R.", "" ));
+            break;
+        case POSTGRESQL:
+            sbSql.append("INSERT INTO ");
+            appendSequenceTableName(sbSql);
+            sbSql.append(" AS R ( ").append(SEQUENCE_NAME).append(", ").append(SEQUENCE_VALUE).append(", ").append(SEQUENCE_VERSION);
+            sbSql.append(" ) VALUES ( ?, ?, 0 ) ON CONFLICT ( ").append(SEQUENCE_NAME).append(" ) DO UPDATE SET ");
+            sbSql.append(SEQUENCE_VALUE).append(advanceValue);
+            sbSql.append(SEQUENCE_VERSION).append(advanceVersion);
+            sbSql.append(" RETURNING ").append(SEQUENCE_VALUE).append(", ").append(SEQUENCE_VERSION);
+            if( keyConfigEnabled ){
+                sbSql.append(", ").append(SEQUENCE_INCREMENT);
+                sbSql.append(", ").append(SEQUENCE_PREFETCH);
+            }
+            break;
+        default:
+            return null;
+        }
+        return sbSql.toString();
+    }
+
     private String makeUpdateSql(){
         StringBuilder sbSql = new StringBuilder(100);
         sbSql.append("UPDATE ");
@@ -441,11 +1806,75 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         return sbSql.toString();
     }
 
-    private String makeSelectSql(){
+    private String makeIncrementSql(){
+        StringBuilder sbSql = new StringBuilder(200);
+        sbSql.append("UPDATE ");
+        appendSequenceTableName(sbSql);
+        sbSql.append(" SET ");
+        sbSql.append(SEQUENCE_VALUE).append(" = ").append(SEQUENCE_VALUE).append(" + ");
+        if( keyConfigEnabled ){
+            sbSql.append("CASE WHEN ").append(SEQUENCE_INCREMENT).append(" IS NULL OR ");
+            sbSql.append(SEQUENCE_INCREMENT).append(" < ").append(SegmentConfig.MIN_INCREMENT).append(" THEN ? ELSE ").append(SEQUENCE_INCREMENT).append(" END");
+        }
+        else {
+            sbSql.append("?");
+        }
+        sbSql.append(", ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" = ").append(SEQUENCE_VERSION).append(" + 1 WHERE ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(" = ? AND ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" <> ?");
+        return sbSql.toString();
+    }
+
+    /**
+     * @param exact true to match the key exactly, false to match it as a LIKE pattern
+     */
+    private String makeSelectSql(boolean exact){
         StringBuilder sbSql = new StringBuilder(100);
         sbSql.append("SELECT ");
         sbSql.append(SEQUENCE_VALUE).append(", ");
         sbSql.append(SEQUENCE_VERSION);
+        if( keyConfigEnabled ){
+            sbSql.append(", ").append(SEQUENCE_INCREMENT);
+            sbSql.append(", ").append(SEQUENCE_PREFETCH);
+        }
+        sbSql.append(" FROM ");
+        if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
+            sbSql.append(sequenceTableName);
+        }
+        else{
+            sbSql.append(sequenceSchemaName).append(".").append(sequenceTableName);
+        }
+        sbSql.append(" WHERE ").append(SEQUENCE_NAME).append(exact ? " = ? " : " LIKE ? ");
+        return sbSql.toString();
+    }
+
+    private String makeUpdateConfigSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("UPDATE ");
+        if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
+            sbSql.append(sequenceTableName);
+        }
+        else{
+            sbSql.append(sequenceSchemaName).append(".").append(sequenceTableName);
+        }
+        sbSql.append(" SET ");
+        sbSql.append(SEQUENCE_INCREMENT);
+        sbSql.append(" = ?,");
+        sbSql.append(SEQUENCE_PREFETCH);
+        sbSql.append(" = ? WHERE ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(" LIKE ?");
+        return sbSql.toString();
+    }
+
+    private String makeSelectKeysSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("SELECT ");
+        sbSql.append(SEQUENCE_NAME);
         sbSql.append(" FROM ");
         if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
             sbSql.append(sequenceTableName);
@@ -453,10 +1882,135 @@ public class SequenceObjectPersisterImpl implements SequenceObjectPersister{
         else{
             sbSql.append(sequenceSchemaName).append(".").append(sequenceTableName);
         }
-        sbSql.append(" WHERE ").append(SEQUENCE_NAME).append(" LIKE ? ");
+        sbSql.append(" WHERE ").append(SEQUENCE_VERSION).append(" <> ?");
+        return sbSql.toString();
+    }
+
+    private String makeCompareAndSetSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("UPDATE ");
+        if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
+            sbSql.append(sequenceTableName);
+        }
+        else{
+            sbSql.append(sequenceSchemaName).append(".").append(sequenceTableName);
+        }
+        sbSql.append(" SET ");
+        sbSql.append(SEQUENCE_VALUE);
+        sbSql.append(" = ?,");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" = ").append(SEQUENCE_VERSION).append(" + 1 WHERE ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(" LIKE ? AND ");
+        sbSql.append(SEQUENCE_VALUE);
+        sbSql.append(" = ? AND ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" <> ?");
+        return sbSql.toString();
+    }
+
+    private String makeUnfenceSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("UPDATE ");
+        appendSequenceTableName(sbSql);
+        sbSql.append(" SET ");
+        sbSql.append(SEQUENCE_VALUE);
+        sbSql.append(" = ?, ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" = ? WHERE ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(" = ? AND ");
+        sbSql.append(SEQUENCE_VALUE);
+        sbSql.append(" = ? AND ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" = ?");
+        return sbSql.toString();
+    }
+
+    private String makeInsertFreeRangeSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("INSERT INTO ");
+        appendFreeRangeTableName(sbSql);
+        sbSql.append(" ( ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(", ");
+        sbSql.append(RANGE_START);
+        sbSql.append(", ");
+        sbSql.append(RANGE_END);
+        sbSql.append(" ) VALUES ( ?, ?, ? )");
+        return sbSql.toString();
+    }
+
+    private String makeSelectFreeRangeSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("SELECT ");
+        sbSql.append(RANGE_START).append(", ");
+        sbSql.append(RANGE_END);
+        sbSql.append(" FROM ");
+        appendFreeRangeTableName(sbSql);
+        sbSql.append(" WHERE ").append(SEQUENCE_NAME).append(" = ? ");
+        sbSql.append(" ORDER BY ").append(RANGE_START);
+        return sbSql.toString();
+    }
+
+    private String makeDeleteFreeRangeSql(){
+        StringBuilder sbSql = new StringBuilder(100);
+        sbSql.append("DELETE FROM ");
+        appendFreeRangeTableName(sbSql);
+        sbSql.append(" WHERE ").append(SEQUENCE_NAME).append(" = ? AND ");
+        sbSql.append(RANGE_START).append(" = ?");
+        return sbSql.toString();
+    }
+
+    private String makeSelectExistingKeysSql(int count){
+        StringBuilder sbSql = new StringBuilder(100 + count * 3);
+        sbSql.append("SELECT ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(" FROM ");
+        appendSequenceTableName(sbSql);
+        sbSql.append(" WHERE ").append(SEQUENCE_NAME).append(" IN ( ?");
+        for( int i=1; i<count; i++ ){
+            sbSql.append(", ?");
+        }
+        sbSql.append(" )");
+        return sbSql.toString();
+    }
+
+    private String makeBulkInsertSql(int rows){
+        StringBuilder sbSql = new StringBuilder(100 + rows * 14);
+        sbSql.append("INSERT INTO ");
+        appendSequenceTableName(sbSql);
+        sbSql.append(" ( ");
+        sbSql.append(SEQUENCE_NAME);
+        sbSql.append(", ");
+        sbSql.append(SEQUENCE_VALUE);
+        sbSql.append(", ");
+        sbSql.append(SEQUENCE_VERSION);
+        sbSql.append(" ) VALUES ( ?, ?, 0 )");
+        for( int i=1; i<rows; i++ ){
+            sbSql.append(", ( ?, ?, 0 )");
+        }
         return sbSql.toString();
     }
 
+    private void appendSequenceTableName(StringBuilder sbSql){
+        if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
+            sbSql.append(sequenceTableName);
+        }
+        else{
+            sbSql.append(sequenceSchemaName).append(".").append(sequenceTableName);
+        }
+    }
+
+    private void appendFreeRangeTableName(StringBuilder sbSql){
+        if(sequenceSchemaName==null || sequenceSchemaName.trim().equals("")){
+            sbSql.append(freeRangeTableName);
+        }
+        else{
+            sbSql.append(sequenceSchemaName).append(".").append(freeRangeTableName);
+        }
+    }
+
     private void changeTransactionSettings(Connection connection, boolean autoCommit, boolean readOnly, int transactionIsolationLevel) {
         try {
             connection.setTransactionIsolation( transactionIsolationLevel );
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.rdbms;
+
+/**
+ * <p>
+ * Management interface of {@link SequenceObjectPersisterImpl}, it is registered as a standard MBean
+ * to show which concurrency strategy keys are updated with and how each strategy performs.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;entry key="realpaas:name=sequenceObjectPersister" value-ref="sequenceObjectPersister"/&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>NOT-APPLICABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public interface SequenceObjectPersisterImplMBean {
+    
+    /**
+     * @return the concurrency strategy which the key is updated with
+     */
+    public String getConcurrencyStrategy(String storedKey);
+    
+    /**
+     * @return keys, updates, conflicts and throughput by concurrency strategy
+     */
+    public String getConcurrencyStats();
+}
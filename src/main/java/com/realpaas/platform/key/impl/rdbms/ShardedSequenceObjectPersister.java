@@ -0,0 +1,399 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.rdbms;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.realpaas.platform.key.SequenceGeneratorException;
+import com.realpaas.platform.key.impl.SegmentConfig;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+
+/**
+ * <p>
+ * A persister which shards the sequence registry across several databases. Every key is routed
+ * to one shard by consistent hashing with virtual nodes, and every shard is kept by its own
+ * {@link SequenceObjectPersisterImpl} with its own data source and table. Shards can be added
+ * or retired online, then {@link #rebalance()} moves key rows to their new shards with a
+ * fenced valve so that no value is issued twice.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="sequenceObjectPersister" class="com.realpaas.platform.key.impl.rdbms.ShardedSequenceObjectPersister" init-method="init"&gt;
+ *     &lt;property name="shards"&gt;
+ *         &lt;map&gt;
+ *             &lt;entry key="db0" value-ref="sequenceObjectPersister0"/&gt;
+ *             &lt;entry key="db1" value-ref="sequenceObjectPersister1"/&gt;
+ *         &lt;/map&gt;
+ *     &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Consistent Hashing
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ShardedSequenceObjectPersister implements SequenceObjectPersister{
+    private static final int DEFAULT_VIRTUAL_NODES = 160;
+    private static final int FENCE_ATTEMPT_TIMES = 5;
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+    
+    private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+    
+    /**
+     * all known shards by name, including the retired ones which may still hold moved rows
+     */
+    private final Map<String, SequenceObjectPersisterImpl> shards = new LinkedHashMap<String, SequenceObjectPersisterImpl>();
+    
+    private final Set<String> retiredShards = new HashSet<String>();
+    
+    /**
+     * hash ring of active shards, it is replaced as a whole when shards change
+     */
+    private volatile SortedMap<Long, String> ring = new TreeMap<Long, String>();
+    
+    /**
+     * shards of keys which are found somewhere else than their shards on the ring, e.g. 
+     * because rebalancing is in progress or this node has not got the latest shards
+     */
+    private final ConcurrentMap<String, String> relocatedKeys = new ConcurrentHashMap<String, String>();
+    
+    private final Log logger = LogFactory.getLog(getClass());
+    
+    public void init(){
+        rebuildRing();
+    }
+    
+    @Override
+    public SequenceObject loadSequenceObject(String storedKey) {
+        String shardName = shardNameOf( storedKey );
+        try {
+            SequenceObject so = shardOf( shardName ).loadSequenceObject( storedKey );
+            if( so!=null ){
+                return so;
+            }
+        }
+        catch (SequenceMovedException e) {
+            logger.info( e.getMessage() );
+        }
+        
+        /*
+         * the key may be kept in another shard, look it up before it is regarded as a new key
+         */
+        String relocatedShardName = relocate( storedKey );
+        return relocatedShardName==null ? null : shardOf( relocatedShardName ).loadSequenceObject( storedKey );
+    }
+
+    @Override
+    public void createSequenceObject(String storedKey, Long value) {
+        shardOf( shardNameOf( storedKey ) ).createSequenceObject( storedKey, value );
+    }
+
+    @Override
+    public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        String shardName = shardNameOf( storedKey );
+        try {
+            shardOf( shardName ).updateSequenceObject( storedKey, cachedSo );
+        }
+        catch (SequenceGeneratorException e) {
+            /*
+             * the row may be moved away or not moved to the shard yet, retry where it is 
+             * if it is found in another shard
+             */
+            String relocatedShardName = relocate( storedKey );
+            if( relocatedShardName==null || relocatedShardName.equals( shardName ) ){
+                throw e;
+            }
+            logger.info( "Sequence Entry with key \"" + storedKey + "\" is found in shard \"" + relocatedShardName + "\"" );
+            shardOf( relocatedShardName ).updateSequenceObject( storedKey, cachedSo );
+        }
+    }
+
+    /**
+     * Not supported, a new key of a shard may still be kept in its old shard before 
+     * {@link #rebalance()}, so it must be looked up before it is created.
+     */
+    @Override
+    public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        return false;
+    }
+
+    @Override
+    public void releaseRange(String storedKey, long pointer, long valve) {
+        shardOf( shardNameOf( storedKey ) ).releaseRange( storedKey, pointer, valve );
+    }
+
+    @Override
+    public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch) {
+        shardOf( shardNameOf( storedKey ) ).updateSegmentConfig( storedKey, increment, prefetch );
+    }
+    
+    @Override
+    public SegmentConfig loadSegmentConfig(String storedKey) {
+        return shardOf( shardNameOf( storedKey ) ).loadSegmentConfig( storedKey );
+    }
+    
+    /**
+     * Add a shard to the ring, keys are not moved to it until {@link #rebalance()}, and they 
+     * are still found in their old shards meanwhile.
+     * @param name name of the shard, it decides the positions on the ring
+     * @param shard persister of the shard
+     */
+    public synchronized void addShard(String name, SequenceObjectPersisterImpl shard) {
+        shards.put( name, shard );
+        retiredShards.remove( name );
+        rebuildRing();
+    }
+    
+    /**
+     * Remove a shard from the ring, its keys are moved to other shards by {@link #rebalance()}, 
+     * and it is still looked up for keys which have not been moved.
+     * @param name name of the shard
+     */
+    public synchronized void retireShard(String name) {
+        if( !shards.containsKey( name ) ){
+            throw new IllegalArgumentException( "Unknown shard \"" + name + "\"" );
+        }
+        retiredShards.add( name );
+        rebuildRing();
+    }
+    
+    /**
+     * Move every key whose row is not in its shard on the ring. A row is fenced in the old 
+     * shard first, then it is created in the new shard from the fenced value, so no value is 
+     * issued twice even if other nodes keep refilling from the old shard meanwhile: their 
+     * refills fail on the fence and find the key in the new shard.
+     * <p>It is safe to run it again, e.g. after it fails half way.
+     * @return number of moved keys
+     */
+    public synchronized int rebalance() {
+        int moved = 0;
+        for( Map.Entry<String, SequenceObjectPersisterImpl> entry : shards.entrySet() ){
+            String shardName = entry.getKey();
+            for( String storedKey : entry.getValue().loadSequenceKeys() ){
+                String targetShardName = ringShardNameOf( storedKey );
+                if( !targetShardName.equals( shardName ) ){
+                    move( storedKey, entry.getValue(), shardOf( targetShardName ) );
+                    relocatedKeys.remove( storedKey );
+                    moved++;
+                }
+            }
+        }
+        logger.info( "Sequence registry is rebalanced, " + moved + " keys are moved" );
+        return moved;
+    }
+    
+    private void move(String storedKey, SequenceObjectPersisterImpl source, SequenceObjectPersisterImpl target) {
+        long fencedValue = 0;
+        for( int i = 1; ; i++ ){
+            try {
+                fencedValue = source.fenceSequenceObject( storedKey );
+                break;
+            }
+            catch (SequenceMovedException e) {
+                fencedValue = e.getFencedValue();
+                break;
+            }
+            catch (SequenceGeneratorException e) {
+                if( i>=FENCE_ATTEMPT_TIMES ){
+                    throw e;
+                }
+            }
+        }
+        createIfAbsent( target, storedKey, fencedValue );
+    }
+    
+    private void createIfAbsent(SequenceObjectPersisterImpl target, String storedKey, long value) {
+        try {
+            target.createSequenceObject( storedKey, value );
+        }
+        catch (SequenceGeneratorException e) {
+            /*
+             * it may be created by another node meanwhile, otherwise it fails again
+             */
+            try {
+                if( target.loadSequenceObject( storedKey )!=null ){
+                    return;
+                }
+            }
+            catch (SequenceMovedException e1) {
+                /*
+                 * the key was moved away from the target before, take its fence back, another 
+                 * node may have done it meanwhile
+                 */
+                long fencedValue = e1.getFencedValue();
+                if( target.unfenceSequenceObject( storedKey, fencedValue, Math.max( value, fencedValue ) ) 
+                        || target.loadSequenceObject( storedKey )!=null ){
+                    return;
+                }
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Look the key up in all shards, a row which is fenced but not created in its new shard 
+     * yet is completed here.
+     * @return name of the shard which keeps the key, or null if no shard has it
+     */
+    private String relocate(String storedKey) {
+        Map<String, SequenceObjectPersisterImpl> knownShards;
+        synchronized( this ){
+            knownShards = new LinkedHashMap<String, SequenceObjectPersisterImpl>( shards );
+        }
+        
+        Long fencedValue = null;
+        for( Map.Entry<String, SequenceObjectPersisterImpl> entry : knownShards.entrySet() ){
+            try {
+                if( entry.getValue().loadSequenceObject( storedKey )!=null ){
+                    relocatedKeys.put( storedKey, entry.getKey() );
+                    return entry.getKey();
+                }
+            }
+            catch (SequenceMovedException e) {
+                fencedValue = fencedValue==null ? e.getFencedValue() : Math.max( fencedValue, e.getFencedValue() );
+            }
+        }
+        if( fencedValue==null ){
+            return null;
+        }
+        
+        String targetShardName = ringShardNameOf( storedKey );
+        createIfAbsent( shardOf( targetShardName ), storedKey, fencedValue );
+        relocatedKeys.remove( storedKey );
+        return targetShardName;
+    }
+    
+    private String shardNameOf(String storedKey) {
+        String shardName = relocatedKeys.get( storedKey );
+        return shardName==null ? ringShardNameOf( storedKey ) : shardName;
+    }
+    
+    private String ringShardNameOf(String storedKey) {
+        SortedMap<Long, String> currentRing = ring;
+        if( currentRing.isEmpty() ){
+            throw new SequenceGeneratorException( "No shard of sequence registry is available" );
+        }
+        SortedMap<Long, String> tailMap = currentRing.tailMap( hash( storedKey ) );
+        return tailMap.isEmpty() ? currentRing.get( currentRing.firstKey() ) : tailMap.get( tailMap.firstKey() );
+    }
+    
+    private synchronized SequenceObjectPersisterImpl shardOf(String shardName) {
+        return shards.get( shardName );
+    }
+    
+    private synchronized void rebuildRing() {
+        SortedMap<Long, String> newRing = new TreeMap<Long, String>();
+        for( String shardName : shards.keySet() ){
+            if( retiredShards.contains( shardName ) ){
+                continue;
+            }
+            for( int i=0; i<virtualNodes; i++ ){
+                newRing.put( hash( shardName + "#" + i ), shardName );
+            }
+        }
+        ring = newRing;
+    }
+    
+    /**
+     * 64-bit position on the ring, taken from MD5 so that it is the same on all nodes.
+     */
+    private static long hash(String text) {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance( "MD5" );
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException( e );
+        }
+        byte[] digest = md5.digest( text.getBytes( UTF8 ) );
+        long h = 0;
+        for( int i=0; i<8; i++ ){
+            h = (h << 8) | (digest[i] & 0xFF);
+        }
+        return h;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * Set the number of positions of every shard on the ring, more positions spread keys 
+     * more evenly. It must be the same on all nodes.
+     * @param virtualNodes number of virtual nodes per shard
+     */
+    public synchronized void setVirtualNodes(int virtualNodes) {
+        if( virtualNodes<1 ){
+            throw new IllegalArgumentException( "Property \"virtualNodes\" [" + virtualNodes + "] should be greater than 0" );
+        }
+        this.virtualNodes = virtualNodes;
+        rebuildRing();
+    }
+
+    /**
+     * Set shards by name, the names decide the positions on the ring so they must be the same 
+     * on all nodes. 
+     * @param shards persisters of shards by name
+     */
+    public synchronized void setShards(Map<String, SequenceObjectPersisterImpl> shards) {
+        this.shards.clear();
+        this.shards.putAll( shards );
+        this.retiredShards.clear();
+        rebuildRing();
+    }
+    
+    public synchronized Map<String, SequenceObjectPersisterImpl> getShards() {
+        return new LinkedHashMap<String, SequenceObjectPersisterImpl>( shards );
+    }
+    
+    /**
+     * @return name of the shard which keeps the key
+     */
+    public String getShardName(String storedKey) {
+        return shardNameOf( storedKey );
+    }
+}
@@ -0,0 +1,451 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key.impl.rdbms;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.realpaas.platform.key.SequenceGeneratorException;
+import com.realpaas.platform.key.impl.SegmentConfig;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+
+/**
+ * <p>
+ * A persister which backs a hot key by several registry rows, so that the refills of many nodes
+ * do not serialise on one row lock and fight over its version. A split key keeps a layout row
+ * (<code>key#split</code>) and rows <code>key#0/K</code> .. <code>key#K-1/K</code>. Rows step through the
+ * values in stripes of K blocks and row r owns the r-th block of each stripe, so the blocks of
+ * different rows never overlap. A node refills from the row of its affinity and falls back to
+ * the others on conflicts. Keys are split, or split into more rows, online by {@link #split(String, int)}
+ * or automatically when they are contended, and keys which are not split work as before.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * &lt;bean id="sequenceObjectPersister" class="com.realpaas.platform.key.impl.rdbms.SplitKeySequenceObjectPersister"&gt;
+ *     &lt;property name="persister"&gt;&lt;ref local="registryPersister"/&gt;&lt;/property&gt;
+ *     &lt;property name="blockSize"&gt;&lt;value&gt;1000&lt;/value&gt;&lt;/property&gt;
+ *     &lt;property name="autoSplitThreshold"&gt;&lt;value&gt;20&lt;/value&gt;&lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * <p><dt><b>Immutability:</b></dt> 
+ * <dd>
+ * 	<b>MUTABLE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>THREAD-SAFE</b>
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	Decorator
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SplitKeySequenceObjectPersister implements SequenceObjectPersister{
+    private static final String LAYOUT_SUFFIX = "#split";
+    private static final int MAX_ROW_COUNT = 1024;
+    private static final int DEFAULT_BLOCK_SIZE = 1000;
+    private static final int DEFAULT_MAX_ROW_COUNT = 64;
+    private static final int ATTEMPT_TIMES = 5;
+    
+    private SequenceObjectPersisterImpl persister;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int affinity = new Random().nextInt( Integer.MAX_VALUE );
+    private int autoSplitThreshold = 0;
+    private int maxRowCount = DEFAULT_MAX_ROW_COUNT;
+    
+    /**
+     * layouts of split keys which are known by this node, a layout is (blockSize << 16 | rowCount)
+     */
+    private final ConcurrentMap<String, Long> layouts = new ConcurrentHashMap<String, Long>();
+    
+    /**
+     * refill conflicts of keys since they are split last time
+     */
+    private final ConcurrentMap<String, AtomicInteger> conflicts = new ConcurrentHashMap<String, AtomicInteger>();
+    
+    private final Log logger = LogFactory.getLog(getClass());
+    
+    @Override
+    public SequenceObject loadSequenceObject(String storedKey) {
+        if( loadLayout( storedKey )!=null ){
+            return new SequenceObject( storedKey, 0, 0 );
+        }
+        try {
+            return persister.loadSequenceObject( storedKey );
+        }
+        catch (SequenceMovedException e) {
+            if( loadLayout( storedKey )==null ){
+                throw e;
+            }
+            return new SequenceObject( storedKey, 0, 0 );
+        }
+    }
+
+    @Override
+    public void createSequenceObject(String storedKey, Long value) {
+        if( loadLayout( storedKey )!=null ){
+            throw new SequenceGeneratorException( "Sequence Entry with key \"" + storedKey + "\" has been split" );
+        }
+        persister.createSequenceObject( storedKey, value );
+    }
+
+    @Override
+    public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        Long layout = layouts.get( storedKey );
+        if( layout==null ){
+            try {
+                persister.updateSequenceObject( storedKey, cachedSo );
+                return;
+            }
+            catch (SequenceMovedException e) {
+                layout = loadLayout( storedKey );
+                if( layout==null ){
+                    throw e;
+                }
+            }
+            catch (SequenceGeneratorException e) {
+                onConflict( storedKey, 1 );
+                throw e;
+            }
+        }
+        updateSplitSequenceObject( storedKey, layout, cachedSo );
+    }
+
+    /**
+     * Not supported, the layout of a key must be looked up before its row is created or updated.
+     */
+    @Override
+    public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        return false;
+    }
+
+    /**
+     * Reserve next block of the key from one of its rows, the row of this node's affinity is 
+     * tried first and the others are tried on conflicts.
+     */
+    private void updateSplitSequenceObject(String storedKey, long layout, SequenceObject cachedSo) {
+        SequenceGeneratorException lastException = null;
+        for( int attempt = 0; attempt<ATTEMPT_TIMES; attempt++ ){
+            int rowCount = rowCountOf( layout );
+            int rowBlockSize = blockSizeOf( layout );
+            int start = affinity % rowCount;
+            boolean moved = false;
+            for( int i=0; i<rowCount && !moved; i++ ){
+                int row = (start + i) % rowCount;
+                SequenceObject rowSo = new SequenceObject( rowKeyOf( storedKey, row, rowCount ), 0, 0 );
+                rowSo.configure( rowCount * rowBlockSize, 0 );
+                try {
+                    persister.updateSequenceObject( rowSo.getKey(), rowSo );
+                    
+                    /*
+                     * the row reserves a stripe of blocks of all rows, and owns the block at its index,
+                     * which may be below the current valve when it is not the row of the last block
+                     */
+                    long stripe = rowSo.getPointer();
+                    cachedSo.setSegment( stripe + (long) row * rowBlockSize, stripe + (long) (row + 1) * rowBlockSize );
+                    return;
+                }
+                catch (SequenceMovedException e) {
+                    /*
+                     * the key is split into more rows meanwhile
+                     */
+                    Long newLayout = loadLayout( storedKey );
+                    if( newLayout==null ){
+                        throw e;
+                    }
+                    layout = newLayout;
+                    lastException = e;
+                    moved = true;
+                }
+                catch (SequenceGeneratorException e) {
+                    lastException = e;
+                }
+            }
+            if( !moved ){
+                onConflict( storedKey, rowCount );
+                break;
+            }
+        }
+        throw lastException;
+    }
+
+    @Override
+    public void releaseRange(String storedKey, long pointer, long valve) {
+        /*
+         * a range of a split key is not kept since it is not aligned to the rows' blocks
+         */
+        if( layouts.containsKey( storedKey ) ){
+            return;
+        }
+        persister.releaseRange( storedKey, pointer, valve );
+    }
+
+    @Override
+    public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch) {
+        persister.updateSegmentConfig( storedKey, increment, prefetch );
+    }
+    
+    @Override
+    public SegmentConfig loadSegmentConfig(String storedKey) {
+        return persister.loadSegmentConfig( storedKey );
+    }
+    
+    /**
+     * Split the key into the given number of rows, or raise the number of its rows. The current 
+     * rows are fenced first, and all new rows start from the highest fenced value, so no value 
+     * is issued twice even if other nodes keep refilling the current rows meanwhile: their 
+     * refills fail on the fence and pick the new layout up. 
+     * @param storedKey sequence key in storage
+     * @param rowCount number of rows
+     * @return true if the key is split into the rows, or false if it has been split into at least 
+     * as many rows, e.g. by another node meanwhile
+     */
+    public synchronized boolean split(String storedKey, int rowCount) {
+        if( rowCount<2 || rowCount>MAX_ROW_COUNT ){
+            throw new IllegalArgumentException( "Row count [" + rowCount + "] should be in [2, " + MAX_ROW_COUNT + "]" );
+        }
+        
+        Long layout = loadLayout( storedKey );
+        int rowBlockSize;
+        long base;
+        if( layout==null ){
+            rowBlockSize = blockSize;
+            base = fence( storedKey );
+        }
+        else {
+            int currentRowCount = rowCountOf( layout );
+            if( rowCount<=currentRowCount ){
+                return false;
+            }
+            rowBlockSize = blockSizeOf( layout );
+            base = Long.MIN_VALUE;
+            for( int row=0; row<currentRowCount; row++ ){
+                base = Math.max( base, fence( rowKeyOf( storedKey, row, currentRowCount ) ) );
+            }
+        }
+        if( (long) rowCount * rowBlockSize>Integer.MAX_VALUE ){
+            throw new IllegalArgumentException( "Row count [" + rowCount + "] is too large for block size [" + rowBlockSize + "]" );
+        }
+        
+        for( int row=0; row<rowCount; row++ ){
+            createRow( rowKeyOf( storedKey, row, rowCount ), base );
+        }
+        
+        /*
+         * publish the new layout after all rows are ready
+         */
+        long newLayout = ((long) rowBlockSize << 16) | rowCount;
+        if( layout==null ){
+            try {
+                persister.createSequenceObject( storedKey + LAYOUT_SUFFIX, newLayout );
+            }
+            catch (SequenceGeneratorException e) {
+                if( loadLayout( storedKey )==null ){
+                    throw e;
+                }
+                return false;
+            }
+        }
+        else if( !persister.compareAndSetValue( storedKey + LAYOUT_SUFFIX, layout, newLayout ) ){
+            loadLayout( storedKey );
+            return false;
+        }
+        layouts.put( storedKey, newLayout );
+        conflicts.remove( storedKey );
+        logger.info( "Sequence Entry with key \"" + storedKey + "\" is split into " + rowCount + " rows from " + base );
+        return true;
+    }
+    
+    /**
+     * @return number of rows of the key, or 1 if it is not split
+     */
+    public int getRowCount(String storedKey) {
+        Long layout = loadLayout( storedKey );
+        return layout==null ? 1 : rowCountOf( layout );
+    }
+    
+    private void onConflict(String storedKey, int count) {
+        if( autoSplitThreshold<=0 ){
+            return;
+        }
+        AtomicInteger counter = conflicts.get( storedKey );
+        if( counter==null ){
+            conflicts.putIfAbsent( storedKey, new AtomicInteger() );
+            counter = conflicts.get( storedKey );
+        }
+        if( counter.addAndGet( count )<autoSplitThreshold ){
+            return;
+        }
+        counter.set( 0 );
+        
+        Long layout = layouts.get( storedKey );
+        int rowCount = layout==null ? 2 : Math.min( rowCountOf( layout ) * 2, maxRowCount );
+        if( layout!=null && rowCount<=rowCountOf( layout ) ){
+            return;
+        }
+        try {
+            split( storedKey, rowCount );
+        }
+        catch (Exception e) {
+            logger.warn( "Fail to split contended Sequence Entry with key \"" + storedKey + "\"", e );
+        }
+    }
+    
+    /**
+     * Create a row from the base, or raise it to the base if it is left by a split which lost
+     * the race to another one.
+     */
+    private void createRow(String rowKey, long base) {
+        try {
+            persister.createSequenceObject( rowKey, base );
+        }
+        catch (SequenceGeneratorException e) {
+            for(;;) {
+                SequenceObject rowSo = persister.loadSequenceObject( rowKey );
+                if( rowSo==null ){
+                    throw e;
+                }
+                if( rowSo.getPointer()>=base || persister.compareAndSetValue( rowKey, rowSo.getPointer(), base ) ){
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Fence a row, see {@link SequenceObjectPersisterImpl#fenceSequenceObject(String)}.
+     */
+    private long fence(String rowKey) {
+        for( int i = 1; ; i++ ){
+            try {
+                return persister.fenceSequenceObject( rowKey );
+            }
+            catch (SequenceMovedException e) {
+                return e.getFencedValue();
+            }
+            catch (SequenceGeneratorException e) {
+                if( i>=ATTEMPT_TIMES ){
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private Long loadLayout(String storedKey) {
+        SequenceObject layoutSo = persister.loadSequenceObject( storedKey + LAYOUT_SUFFIX );
+        if( layoutSo==null ){
+            layouts.remove( storedKey );
+            return null;
+        }
+        Long layout = layoutSo.getPointer();
+        layouts.put( storedKey, layout );
+        return layout;
+    }
+    
+    private static String rowKeyOf(String storedKey, int row, int rowCount) {
+        return storedKey + "#" + row + "/" + rowCount;
+    }
+    
+    private static int rowCountOf(long layout) {
+        return (int) (layout & 0xFFFF);
+    }
+    
+    private static int blockSizeOf(long layout) {
+        return (int) (layout >>> 16);
+    }
+
+    public SequenceObjectPersisterImpl getPersister() {
+        return persister;
+    }
+
+    public void setPersister(SequenceObjectPersisterImpl persister) {
+        this.persister = persister;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Set the size of blocks which rows of a key own, it is used when a key is split for the 
+     * first time and kept in the layout of the key afterwards.
+     * @param blockSize number of values in a block
+     */
+    public void setBlockSize(int blockSize) {
+        if( blockSize<1 ){
+            throw new IllegalArgumentException( "Property \"blockSize\" [" + blockSize + "] should be greater than 0" );
+        }
+        this.blockSize = blockSize;
+    }
+
+    public int getAffinity() {
+        return affinity;
+    }
+
+    /**
+     * Set the affinity of this node, it decides which row of a split key is tried first. 
+     * Nodes should have different affinities, a random one is used by default.
+     * @param affinity non-negative affinity
+     */
+    public void setAffinity(int affinity) {
+        if( affinity<0 ){
+            throw new IllegalArgumentException( "Property \"affinity\" [" + affinity + "] should not be negative" );
+        }
+        this.affinity = affinity;
+    }
+
+    public int getAutoSplitThreshold() {
+        return autoSplitThreshold;
+    }
+
+    /**
+     * Split a key, or double its rows, once this number of refill conflicts is met on it.
+     * @param autoSplitThreshold number of conflicts, 0 to disable automatic splitting
+     */
+    public void setAutoSplitThreshold(int autoSplitThreshold) {
+        this.autoSplitThreshold = autoSplitThreshold;
+    }
+
+    public int getMaxRowCount() {
+        return maxRowCount;
+    }
+
+    /**
+     * Set the max number of rows which a key is split into automatically.
+     * @param maxRowCount max number of rows
+     */
+    public void setMaxRowCount(int maxRowCount) {
+        if( maxRowCount<2 || maxRowCount>MAX_ROW_COUNT ){
+            throw new IllegalArgumentException( "Property \"maxRowCount\" [" + maxRowCount + "] should be in [2, " + MAX_ROW_COUNT + "]" );
+        }
+        this.maxRowCount = maxRowCount;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.internal.dataobject;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+/**
+ * <p>
+ * A record whose identifier is generated by genkey in chunks of the JDBC batch size.
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ *  Oct 19, 2026    henry leu   Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henry leu
+ */
+
+@Entity
+@Table(name="PLF_GENKEY_RECORD")
+public class GenkeyRecord implements Serializable {
+
+    private static final long serialVersionUID = 4720376018471957612L;
+
+    private Long id;
+    
+    private String payload;
+
+    @Id
+    @GeneratedValue(generator="genkey")
+    @GenericGenerator(name="genkey", strategy="com.realpaas.platform.key.impl.hibernate.KeyedSequenceIdentifierGenerator", 
+        parameters={ @Parameter(name="key", value="record") })
+    @Column(name = "ID", insertable = true, updatable = false, nullable = false)
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    @Column(name = "PAYLOAD", insertable = true, updatable = true, nullable = true, length = 200)
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+}
@@ -62,6 +62,10 @@ public class SequenceEntry implements Serializable {
 
     private long sequenceVersion;
 
+    private Integer sequenceIncrement;
+
+    private Integer sequencePrefetch;
+
     @Id
     @Column(name = "SEQ_NAME", insertable = true, updatable = false, nullable = false, unique = true, length = 200)
     public String getSequenceName() {
@@ -89,5 +93,23 @@ public class SequenceEntry implements Serializable {
     public void setSequenceVersion(long sequenceVersion) {
         this.sequenceVersion = sequenceVersion;
     }
+
+    @Column(name = "SEQ_INCREMENT", insertable = true, updatable = true, nullable = true)
+    public Integer getSequenceIncrement() {
+        return sequenceIncrement;
+    }
+
+    public void setSequenceIncrement(Integer sequenceIncrement) {
+        this.sequenceIncrement = sequenceIncrement;
+    }
+
+    @Column(name = "SEQ_PREFETCH", insertable = true, updatable = true, nullable = true)
+    public Integer getSequencePrefetch() {
+        return sequencePrefetch;
+    }
+
+    public void setSequencePrefetch(Integer sequencePrefetch) {
+        this.sequencePrefetch = sequencePrefetch;
+    }
     
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2011, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.internal.dataobject;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * <p>
+ * 
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * 
+ * </pre>
+ * 
+ * <p><dt><b>Thread Safety:</b></dt> 
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ * 
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ * 
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ * 
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ *  Oct 17, 2026    henry leu   Create the class
+ * </dd>
+ * 
+ * </dl>
+ * @author	henry leu
+ */
+
+@Entity
+@Table(name="PLF_SEQUENCE_FREE_RANGE")
+public class SequenceFreeRange implements Serializable {
+
+    private static final long serialVersionUID = -4326507951727781853L;
+
+    private String sequenceName;
+    
+    private long rangeStart;
+
+    private long rangeEnd;
+
+    @Id
+    @Column(name = "SEQ_NAME", insertable = true, updatable = false, nullable = false, length = 200)
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public void setSequenceName(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    @Id
+    @Column(name = "RANGE_START", insertable = true, updatable = false, nullable = false)
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(long rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    @Column(name = "RANGE_END", insertable = true, updatable = false, nullable = false)
+    public long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(long rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+    
+}
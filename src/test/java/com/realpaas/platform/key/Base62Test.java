@@ -3,6 +3,10 @@
  */
 package com.realpaas.platform.key;
 
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.testng.annotations.Test;
 
 import com.realpaas.platform.test.AbstractTest;
@@ -237,4 +241,268 @@ public class Base62Test extends AbstractTest{
         
     }    
     
+
+    @Test(groups={"all", "ut", "key"})
+    public void encodeTo(){
+        long[] ids = { 0L, 1L, 61L, 62L, 3843L, 3844L, 1234234323L, 839299365868340223L, 839299365868340224L, Long.MAX_VALUE };
+        char[] buffer = new char[Base62.MAX_CODE_LENGTH + 2];
+        StringBuilder sb = new StringBuilder( 32 );
+        for( long id : ids ){
+            String code = legacyEncode( id );
+            assertEquals( Base62.encode( id ), code );
+            assertEquals( Base62.length( id ), code.length() );
+            
+            int length = Base62.encodeTo( id, buffer, 2 );
+            assertEquals( new String( buffer, 2, length ), code );
+            
+            sb.setLength( 0 );
+            sb.append( "id=" );
+            Base62.encodeTo( id, sb );
+            assertEquals( sb.toString(), "id=" + code );
+            
+            assertEquals( Base62.decode( code ), id );
+            assertEquals( Base62.decode( sb, 3, sb.length() ), id );
+            assertTrue( Base62.isBase62( sb, 3, sb.length() ) );
+        }
+        assertEquals( Base62.encode( Long.MAX_VALUE ).length(), Base62.MAX_CODE_LENGTH );
+        assertEquals( Base62.decode( "000Z" ), 35L );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void illegalCodes(){
+        String[] codes = { "", "-1", "a b", "\u00e9", "aZaZaZaZaZaZ", "AzL8n0Y58m8", "zzzzzzzzzzz" };
+        for( String code : codes ){
+            assertTrue( !Base62.isBase62( code ) || code.length()>=Base62.MAX_CODE_LENGTH );
+            try {
+                Base62.decode( code );
+                fail( code + " should not be decoded" );
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+        try {
+            Base62.encode( -1L );
+            fail( "negative id should not be encoded" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void byteBuffers(){
+        long[] ids = { 0L, 61L, 62L, 1234234323L, Long.MAX_VALUE };
+        ByteBuffer[] buffers = { ByteBuffer.allocate( 128 ), ByteBuffer.allocateDirect( 128 ) };
+        byte[] bytes = new byte[Base62.MAX_CODE_LENGTH];
+        long[] decoded = new long[ids.length];
+        for( ByteBuffer buffer : buffers ){
+            for( long id : ids ){
+                buffer.clear();
+                int length = Base62.encodeTo( id, buffer );
+                assertEquals( buffer.position(), length );
+                assertEquals( Base62.decode( buffer, 0, length ), id );
+                assertTrue( Base62.isBase62( buffer, 0, length ) );
+                
+                length = Base62.encodeTo( id, bytes, 0 );
+                assertEquals( new String( bytes, 0, length ), Base62.encode( id ) );
+                assertEquals( Base62.decode( bytes, 0, length ), id );
+            }
+            
+            buffer.clear();
+            int total = Base62.encodeTo( ids, 0, ids.length, buffer, (byte) ',' );
+            assertEquals( buffer.position(), total );
+            assertEquals( Base62.validateTokens( buffer, 0, total, (byte) ',' ), ids.length );
+            assertEquals( Base62.decodeTokens( buffer, 0, total, (byte) ',', decoded, 0 ), ids.length );
+            for( int i=0; i<ids.length; i++ ){
+                assertEquals( decoded[i], ids[i] );
+            }
+            
+            buffer.put( total - 1, (byte) '-' );
+            assertEquals( Base62.validateTokens( buffer, 0, total, (byte) ',' ), -1 );
+            assertEquals( Base62.validateTokens( buffer, 0, 0, (byte) ',' ), -1 );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void fixedWidth(){
+        long[] ids = { 0L, 1L, 61L, 62L, 3843L, 3844L, 1234234323L, 839299365868340223L, 839299365868340224L, Long.MAX_VALUE };
+        char[] buffer = new char[Base62.MAX_CODE_LENGTH + 2];
+        byte[] bytes = new byte[Base62.MAX_CODE_LENGTH];
+        StringBuilder sb = new StringBuilder( 32 );
+        String previous = null;
+        for( long id : ids ){
+            String code = Base62.encodeFixed( id );
+            assertEquals( code.length(), Base62.MAX_CODE_LENGTH );
+            assertTrue( code.endsWith( Base62.encode( id ) ) );
+            assertEquals( Base62.decode( code ), id );
+            assertEquals( Base62.decodeFixed( code, 0, Base62.MAX_CODE_LENGTH ), id );
+            
+            assertEquals( Base62.encodeFixedTo( id, Base62.MAX_CODE_LENGTH, buffer, 2 ), Base62.MAX_CODE_LENGTH );
+            assertEquals( new String( buffer, 2, Base62.MAX_CODE_LENGTH ), code );
+            assertEquals( Base62.encodeFixedTo( id, Base62.MAX_CODE_LENGTH, bytes, 0 ), Base62.MAX_CODE_LENGTH );
+            assertEquals( new String( bytes ), code );
+            sb.setLength( 0 );
+            sb.append( "id=" );
+            assertEquals( Base62.encodeFixedTo( id, Base62.MAX_CODE_LENGTH, sb ).toString(), "id=" + code );
+            assertEquals( Base62.decodeFixed( sb, 3, Base62.MAX_CODE_LENGTH ), id );
+            
+            /*
+             * fixed-width codes sort as their ids, variable-length ones compare the same way
+             */
+            assertEquals( Base62.compare( code, Base62.encode( id ) ), 0 );
+            if( previous!=null ){
+                assertTrue( previous.compareTo( code )<0 );
+                assertTrue( Base62.compare( previous, code )<0 );
+                assertTrue( Base62.compare( code, Base62.encode( Base62.decode( previous ) ) )>0 );
+            }
+            previous = code;
+        }
+        assertEquals( Base62.encodeFixed( 61L, 2 ), "0z" );
+        assertEquals( Base62.encodeFixed( 62L, 2 ), "10" );
+        assertEquals( Base62.encodeFixed( 3843L, 2 ), "zz" );
+        assertTrue( Base62.compare( "z", "10" )<0 );
+        assertTrue( Base62.compare( "0", "000" )==0 );
+        
+        try {
+            Base62.encodeFixed( 3844L, 2 );
+            fail( "id wider than the width should be rejected" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        int[] widths = { 0, Base62.MAX_CODE_LENGTH + 1 };
+        for( int width : widths ){
+            try {
+                Base62.encodeFixed( 1L, width );
+                fail( "width " + width + " should be rejected" );
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void counter(){
+        long[] seeds = { 0L, 3840L, 238320L, 14776330L, 916132830L, Long.MAX_VALUE - 300 };
+        char[] buffer = new char[Base62.MAX_CODE_LENGTH];
+        for( long seed : seeds ){
+            Base62Counter counter = new Base62Counter( seed );
+            for( int i=0; i<300; i++, counter.increment() ){
+                String code = Base62.encode( seed + i );
+                assertEquals( counter.value(), seed + i );
+                assertEquals( counter.toString(), code );
+                assertEquals( new String( buffer, 0, counter.copyTo( buffer, 0 ) ), code );
+            }
+        }
+        
+        long value = 3800L;
+        for( CharSequence code : Base62Counter.range( value, 3900L ) ){
+            assertEquals( code.toString(), Base62.encode( value++ ) );
+        }
+        assertEquals( value, 3900L );
+    }
+    
+    /**
+     * Timing run, out of the unit tests.
+     */
+    @Test(groups={"perf", "key"})
+    public void counterPerformance(){
+        char[] buffer = new char[Base62.MAX_CODE_LENGTH];
+        int times = 1000000;
+        long startMillis = System.currentTimeMillis();
+        long checksum = 0L;
+        for( CharSequence code : Base62Counter.range( 0L, times ) ){
+            checksum += ((Base62Counter) code).copyTo( buffer, 0 );
+        }
+        long took = System.currentTimeMillis() - startMillis;
+        System.out.println( "Counter: it took " + took + " Millisencods to produce " + times + " base62 codes, checksum " + checksum );
+    }
+    
+    /**
+     * Legacy codec against the table-driven one, 3 rounds of 1M codes each.
+     */
+    @Test(groups={"perf", "key"})
+    public void comparePerformance(){
+        int times = 1000000;
+        long startMillis = 0L;
+        long took = 0L;
+        long checksum = 0L;
+        String[] codeArray = new String[times];
+        char[] buffer = new char[Base62.MAX_CODE_LENGTH];
+        
+        for(int round = 0; round < 3; round++) {
+            startMillis = System.currentTimeMillis();
+            for(int i = 0; i < times; i++) {
+                codeArray[i] = legacyEncode( Long.MAX_VALUE - i );
+            }
+            took = System.currentTimeMillis() - startMillis;
+            System.out.println( "Legacy: it took " + took + " Millisencods to covert " + times + " IDs to base62 code" );
+            
+            startMillis = System.currentTimeMillis();
+            for(int i = 0; i < times; i++) {
+                codeArray[i] = Base62.encode( Long.MAX_VALUE - i );
+            }
+            took = System.currentTimeMillis() - startMillis;
+            System.out.println( "Table-driven: it took " + took + " Millisencods to covert " + times + " IDs to base62 code" );
+            
+            startMillis = System.currentTimeMillis();
+            for(int i = 0; i < times; i++) {
+                checksum += Base62.encodeTo( Long.MAX_VALUE - i, buffer, 0 );
+            }
+            took = System.currentTimeMillis() - startMillis;
+            System.out.println( "Allocation-free: it took " + took + " Millisencods to covert " + times + " IDs to base62 code" );
+            
+            startMillis = System.currentTimeMillis();
+            for(int i = 0; i < times; i++) {
+                checksum += legacyDecode( codeArray[i] );
+            }
+            took = System.currentTimeMillis() - startMillis;
+            System.out.println( "Legacy: it took " + took + " Millisencods to covert " + times + " base62 codes to ID" );
+            
+            startMillis = System.currentTimeMillis();
+            for(int i = 0; i < times; i++) {
+                checksum += Base62.decode( codeArray[i] );
+            }
+            took = System.currentTimeMillis() - startMillis;
+            System.out.println( "Table-driven: it took " + took + " Millisencods to covert " + times + " base62 codes to ID" );
+        }
+        System.out.println( "checksum: " + checksum );
+    }
+    
+    /*
+     * The HashMap and StringBuilder.insert based codec which Base62 used before, kept as baseline.
+     */
+    private static final char[] LEGACY_TABLE = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    
+    private static final Map<Character, Integer> LEGACY_MAP = new HashMap<Character, Integer>(100);
+    
+    static {
+        for(int i=0; i<LEGACY_TABLE.length; i++){
+            LEGACY_MAP.put( Character.valueOf( LEGACY_TABLE[i] ), Integer.valueOf( i ) );
+        }
+    }
+    
+    private static String legacyEncode(long id){
+        StringBuilder sb = new StringBuilder( 10 );
+        if( id==0 ){
+            sb.append( LEGACY_TABLE[0] );
+        }
+        while ( id>0 ){
+            sb.insert( 0, LEGACY_TABLE[(int)(id % 62)] );
+            id = id / 62;
+        }
+        return sb.toString();
+    }
+    
+    private static long legacyDecode(String code){
+        long id = 0;
+        long radix = 1;
+        for( int i=code.length()-1, position=0; i>-1; i--, position++ ){
+            Integer num = LEGACY_MAP.get( Character.valueOf( code.charAt( i ) ) );
+            if(position!=0){
+                radix = radix * 62;
+            }
+            id += radix * num.longValue();
+        }
+        return id;
+    }
+    
 }
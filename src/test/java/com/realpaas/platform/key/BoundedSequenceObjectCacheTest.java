@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.BoundedSequenceObjectCache;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+package com.realpaas.platform.key;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class BoundedSequenceObjectCacheTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void coldKeysDoNotPushOutHotOnes(){
+        BoundedSequenceObjectCache cache = new BoundedSequenceObjectCache( 100, 0 );
+        for( int round=0; round<20; round++ ){
+            for( int i=0; i<50; i++ ){
+                String key = "hot." + i;
+                if( cache.get( key )==null ){
+                    cache.putIfAbsent( key, new SequenceObject( key, 0, 100 ) );
+                }
+            }
+        }
+        /*
+         * hot keys keep being used while a flood of cold keys comes
+         */
+        for( int i=0; i<10000; i++ ){
+            String key = i % 2==0 ? "cold." + i : "hot." + (i / 2 % 50);
+            if( cache.get( key )==null ){
+                cache.putIfAbsent( key, new SequenceObject( key, 0, 100 ) );
+            }
+            assertTrue( cache.size()<=100 );
+        }
+        int hotCount = 0;
+        for( int i=0; i<50; i++ ){
+            if( cache.get( "hot." + i )!=null ){
+                hotCount++;
+            }
+        }
+        System.out.println( "hot keys kept: " + hotCount + ", evictions: " + cache.getEvictionCount() 
+                + ", rejections: " + cache.getRejectionCount() + ", hit rate: " + cache.getHitRate() );
+        assertTrue( hotCount>=45 );
+        assertTrue( cache.getRejectionCount()>0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void declinedKeyKeepsItsSegment(){
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        BoundedSequenceObjectCache cache = new BoundedSequenceObjectCache( 10, 0 );
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        generator.setSequenceCache( cache );
+        for( int round=0; round<20; round++ ){
+            for( int i=0; i<10; i++ ){
+                generator.nextValue( "hot." + i );
+            }
+        }
+        
+        /*
+         * a warm key is declined for it is used no more often than the hot ones, but it 
+         * takes its values from one segment instead of reserving one for each value
+         */
+        long updateCount = persister.getUpdateCount();
+        long first = generator.nextValue( "warm" );
+        for( int i=1; i<50; i++ ){
+            generator.nextValue( "hot." + i % 10 );
+            assertEquals( generator.nextValue( "warm" ), first + i );
+        }
+        assertTrue( cache.getRejectionCount()>0 );
+        assertEquals( cache.size(), 10 );
+        assertEquals( persister.getUpdateCount() - updateCount, 0L );
+        
+        assertEquals( cache.remove( "warm" ).getKey(), "warm" );
+        assertEquals( cache.get( "warm" ), null );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void idleKeysAreEvicted() throws Exception {
+        BoundedSequenceObjectCache cache = new BoundedSequenceObjectCache( 100, 50 );
+        for( int i=0; i<10; i++ ){
+            String key = "idle." + i;
+            assertEquals( cache.putIfAbsent( key, new SequenceObject( key, 0, 100 ) ), null );
+        }
+        assertEquals( cache.size(), 10 );
+        Thread.sleep( 100 );
+        cache.cleanUp();
+        assertEquals( cache.size(), 0 );
+        assertEquals( cache.getExpirationCount(), 10L );
+    }
+    
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.CompactSequenceStore;
+import com.realpaas.platform.key.impl.ConcurrentSequenceObjectCache;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class CompactSequenceStoreTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void getOrCreate(){
+        CompactSequenceStore store = new CompactSequenceStore( 16 );
+        int count = 20000;
+        for( int i=0; i<count; i++ ){
+            assertEquals( store.getOrCreate( key( i ), i ), i );
+        }
+        assertEquals( store.size(), count );
+        for( int i=0; i<count; i++ ){
+            assertEquals( store.find( key( i ) ), i );
+            assertEquals( store.getKey( i ), key( i ) );
+            assertEquals( store.getPointer( i ), (long) i );
+            assertTrue( !store.isLoaded( i ) );
+        }
+        assertEquals( store.find( "tenant.absent" ), -1 );
+        assertEquals( store.find( key( 1 ) + "x" ), -1 );
+        
+        String unicode = "\u79df\u6237.\u00e9.\ud83d\ude00";
+        int id = store.getOrCreate( unicode, 0 );
+        assertEquals( store.find( unicode ), id );
+        assertEquals( store.getKey( id ), unicode );
+        
+        store.sync( id, 100, 200 );
+        assertTrue( store.isLoaded( id ) );
+        assertEquals( store.nextValue( id ), 101L );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void nextValue() throws Exception {
+        final KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( new InMemorySequenceObjectPersister() );
+        generator.setCompactStore( new CompactSequenceStore() );
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        
+        Thread[] threads = new Thread[8];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for( int i=0; i<5000; i++ ){
+                        long seq = generator.nextValue( "test." + (i % 3) );
+                        assertTrue( sequenceMap.put( seq * 4 + i % 3, getName() )==null );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals( sequenceMap.size(), threads.length * 5000 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void syncLowerSegment() throws Exception {
+        final CompactSequenceStore store = new CompactSequenceStore( 16 );
+        final int id = store.getOrCreate( "order", 0 );
+        store.sync( id, 1000000L, 1000000L );
+        final int segments = 1000;
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[3];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    while( !done.get() ) {
+                        long seq = store.nextValue( id );
+                        if( seq!=SequenceObject.EXHAUSTED && sequenceMap.put( seq, getName() )!=null ){
+                            sequenceMap.put( -1L, "duplicate " + seq );
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        
+        /*
+         * replace every exhausted segment with a lower one, as a claimed free range does
+         */
+        for( int i=0; i<segments; i++ ){
+            while( !store.reachValve( id ) ){
+                Thread.yield();
+            }
+            long start = (segments - i) * 20L;
+            store.sync( id, start, start + 10 );
+            assertTrue( store.isLoaded( id ) );
+        }
+        while( !store.reachValve( id ) ){
+            Thread.yield();
+        }
+        done.set( true );
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals( sequenceMap.get( -1L ), null );
+        assertEquals( sequenceMap.size(), segments * 10 );
+    }
+    
+    /**
+     * Heap taken per key by 200k keys in each store, measured from the used memory.
+     */
+    @Test(groups={"perf", "key"})
+    public void memoryPerKey(){
+        int count = 200000;
+        
+        long before = usedMemory();
+        ConcurrentSequenceObjectCache cache = new ConcurrentSequenceObjectCache();
+        for( int i=0; i<count; i++ ){
+            String key = key( i );
+            cache.putIfAbsent( key, new SequenceObject( key, i, i + 100 ) );
+        }
+        long cacheBytes = usedMemory() - before;
+        assertEquals( cache.size(), count );
+        cache = null;
+        
+        before = usedMemory();
+        CompactSequenceStore store = new CompactSequenceStore( count );
+        for( int i=0; i<count; i++ ){
+            int id = store.getOrCreate( key( i ), i );
+            store.sync( id, i, i + 100 );
+        }
+        long storeBytes = usedMemory() - before;
+        assertEquals( store.size(), count );
+        
+        System.out.println( "SequenceObject cache: " + cacheBytes / count + " bytes per key, compact store: " 
+                + storeBytes / count + " bytes per key (key \"" + key( count - 1 ) + "\")" );
+    }
+    
+    private static String key(int i) {
+        return "tenant" + (i / 100) + ".order." + (i % 100);
+    }
+    
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for( int i=0; i<3; i++ ){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import javax.sql.DataSource;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+import com.realpaas.platform.key.impl.rdbms.ContentionMonitor;
+import com.realpaas.platform.key.impl.rdbms.SequenceMovedException;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl.ConcurrencyStrategy;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ConcurrencyStrategyTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void hysteresis() throws Exception {
+        ContentionMonitor monitor = new ContentionMonitor( ConcurrencyStrategy.OPTIMISTIC, true );
+        monitor.setWindow( 4 );
+        monitor.setProbeInterval( 2 );
+        
+        /*
+         * conflicts escalate the key step by step, each strategy is kept for a window
+         */
+        for( int i=0; i<4; i++ ){
+            assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.OPTIMISTIC );
+            monitor.recordConflict( "order", ConcurrencyStrategy.OPTIMISTIC );
+        }
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.PESSIMISTIC );
+        assertEquals( monitor.strategyOf( "invoice" ), ConcurrencyStrategy.OPTIMISTIC );
+        assertTrue( !monitor.shouldProbe( "order" ) );
+        assertTrue( monitor.shouldProbe( "order" ) );
+        for( int i=0; i<4; i++ ){
+            monitor.recordConflict( "order", ConcurrencyStrategy.PESSIMISTIC );
+        }
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.ATOMIC );
+        
+        /*
+         * the rate falls below the threshold but not well below it, so the key stays atomic
+         */
+        monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.ATOMIC );
+        for( int i=0; i<4; i++ ){
+            monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        }
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.PESSIMISTIC );
+        for( int i=0; i<12 && monitor.strategyOf( "order" )!=ConcurrencyStrategy.OPTIMISTIC; i++ ){
+            monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        }
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.OPTIMISTIC );
+        
+        assertEquals( monitor.getConflictCount( ConcurrencyStrategy.OPTIMISTIC ), 4 );
+        assertEquals( monitor.getConflictCount( ConcurrencyStrategy.PESSIMISTIC ), 4 );
+        assertTrue( monitor.getThroughput( ConcurrencyStrategy.OPTIMISTIC )>0 );
+        
+        ContentionMonitor fixed = new ContentionMonitor( ConcurrencyStrategy.ATOMIC, false );
+        for( int i=0; i<100; i++ ){
+            fixed.recordConflict( "order", ConcurrencyStrategy.ATOMIC );
+        }
+        assertEquals( fixed.strategyOf( "order" ), ConcurrencyStrategy.ATOMIC );
+        assertTrue( !fixed.shouldProbe( "order" ) );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void calmKeysAreDropped() throws Exception {
+        ContentionMonitor monitor = new ContentionMonitor( ConcurrencyStrategy.OPTIMISTIC, true );
+        monitor.setWindow( 4 );
+        
+        /*
+         * keys without conflicts are never tracked
+         */
+        for( int i=0; i<1000; i++ ){
+            monitor.recordUpdate( "day." + i, ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        }
+        assertEquals( monitor.getTrackedKeyCount(), 0 );
+        
+        /*
+         * a conflicting key is tracked until it is back to optimistic updates and calm again
+         */
+        for( int i=0; i<4; i++ ){
+            monitor.recordConflict( "order", ConcurrencyStrategy.OPTIMISTIC );
+        }
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.PESSIMISTIC );
+        assertEquals( monitor.getTrackedKeyCount(), 1 );
+        for( int i=0; i<100 && monitor.getTrackedKeyCount()>0; i++ ){
+            monitor.recordUpdate( "order", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        }
+        assertEquals( monitor.getTrackedKeyCount(), 0 );
+        assertEquals( monitor.strategyOf( "order" ), ConcurrencyStrategy.OPTIMISTIC );
+        
+        /*
+         * an optimistic key with a moderate conflict rate stays tracked
+         */
+        monitor.recordConflict( "invoice", ConcurrencyStrategy.OPTIMISTIC );
+        for( int i=0; i<3; i++ ){
+            monitor.recordUpdate( "invoice", ConcurrencyStrategy.OPTIMISTIC, true, 1000L );
+        }
+        assertEquals( monitor.strategyOf( "invoice" ), ConcurrencyStrategy.OPTIMISTIC );
+        assertEquals( monitor.getTrackedKeyCount(), 1 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void strategies() throws Exception {
+        for( ConcurrencyStrategy strategy : ConcurrencyStrategy.values() ){
+            H2SequenceRegistry.createDataSource( "strategy" + strategy );
+            SequenceObjectPersisterImpl persister = newPersister( "strategy" + strategy, strategy );
+            persister.createSequenceObject( "order", 1000L );
+            
+            SequenceObject so = new SequenceObject( "order", 0, 0, 100 );
+            persister.updateSequenceObject( "order", so );
+            assertEquals( so.getPointer(), 1000 );
+            assertEquals( so.getValve(), 1100 );
+            
+            /*
+             * the increment of the row takes effect
+             */
+            persister.updateSegmentConfig( "order", 50, null );
+            assertEquals( persister.loadSegmentConfig( "order" ).getIncrement(), Integer.valueOf( 50 ) );
+            assertEquals( persister.loadSegmentConfig( "order" ).getPrefetch(), null );
+            persister.updateSequenceObject( "order", so );
+            assertEquals( so.getPointer(), 1100 );
+            assertEquals( so.getValve(), 1150 );
+            assertEquals( so.getIncrement(), 50 );
+            assertEquals( persister.getConcurrencyStrategy( "order" ), strategy.toString() );
+            
+            persister.fenceSequenceObject( "order" );
+            try {
+                persister.updateSequenceObject( "order", so );
+                fail( "a moved row should not be advanced" );
+            }
+            catch (SequenceMovedException e) {
+                assertEquals( e.getFencedValue(), 1150 );
+            }
+            try {
+                persister.updateSequenceObject( "missing", so );
+                fail( "a missing row should not be advanced" );
+            }
+            catch (SequenceGeneratorException e) {
+            }
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void atomicIncrementMatchesOneKey() throws Exception {
+        SequenceObjectPersisterImpl persister = newPersister( "atomicLikeKey", ConcurrencyStrategy.ATOMIC );
+        persister.createSequenceObject( "orderXitem", 5000L );
+        persister.createSequenceObject( "order_item", 1000L );
+        
+        /*
+         * a wildcard in the key doesn't increment the rows which it would match as a pattern
+         */
+        SequenceObject so = new SequenceObject( "order_item", 0, 0, 100 );
+        for( int i=0; i<3; i++ ){
+            persister.updateSequenceObject( "order_item", so );
+            assertEquals( so.getPointer(), 1000L + i * 100 );
+            assertEquals( so.getValve(), 1100L + i * 100 );
+        }
+        SequenceObject other = new SequenceObject( "orderXitem", 0, 0, 100 );
+        persister.updateSequenceObject( "orderXitem", other );
+        assertEquals( other.getPointer(), 5000L );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void compareStrategies() throws Exception {
+        for( final ConcurrencyStrategy strategy : ConcurrencyStrategy.values() ){
+            ContentionHarness harness = new ContentionHarness( "contention" + strategy );
+            harness.setLoadShape( ContentionHarness.LoadShape.HOT_KEY );
+            harness.setIncrement( 10 );
+            harness.setPersisterFactory( new ContentionHarness.PersisterFactory() {
+                @Override
+                public SequenceObjectPersister createPersister(int node, DataSource dataSource) {
+                    return newPersister( dataSource, new ContentionMonitor( strategy, false ) );
+                }
+            } );
+            ContentionHarness.Report report = harness.run();
+            System.out.println( strategy + ": " + report );
+            assertEquals( report.getDuplicates(), 0 );
+            
+            /*
+             * refill conflicts of locking strategies come only from nodes racing to create a key
+             */
+            if( strategy!=ConcurrencyStrategy.OPTIMISTIC ){
+                assertEquals( report.getFailures(), 0 );
+            }
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void adaptive() throws Exception {
+        final SequenceObjectPersisterImpl[] persisters = new SequenceObjectPersisterImpl[4];
+        ContentionHarness harness = new ContentionHarness( "contentionAdaptive" );
+        harness.setNodeCount( persisters.length );
+        harness.setLoadShape( ContentionHarness.LoadShape.HOT_KEY );
+        harness.setIncrement( 10 );
+        harness.setPersisterFactory( new ContentionHarness.PersisterFactory() {
+            @Override
+            public SequenceObjectPersister createPersister(int node, DataSource dataSource) {
+                persisters[node] = newPersister( dataSource, new ContentionMonitor( ConcurrencyStrategy.OPTIMISTIC, true ) );
+                return persisters[node];
+            }
+        } );
+        ContentionHarness.Report report = harness.run();
+        System.out.println( "adaptive: " + report );
+        assertEquals( report.getDuplicates(), 0 );
+        for( SequenceObjectPersisterImpl persister : persisters ){
+            System.out.println( persister.getConcurrencyStats() );
+        }
+    }
+    
+    private SequenceObjectPersisterImpl newPersister(String databaseName, ConcurrencyStrategy strategy) throws Exception {
+        SequenceObjectPersisterImpl persister = newPersister( H2SequenceRegistry.createDataSource( databaseName ), new ContentionMonitor( strategy, false ) );
+        return persister;
+    }
+    
+    private static SequenceObjectPersisterImpl newPersister(DataSource dataSource, ContentionMonitor monitor) {
+        SequenceObjectPersisterImpl persister = new SequenceObjectPersisterImpl();
+        persister.setDataSource( dataSource );
+        persister.setKeyConfigEnabled( true );
+        persister.setContentionMonitor( monitor );
+        persister.init();
+        return persister;
+    }
+    
+}
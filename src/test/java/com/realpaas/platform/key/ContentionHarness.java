@@ -0,0 +1,434 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SegmentConfig;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+
+/**
+ * <p>
+ * Harness which simulates many application nodes sharing one sequence registry in a single JVM.
+ * Every node is an independent generator and persister stack with its own connection pool, and all
+ * nodes share one embedded H2 database. It drives a load shape and reports throughput, refills and
+ * their conflicts, retries, latency percentiles and duplicates across all nodes.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ * ContentionHarness harness = new ContentionHarness( "contention" );
+ * harness.setNodeCount( 8 );
+ * harness.setLoadShape( ContentionHarness.LoadShape.HOT_KEY );
+ * System.out.println( harness.run() );
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ContentionHarness {
+    
+    /**
+     * Shapes of load which threads put on keys.
+     */
+    public static enum LoadShape {
+        /**
+         * every operation picks a random key
+         */
+        UNIFORM,
+        /**
+         * most operations go to the first key
+         */
+        HOT_KEY,
+        /**
+         * operations come in bursts with pauses between them
+         */
+        BURST
+    }
+    
+    /**
+     * Factory of the persister of a node, it decides the strategy which is evaluated.
+     */
+    public static interface PersisterFactory {
+        SequenceObjectPersister createPersister(int node, DataSource dataSource);
+    }
+    
+    private final String databaseName;
+    private int nodeCount = 4;
+    private int threadsPerNode = 4;
+    private int poolSize = 4;
+    private int keyCount = 10;
+    private int operationsPerThread = 2000;
+    private int increment = 100;
+    private LoadShape loadShape = LoadShape.UNIFORM;
+    private double hotKeyRatio = 0.9;
+    private int burstSize = 200;
+    private long burstPauseMillis = 5;
+    private PersisterFactory persisterFactory = new PersisterFactory() {
+        @Override
+        public SequenceObjectPersister createPersister(int node, DataSource dataSource) {
+            return H2SequenceRegistry.createPersister( dataSource );
+        }
+    };
+    
+    public ContentionHarness(String databaseName) {
+        this.databaseName = databaseName;
+    }
+    
+    /**
+     * Run the load on a new registry and report it.
+     */
+    public Report run() throws Exception {
+        H2SequenceRegistry.createDataSource( databaseName );
+        JdbcConnectionPool[] pools = new JdbcConnectionPool[nodeCount];
+        CountingPersister[] persisters = new CountingPersister[nodeCount];
+        KeyedSequenceGeneratorImpl[] generators = new KeyedSequenceGeneratorImpl[nodeCount];
+        for( int n=0; n<nodeCount; n++ ){
+            pools[n] = JdbcConnectionPool.create( H2SequenceRegistry.urlOf( databaseName ), "", "" );
+            pools[n].setMaxConnections( poolSize );
+            persisters[n] = new CountingPersister( persisterFactory.createPersister( n, pools[n] ) );
+            generators[n] = new KeyedSequenceGeneratorImpl();
+            generators[n].setPersister( persisters[n] );
+            generators[n].setIncrement( increment );
+        }
+        
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicLong failures = new AtomicLong();
+        final int[][] keys = new int[nodeCount * threadsPerNode][operationsPerThread];
+        final long[][] values = new long[keys.length][operationsPerThread];
+        final long[][] latencies = new long[keys.length][operationsPerThread];
+        Thread[] threads = new Thread[keys.length];
+        for( int t=0; t<threads.length; t++ ){
+            final int index = t;
+            final KeyedSequenceGeneratorImpl generator = generators[t / threadsPerNode];
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random( index );
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for( int i=0; i<operationsPerThread; i++ ){
+                        int key = nextKey( random );
+                        long begin = System.nanoTime();
+                        try {
+                            values[index][i] = generator.nextValue( "key" + key );
+                            keys[index][i] = key;
+                        }
+                        catch (SequenceGeneratorException e) {
+                            failures.incrementAndGet();
+                            keys[index][i] = -1;
+                        }
+                        latencies[index][i] = System.nanoTime() - begin;
+                        if( loadShape==LoadShape.BURST && (i + 1) % burstSize==0 ){
+                            pause();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        for( JdbcConnectionPool pool : pools ){
+            pool.dispose();
+        }
+        
+        Report report = new Report();
+        report.operations = (long) threads.length * operationsPerThread;
+        report.failures = failures.get();
+        report.elapsedMillis = elapsedNanos / 1000000;
+        report.throughput = report.operations * 1000000000.0 / elapsedNanos;
+        for( int n=0; n<nodeCount; n++ ){
+            report.refills += persisters[n].refills.get();
+            report.refillConflicts += persisters[n].conflicts.get();
+            report.retries += generators[n].getRetryCount();
+            report.retrySleepMillis += generators[n].getRetrySleepMillis();
+        }
+        report.duplicates = countDuplicates( keys, values );
+        long[] allLatencies = new long[threads.length * operationsPerThread];
+        for( int t=0; t<threads.length; t++ ){
+            System.arraycopy( latencies[t], 0, allLatencies, t * operationsPerThread, operationsPerThread );
+        }
+        Arrays.sort( allLatencies );
+        report.p50Micros = percentile( allLatencies, 0.50 );
+        report.p99Micros = percentile( allLatencies, 0.99 );
+        report.p999Micros = percentile( allLatencies, 0.999 );
+        report.maxMicros = allLatencies[allLatencies.length - 1] / 1000;
+        return report;
+    }
+    
+    private int nextKey(Random random) {
+        if( loadShape==LoadShape.HOT_KEY && (keyCount==1 || random.nextDouble()<hotKeyRatio) ){
+            return 0;
+        }
+        return random.nextInt( keyCount );
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep( burstPauseMillis );
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private long countDuplicates(int[][] keys, long[][] values) {
+        long[][] valuesByKey = new long[keyCount][];
+        int[] counts = new int[keyCount];
+        for( int t=0; t<keys.length; t++ ){
+            for( int i=0; i<keys[t].length; i++ ){
+                if( keys[t][i]>=0 ){
+                    counts[keys[t][i]]++;
+                }
+            }
+        }
+        for( int k=0; k<keyCount; k++ ){
+            valuesByKey[k] = new long[counts[k]];
+            counts[k] = 0;
+        }
+        for( int t=0; t<keys.length; t++ ){
+            for( int i=0; i<keys[t].length; i++ ){
+                int key = keys[t][i];
+                if( key>=0 ){
+                    valuesByKey[key][counts[key]++] = values[t][i];
+                }
+            }
+        }
+        long duplicates = 0;
+        for( long[] keyValues : valuesByKey ){
+            Arrays.sort( keyValues );
+            for( int i=1; i<keyValues.length; i++ ){
+                if( keyValues[i]==keyValues[i - 1] ){
+                    duplicates++;
+                }
+            }
+        }
+        return duplicates;
+    }
+    
+    private static long percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.min( sortedNanos.length - 1, Math.ceil( sortedNanos.length * percentile ) - 1 );
+        return sortedNanos[Math.max( 0, index )] / 1000;
+    }
+    
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    public void setThreadsPerNode(int threadsPerNode) {
+        this.threadsPerNode = threadsPerNode;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public void setKeyCount(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    public void setOperationsPerThread(int operationsPerThread) {
+        this.operationsPerThread = operationsPerThread;
+    }
+
+    public void setIncrement(int increment) {
+        this.increment = increment;
+    }
+
+    public void setLoadShape(LoadShape loadShape) {
+        this.loadShape = loadShape;
+    }
+
+    public void setHotKeyRatio(double hotKeyRatio) {
+        this.hotKeyRatio = hotKeyRatio;
+    }
+
+    public void setBurstSize(int burstSize) {
+        this.burstSize = burstSize;
+    }
+
+    public void setBurstPauseMillis(long burstPauseMillis) {
+        this.burstPauseMillis = burstPauseMillis;
+    }
+
+    public void setPersisterFactory(PersisterFactory persisterFactory) {
+        this.persisterFactory = persisterFactory;
+    }
+
+    /**
+     * Result of a run.
+     */
+    public static final class Report {
+        private long operations;
+        private long failures;
+        private long elapsedMillis;
+        private double throughput;
+        private long refills;
+        private long refillConflicts;
+        private long retries;
+        private long retrySleepMillis;
+        private long p50Micros;
+        private long p99Micros;
+        private long p999Micros;
+        private long maxMicros;
+        private long duplicates;
+        
+        public long getOperations() {
+            return operations;
+        }
+        
+        public long getFailures() {
+            return failures;
+        }
+        
+        public double getThroughput() {
+            return throughput;
+        }
+        
+        public long getRefills() {
+            return refills;
+        }
+        
+        public long getRefillConflicts() {
+            return refillConflicts;
+        }
+        
+        public long getRetries() {
+            return retries;
+        }
+        
+        public long getRetrySleepMillis() {
+            return retrySleepMillis;
+        }
+        
+        public long getP99Micros() {
+            return p99Micros;
+        }
+        
+        public long getDuplicates() {
+            return duplicates;
+        }
+        
+        @Override
+        public String toString() {
+            return "Report [ operations=" + operations + ", failures=" + failures + ", elapsed=" + elapsedMillis + "ms"
+                    + ", throughput=" + Math.round( throughput ) + "/s, refills=" + refills + ", refillConflicts=" + refillConflicts 
+                    + ", retries=" + retries + ", retrySleep=" + retrySleepMillis + "ms, p50=" + p50Micros + "us, p99=" + p99Micros 
+                    + "us, p99.9=" + p999Micros + "us, max=" + maxMicros + "us, duplicates=" + duplicates + " ]";
+        }
+    }
+    
+    /**
+     * Persister which counts refills and their failures of a node.
+     */
+    private static final class CountingPersister implements SequenceObjectPersister {
+        private final SequenceObjectPersister persister;
+        private final AtomicLong refills = new AtomicLong();
+        private final AtomicLong conflicts = new AtomicLong();
+        
+        CountingPersister(SequenceObjectPersister persister) {
+            this.persister = persister;
+        }
+
+        @Override
+        public SequenceObject loadSequenceObject(String storedKey) {
+            return persister.loadSequenceObject( storedKey );
+        }
+
+        @Override
+        public void createSequenceObject(String storedKey, Long value) {
+            try {
+                persister.createSequenceObject( storedKey, value );
+            }
+            catch (SequenceGeneratorException e) {
+                conflicts.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+            refills.incrementAndGet();
+            try {
+                persister.updateSequenceObject( storedKey, cachedSo );
+            }
+            catch (SequenceGeneratorException e) {
+                conflicts.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo) {
+            try {
+                boolean supported = persister.createOrUpdateSequenceObject( storedKey, cachedSo );
+                if( supported ){
+                    refills.incrementAndGet();
+                }
+                return supported;
+            }
+            catch (SequenceGeneratorException e) {
+                conflicts.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public void releaseRange(String storedKey, long pointer, long valve) {
+            persister.releaseRange( storedKey, pointer, valve );
+        }
+
+        @Override
+        public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch) {
+            persister.updateSegmentConfig( storedKey, increment, prefetch );
+        }
+        
+        @Override
+        public SegmentConfig loadSegmentConfig(String storedKey) {
+            return persister.loadSegmentConfig( storedKey );
+        }
+    }
+}
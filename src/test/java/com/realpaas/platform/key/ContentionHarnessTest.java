@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import javax.sql.DataSource;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+import com.realpaas.platform.key.impl.rdbms.SplitKeySequenceObjectPersister;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ContentionHarnessTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void loadShapes() throws Exception {
+        for( ContentionHarness.LoadShape loadShape : ContentionHarness.LoadShape.values() ){
+            ContentionHarness harness = new ContentionHarness( "shape" + loadShape );
+            harness.setLoadShape( loadShape );
+            check( loadShape.toString(), harness.run() );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void compareIncrements() throws Exception {
+        for( int increment : new int[] { 10, 100, 1000 } ){
+            ContentionHarness harness = new ContentionHarness( "increment" + increment );
+            harness.setLoadShape( ContentionHarness.LoadShape.HOT_KEY );
+            harness.setIncrement( increment );
+            check( "increment " + increment, harness.run() );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void compareSplitKeys() throws Exception {
+        ContentionHarness harness = new ContentionHarness( "split" );
+        harness.setLoadShape( ContentionHarness.LoadShape.HOT_KEY );
+        harness.setIncrement( 10 );
+        harness.setPersisterFactory( new ContentionHarness.PersisterFactory() {
+            @Override
+            public SequenceObjectPersister createPersister(int node, DataSource dataSource) {
+                SplitKeySequenceObjectPersister persister = new SplitKeySequenceObjectPersister();
+                persister.setPersister( H2SequenceRegistry.createPersister( dataSource ) );
+                persister.setBlockSize( 10 );
+                persister.setAffinity( node );
+                persister.setAutoSplitThreshold( 5 );
+                return persister;
+            }
+        } );
+        check( "split keys", harness.run() );
+    }
+    
+    private void check(String name, ContentionHarness.Report report) {
+        System.out.println( name + ": " + report );
+        
+        /*
+         * failures after all retries are expected under heavy contention with small increments, 
+         * they are reported but a value must never be issued twice
+         */
+        assertEquals( report.getDuplicates(), 0 );
+        assertEquals( report.getOperations(), 32000 );
+    }
+    
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.rdbms.SequenceMovedException;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class CreateOrUpdateSequenceObjectTest extends AbstractTest{
+
+    private static final int KEY_COUNT = 200;
+
+    private static final int THREAD_COUNT = 8;
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void createOrUpdate() throws Exception {
+        H2SequenceRegistry.createDataSource( "upsertRow" );
+        SequenceObjectPersisterImpl persister = newPersister( "upsertRow" );
+        
+        SequenceObject so = new SequenceObject( "new", 0, 1000, 1000 );
+        assertTrue( persister.createOrUpdateSequenceObject( "new", so ) );
+        assertEquals( so.getPointer(), 0 );
+        assertEquals( so.getValve(), 1000 );
+        
+        persister.createSequenceObject( "existing", 500L );
+        so = new SequenceObject( "existing", 0, 1000, 1000 );
+        assertTrue( persister.createOrUpdateSequenceObject( "existing", so ) );
+        assertEquals( so.getPointer(), 500 );
+        assertEquals( so.getValve(), 1500 );
+        assertEquals( persister.loadSequenceObject( "existing" ).getValve(), 1500 );
+        
+        /*
+         * a moved row is never advanced
+         */
+        persister.fenceSequenceObject( "existing" );
+        try {
+            persister.createOrUpdateSequenceObject( "existing", new SequenceObject( "existing", 0, 1000, 1000 ) );
+            fail( "a moved row should not be reserved from" );
+        }
+        catch (SequenceMovedException e) {
+            assertEquals( e.getFencedValue(), 1500 );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void firstTouchRace() throws Exception {
+        H2SequenceRegistry.createDataSource( "upsertRace" );
+        final KeyedSequenceGeneratorImpl generatorA = TestSequenceGenerators.newGenerator( newPersister( "upsertRace" ), 10, 0 );
+        final KeyedSequenceGeneratorImpl generatorB = TestSequenceGenerators.newGenerator( newPersister( "upsertRace" ), 10, 0 );
+        final Set<String> values = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        List<Thread> threads = new ArrayList<Thread>();
+        for( int t=0; t<THREAD_COUNT; t++ ){
+            final KeyedSequenceGeneratorImpl generator = t % 2==0 ? generatorA : generatorB;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for( int i=0; i<KEY_COUNT; i++ ){
+                            String key = "tenant" + i;
+                            if( !values.add( key + ":" + generator.nextValue( key ) ) ){
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            thread.start();
+            threads.add( thread );
+        }
+        start.countDown();
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        
+        /*
+         * both nodes create the same new keys at the same time without any conflict
+         */
+        assertEquals( failures.get(), 0 );
+        assertEquals( values.size(), THREAD_COUNT * KEY_COUNT );
+        assertEquals( generatorA.getRetryCount(), 0 );
+        assertEquals( generatorB.getRetryCount(), 0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void upsertSqlOfDialects() throws Exception {
+        /*
+         * parameters are bound in the same order for every dialect: key, valve, increment
+         */
+        SequenceObjectPersisterImpl persister = new SequenceObjectPersisterImpl();
+        persister.init();
+        assertEquals( persister.getUpsertSql(), null );
+        
+        persister.setUpsertDialect( SequenceObjectPersisterImpl.UpsertDialect.MYSQL );
+        persister.init();
+        assertEquals( persister.getUpsertSql(), "INSERT INTO PLF_SEQUENCE_REGISTRY ( SEQ_NAME, SEQ_VALUE, SEQ_VERSION ) VALUES ( ?, ?, 0 )"
+                + " ON DUPLICATE KEY UPDATE SEQ_VALUE = CASE WHEN SEQ_VERSION = -1 THEN SEQ_VALUE ELSE SEQ_VALUE + ? END,"
+                + " SEQ_VERSION = CASE WHEN SEQ_VERSION = -1 THEN -1 ELSE SEQ_VERSION + 1 END" );
+        
+        persister.setUpsertDialect( SequenceObjectPersisterImpl.UpsertDialect.POSTGRESQL );
+        persister.init();
+        assertEquals( persister.getUpsertSql(), "INSERT INTO PLF_SEQUENCE_REGISTRY AS R ( SEQ_NAME, SEQ_VALUE, SEQ_VERSION ) VALUES ( ?, ?, 0 )"
+                + " ON CONFLICT ( SEQ_NAME ) DO UPDATE SET SEQ_VALUE = CASE WHEN R.SEQ_VERSION = -1 THEN R.SEQ_VALUE ELSE R.SEQ_VALUE + ? END,"
+                + " SEQ_VERSION = CASE WHEN R.SEQ_VERSION = -1 THEN -1 ELSE R.SEQ_VERSION + 1 END"
+                + " RETURNING SEQ_VALUE, SEQ_VERSION" );
+        
+        /*
+         * the returned columns match the ones of the select, segment configuration included
+         */
+        persister.setSequenceSchemaName( "KEYS" );
+        persister.setKeyConfigEnabled( true );
+        persister.init();
+        assertEquals( persister.getUpsertSql(), "INSERT INTO KEYS.PLF_SEQUENCE_REGISTRY AS R ( SEQ_NAME, SEQ_VALUE, SEQ_VERSION ) VALUES ( ?, ?, 0 )"
+                + " ON CONFLICT ( SEQ_NAME ) DO UPDATE SET SEQ_VALUE = CASE WHEN R.SEQ_VERSION = -1 THEN R.SEQ_VALUE ELSE R.SEQ_VALUE + ? END,"
+                + " SEQ_VERSION = CASE WHEN R.SEQ_VERSION = -1 THEN -1 ELSE R.SEQ_VERSION + 1 END"
+                + " RETURNING SEQ_VALUE, SEQ_VERSION, SEQ_INCREMENT, SEQ_PREFETCH" );
+    }
+    
+    private SequenceObjectPersisterImpl newPersister(String name) {
+        /*
+         * H2 takes INSERT ... ON DUPLICATE KEY UPDATE in MySQL mode
+         */
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL( H2SequenceRegistry.urlOf( name ) + ";MODE=MySQL" );
+        SequenceObjectPersisterImpl persister = new SequenceObjectPersisterImpl();
+        persister.setDataSource( (DataSource) dataSource );
+        persister.setUpsertDialect( SequenceObjectPersisterImpl.UpsertDialect.MYSQL );
+        persister.init();
+        return persister;
+    }
+    
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class DeadlineTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void timeoutAndRecover() throws Exception {
+        GatedPersister persister = new GatedPersister();
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        
+        /*
+         * the first load of the key hangs, callers give up on time and share one load
+         */
+        persister.close();
+        long start = System.nanoTime();
+        for( int i=0; i<3; i++ ){
+            try {
+                generator.nextValue( "order", 50, TimeUnit.MILLISECONDS );
+                fail( "Should time out while the load hangs" );
+            }
+            catch (SequenceTimeoutException e) {
+                assertEquals( e.getKey(), "order" );
+            }
+        }
+        assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start )<1000 );
+        assertEquals( generator.getTimeoutCount(), 3 );
+        assertEquals( persister.getCreateCount(), 1 );
+        
+        /*
+         * the load finishes in the background and the next caller finds it done
+         */
+        persister.open();
+        long first = generator.nextValue( "order", 1, TimeUnit.SECONDS );
+        assertEquals( generator.nextValue( "order" ), first + 1 );
+        assertEquals( persister.getCreateCount(), 1 );
+        generator.destroy();
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void defaultTimeout() throws Exception {
+        GatedPersister persister = new GatedPersister();
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        generator.setDefaultTimeoutMillis( 50 );
+        SequenceHandle handle = generator.handle( "order" );
+        
+        /*
+         * drain the first segment then hang the refill of the next one
+         */
+        long first = handle.nextValue();
+        for( int i=1; i<100; i++ ){
+            assertEquals( handle.nextValue(), first + i );
+        }
+        persister.close();
+        try {
+            handle.nextValue();
+            fail( "Should time out while the refill hangs" );
+        }
+        catch (SequenceTimeoutException e) {
+            assertEquals( e.getKey(), "order" );
+        }
+        try {
+            generator.reserve( "order", 10 );
+            fail( "Should time out while the refill hangs" );
+        }
+        catch (SequenceTimeoutException e) {
+            assertEquals( e.getKey(), "order" );
+        }
+        persister.open();
+        assertEquals( handle.nextValue( 1, TimeUnit.SECONDS ), first + 100 );
+        generator.destroy();
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void noDuplicatesUnderDeadlines() throws Exception {
+        final GatedPersister persister = new GatedPersister();
+        persister.setDelayMillis( 5 );
+        final KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        final AtomicInteger timeouts = new AtomicInteger();
+        
+        Thread[] threads = new Thread[8];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for( int i=0; i<2000; i++ ){
+                        try {
+                            long seq = generator.nextValue( "order", 2, TimeUnit.MILLISECONDS );
+                            if( sequenceMap.put( seq, getName() )!=null ){
+                                sequenceMap.put( -1L, "duplicate " + seq );
+                            }
+                        }
+                        catch (SequenceTimeoutException e) {
+                            timeouts.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertTrue( !sequenceMap.containsKey( -1L ) );
+        assertTrue( timeouts.get()>0 );
+        assertEquals( generator.getTimeoutCount(), timeouts.get() );
+        assertEquals( sequenceMap.size() + timeouts.get(), 8 * 2000 );
+        generator.destroy();
+    }
+    
+    /**
+     * Hang creates and updates while the gate is closed, and slow them down by a delay.
+     */
+    private static class GatedPersister extends InMemorySequenceObjectPersister {
+        private volatile CountDownLatch gate = new CountDownLatch( 0 );
+        
+        private volatile long delayMillis = 0;
+        
+        private final AtomicInteger createCount = new AtomicInteger();
+        
+        void close() {
+            gate = new CountDownLatch( 1 );
+        }
+        
+        void open() {
+            gate.countDown();
+        }
+        
+        void setDelayMillis(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+        
+        int getCreateCount() {
+            return createCount.get();
+        }
+        
+        private void pass() {
+            try {
+                gate.await();
+                if( delayMillis>0 ){
+                    Thread.sleep( delayMillis );
+                }
+            }
+            catch (InterruptedException e) {
+                throw new SequenceGeneratorException( e );
+            }
+        }
+        
+        @Override
+        public void createSequenceObject(String storedKey, Long value) {
+            createCount.incrementAndGet();
+            pass();
+            super.createSequenceObject( storedKey, value );
+        }
+        
+        @Override
+        public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+            pass();
+            super.updateSequenceObject( storedKey, cachedSo );
+        }
+    }
+    
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class FeistelPermutationTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void bijection(){
+        for( int bits : new int[] { 2, 3, 16, 17 } ){
+            FeistelPermutation permutation = new FeistelPermutation( bits, 0x5eedL );
+            BitSet seen = new BitSet();
+            int fixedPoints = 0;
+            for( long value=0; value<=permutation.getMaxValue(); value++ ){
+                long permuted = permutation.permute( value );
+                assertTrue( permuted>=0 && permuted<=permutation.getMaxValue() );
+                assertFalse( seen.get( (int) permuted ), "permuted value is taken twice at width " + bits );
+                seen.set( (int) permuted );
+                assertEquals( permutation.inverse( permuted ), value );
+                if( permuted==value ){
+                    fixedPoints++;
+                }
+            }
+            if( bits>=16 ){
+                assertTrue( fixedPoints<16, "too many fixed points " + fixedPoints );
+            }
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void inverseAndKeys(){
+        Random random = new Random( 20121019 );
+        for( int bits : new int[] { 32, 40, 51, 63 } ){
+            FeistelPermutation permutation = new FeistelPermutation( bits, random.nextLong() );
+            FeistelPermutation another = new FeistelPermutation( bits, random.nextLong() );
+            int same = 0;
+            for( long value=1; value<=10000; value++ ){
+                long permuted = permutation.permute( value );
+                assertEquals( permutation.inverse( permuted ), value );
+                assertEquals( permutation.decode( permutation.encode( value ) ), value );
+                if( permuted==another.permute( value ) ){
+                    same++;
+                }
+            }
+            assertTrue( same<10, "different keys should give different permutations" );
+            assertEquals( permutation.inverse( permutation.permute( permutation.getMaxValue() ) ), permutation.getMaxValue() );
+        }
+        
+        try {
+            new FeistelPermutation( 16, 1 ).permute( 1 << 16 );
+            fail( "value out of the domain should be rejected" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+    /**
+     * Pairs of permute and inverse per second after a warm-up round of 20M pairs.
+     */
+    @Test(groups={"perf", "key"})
+    public void throughput(){
+        FeistelPermutation permutation = new FeistelPermutation( 40, 0x5eedL );
+        int rounds = 20000000;
+        long sum = 0;
+        for( int warmUp=0; warmUp<2; warmUp++ ){
+            long start = System.nanoTime();
+            for( long value=0; value<rounds; value++ ){
+                sum += permutation.inverse( permutation.permute( value ) );
+            }
+            long took = System.nanoTime() - start;
+            if( warmUp==1 ){
+                System.out.println( "permute and inverse: " + (rounds * 1000000000L / took) + " pairs/s" );
+            }
+        }
+        assertEquals( sum, 2 * ((long) rounds * (rounds - 1) / 2) );
+    }
+    
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+
+/**
+ * <p>
+ * Sequence registry in an embedded H2 database, for tests which need a real database.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class H2SequenceRegistry {
+    
+    private H2SequenceRegistry() {
+    }
+    
+    /**
+     * Create an in-memory database with empty registry tables, it lives until the JVM exits.
+     * @param name name of the database
+     * @return data source of the database
+     */
+    public static DataSource createDataSource(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL( urlOf( name ) );
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute( "DROP TABLE IF EXISTS PLF_SEQUENCE_REGISTRY" );
+            statement.execute( "CREATE TABLE PLF_SEQUENCE_REGISTRY ( SEQ_NAME VARCHAR(200) PRIMARY KEY, SEQ_VALUE BIGINT NOT NULL, SEQ_VERSION BIGINT NOT NULL, SEQ_INCREMENT INT, SEQ_PREFETCH INT )" );
+            statement.execute( "DROP TABLE IF EXISTS PLF_SEQUENCE_FREE_RANGE" );
+            statement.execute( "CREATE TABLE PLF_SEQUENCE_FREE_RANGE ( SEQ_NAME VARCHAR(200) NOT NULL, RANGE_START BIGINT NOT NULL, RANGE_END BIGINT NOT NULL, PRIMARY KEY ( SEQ_NAME, RANGE_START ) )" );
+            statement.close();
+        }
+        finally {
+            connection.close();
+        }
+        return dataSource;
+    }
+    
+    /**
+     * @return JDBC URL of the in-memory database with the given name
+     */
+    public static String urlOf(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MVCC=TRUE";
+    }
+    
+    /**
+     * Create a persister of the registry in the given data source.
+     */
+    public static SequenceObjectPersisterImpl createPersister(DataSource dataSource) {
+        SequenceObjectPersisterImpl persister = new SequenceObjectPersisterImpl();
+        persister.setDataSource( dataSource );
+        persister.init();
+        return persister;
+    }
+    
+}
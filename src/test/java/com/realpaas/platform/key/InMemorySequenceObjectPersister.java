@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.realpaas.platform.key.impl.SegmentConfig;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+
+/**
+ * <p>
+ * In-memory persister which behaves like the RDBMS one, for tests without database.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class InMemorySequenceObjectPersister implements SequenceObjectPersister {
+    
+    private final ConcurrentMap<String, AtomicLong> registry = new ConcurrentHashMap<String, AtomicLong>();
+    
+    private final ConcurrentMap<String, Queue<long[]>> freeRanges = new ConcurrentHashMap<String, Queue<long[]>>();
+    
+    private final ConcurrentMap<String, int[]> segmentConfigs = new ConcurrentHashMap<String, int[]>();
+    
+    private final AtomicLong updateCount = new AtomicLong();
+
+    @Override
+    public SequenceObject loadSequenceObject(String storedKey) {
+        AtomicLong value = registry.get( storedKey );
+        return value==null ? null : new SequenceObject( storedKey, value.get(), value.get() );
+    }
+
+    @Override
+    public void createSequenceObject(String storedKey, Long value) {
+        if( registry.putIfAbsent( storedKey, new AtomicLong( value ) )!=null ){
+            throw new SequenceGeneratorException( "Duplicate Sequence Entry(" + storedKey + ")" );
+        }
+    }
+
+    @Override
+    public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        AtomicLong value = registry.get( storedKey );
+        if( value==null ){
+            throw new SequenceGeneratorException( "Fail to find Sequence Entry with key \"" + storedKey + "\"" );
+        }
+        Queue<long[]> ranges = freeRanges.get( storedKey );
+        long[] range = ranges==null ? null : ranges.poll();
+        if( range!=null ){
+            cachedSo.setSegment( range[0], range[1] );
+            return;
+        }
+        int[] config = segmentConfigs.get( storedKey );
+        if( config!=null ){
+            cachedSo.configure( config[0]>0 ? config[0] : cachedSo.getIncrement(), config[1]>=0 ? config[1] : cachedSo.getPrefetch() );
+        }
+        long valve = value.addAndGet( cachedSo.getIncrement() );
+        updateCount.incrementAndGet();
+        cachedSo.setSegment( valve - cachedSo.getIncrement(), valve );
+    }
+    
+    @Override
+    public boolean createOrUpdateSequenceObject(String storedKey, SequenceObject cachedSo) {
+        return false;
+    }
+    
+    @Override
+    public void releaseRange(String storedKey, long pointer, long valve) {
+        Queue<long[]> ranges = freeRanges.get( storedKey );
+        if( ranges==null ){
+            freeRanges.putIfAbsent( storedKey, new ConcurrentLinkedQueue<long[]>() );
+            ranges = freeRanges.get( storedKey );
+        }
+        ranges.add( new long[] { pointer, valve } );
+    }
+    
+    @Override
+    public void updateSegmentConfig(String storedKey, Integer increment, Integer prefetch) {
+        if( !registry.containsKey( storedKey ) ){
+            throw new SequenceGeneratorException( "Fail to find Sequence Entry with key \"" + storedKey + "\"" );
+        }
+        segmentConfigs.put( storedKey, new int[] { increment==null ? 0 : increment, prefetch==null ? -1 : prefetch } );
+    }
+    
+    @Override
+    public SegmentConfig loadSegmentConfig(String storedKey) {
+        int[] config = segmentConfigs.get( storedKey );
+        if( config==null ){
+            return null;
+        }
+        return new SegmentConfig( null, config[0]>0 ? config[0] : null, config[1]>=0 ? config[1] : null );
+    }
+    
+    public int getFreeRangeCount(String storedKey) {
+        Queue<long[]> ranges = freeRanges.get( storedKey );
+        return ranges==null ? 0 : ranges.size();
+    }
+    
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+    
+    public Long getStoredValue(String storedKey) {
+        AtomicLong value = registry.get( storedKey );
+        return value==null ? null : value.get();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class KeyTemplateTest extends AbstractTest{
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+    
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void format() throws Exception {
+        SimpleDateFormat dateFormat = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss" );
+        dateFormat.setTimeZone( UTC );
+        long time = dateFormat.parse( "2026-10-17 08:05:09" ).getTime();
+        StringBuilder sb = new StringBuilder();
+        
+        KeyTemplate template = KeyTemplate.compile( "ORD-{date:yyyyMMdd}-{seq:7}", UTC );
+        assertEquals( template.format( 123L, null, time, sb ).toString(), "ORD-20261017-0000123" );
+        
+        sb.setLength( 0 );
+        template = KeyTemplate.compile( "{partition}-{base62}", UTC );
+        assertEquals( template.format( 62L, "T42", time, sb ).toString(), "T42-10" );
+        
+        sb.setLength( 0 );
+        template = KeyTemplate.compile( "{{{date:yy/MM/dd HH:mm:ss}}}{base62:4}", UTC );
+        assertEquals( template.format( 61L, null, time, sb ).toString(), "{26/10/17 08:05:09}000z" );
+        
+        char[] chars = new char[32];
+        template = KeyTemplate.compile( "{seq}{check}", UTC );
+        int length = template.format( 7992739871L, null, time, chars, 1 );
+        assertEquals( new String( chars, 1, length ), "79927398713" );
+        
+        sb.setLength( 0 );
+        template = KeyTemplate.compile( "A{seq:2}", UTC );
+        assertEquals( template.formatRange( 8L, 3, null, time, sb, ',' ).toString(), "A08,A09,A10" );
+        try {
+            KeyTemplate.compile( "{seq}", UTC ).formatRange( 0L, Integer.MAX_VALUE / 4, null, time, new StringBuilder(), ',' );
+            fail( "Range should not fit in a StringBuilder" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void dates() throws Exception {
+        SimpleDateFormat dateFormat = new SimpleDateFormat( "yyyyMMddHHmmss" );
+        dateFormat.setTimeZone( UTC );
+        KeyTemplate template = KeyTemplate.compile( "{date:yyyyMMddHHmmss}", UTC );
+        StringBuilder sb = new StringBuilder();
+        long[] times = { 0L, -1L, 951782400000L, 4107542399999L, -2208988800000L, System.currentTimeMillis() };
+        for( long time : times ){
+            sb.setLength( 0 );
+            assertEquals( template.format( 0L, null, time, sb ).toString(), dateFormat.format( time ) );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void illegalPatterns(){
+        String[] patterns = { "", "{seq", "seq}", "{unknown}", "{seq:0}", "{base62:12}", "{date:yyyyQ}" };
+        for( String pattern : patterns ){
+            try {
+                KeyTemplate.compile( pattern );
+                fail( pattern + " should not be compiled" );
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+        try {
+            KeyTemplate.compile( "{seq:2}" ).format( 100L, null, 0L, new StringBuilder() );
+            fail( "value wider than the width should be rejected" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+}
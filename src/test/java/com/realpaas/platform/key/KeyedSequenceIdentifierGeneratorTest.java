@@ -0,0 +1,270 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AnnotationConfiguration;
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.internal.dataobject.GenkeyRecord;
+import com.realpaas.platform.internal.dataobject.IdentityRecord;
+import com.realpaas.platform.internal.dataobject.SequenceEntry;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.hibernate.KeyedSequenceIdentifierGenerator;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class KeyedSequenceIdentifierGeneratorTest extends AbstractTest{
+
+    private static final int BATCH_SIZE = 15;
+    
+    private static final int RECORDS = 3000;
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void reserveAtSegmentEnd(){
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( new InMemorySequenceObjectPersister() );
+        generator.setInitValue( 0 );
+        generator.setIncrement( 100 );
+        
+        assertEquals( generator.reserve( "range", 40 ), new SequenceRange( 1, 40 ) );
+        assertEquals( generator.nextValue( "range" ), 41 );
+        assertEquals( generator.reserve( "range", 40 ), new SequenceRange( 42, 40 ) );
+        
+        /*
+         * only the rest of the segment is reserved, the next reservation refills it
+         */
+        assertEquals( generator.reserve( "range", 40 ), new SequenceRange( 82, 19 ) );
+        assertEquals( generator.reserve( "range", 40 ), new SequenceRange( 101, 40 ) );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void reserveByBatchSize() throws Exception {
+        DataSource dataSource = H2SequenceRegistry.createDataSource( "hibernateReserve" );
+        SessionFactory sessionFactory = buildSessionFactory( "hibernateReserve" );
+        CountingGenerator generator = new CountingGenerator( newGenerator( dataSource ) );
+        KeyedSequenceIdentifierGenerator.register( KeyedSequenceIdentifierGenerator.DEFAULT_GENERATOR, generator );
+        try {
+            Set<Long> ids = new HashSet<Long>();
+            Session session = sessionFactory.openSession();
+            try {
+                Transaction tx = session.beginTransaction();
+                for( int i=0; i<100; i++ ){
+                    GenkeyRecord record = new GenkeyRecord();
+                    record.setPayload( "record" + i );
+                    session.save( record );
+                    ids.add( record.getId() );
+                }
+                tx.commit();
+            }
+            finally {
+                session.close();
+            }
+            
+            /*
+             * one reservation per batch, the last one is partly used
+             */
+            assertEquals( ids.size(), 100 );
+            assertEquals( generator.reservations.get(), 7 );
+            assertTrue( ids.contains( 1L ) && ids.contains( 100L ) );
+        }
+        finally {
+            KeyedSequenceIdentifierGenerator.unregister( KeyedSequenceIdentifierGenerator.DEFAULT_GENERATOR );
+            sessionFactory.close();
+        }
+    }
+    
+    /**
+     * Inserts per second of keyed sequence ids against IDENTITY columns, measured after a warm-up.
+     */
+    @Test(groups={"perf", "key"})
+    public void compareWithIdentity() throws Exception {
+        DataSource dataSource = H2SequenceRegistry.createDataSource( "hibernateBenchmark" );
+        SessionFactory sessionFactory = buildSessionFactory( "hibernateBenchmark" );
+        KeyedSequenceIdentifierGenerator.register( KeyedSequenceIdentifierGenerator.DEFAULT_GENERATOR, newGenerator( dataSource ) );
+        try {
+            /*
+             * warm up both, then measure
+             */
+            insert( sessionFactory, GenkeyRecord.class, RECORDS );
+            insert( sessionFactory, IdentityRecord.class, RECORDS );
+            long genkeyNanos = insert( sessionFactory, GenkeyRecord.class, RECORDS );
+            long identityNanos = insert( sessionFactory, IdentityRecord.class, RECORDS );
+            System.out.println( "genkey: " + throughput( genkeyNanos ) + " inserts/s, IDENTITY: " + throughput( identityNanos ) + " inserts/s" );
+            
+            assertEquals( count( sessionFactory, GenkeyRecord.class ), 2 * RECORDS );
+            assertEquals( count( sessionFactory, IdentityRecord.class ), 2 * RECORDS );
+        }
+        finally {
+            KeyedSequenceIdentifierGenerator.unregister( KeyedSequenceIdentifierGenerator.DEFAULT_GENERATOR );
+            sessionFactory.close();
+        }
+    }
+    
+    private long insert(SessionFactory sessionFactory, Class<?> recordClass, int records) throws Exception {
+        long start = System.nanoTime();
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            for( int i=0; i<records; i++ ){
+                if( recordClass==GenkeyRecord.class ){
+                    GenkeyRecord record = new GenkeyRecord();
+                    record.setPayload( "record" + i );
+                    session.save( record );
+                }
+                else {
+                    IdentityRecord record = new IdentityRecord();
+                    record.setPayload( "record" + i );
+                    session.save( record );
+                }
+                if( (i + 1) % BATCH_SIZE==0 ){
+                    session.flush();
+                    session.clear();
+                }
+            }
+            tx.commit();
+        }
+        finally {
+            session.close();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private long count(SessionFactory sessionFactory, Class<?> recordClass) {
+        Session session = sessionFactory.openSession();
+        try {
+            return ((Number) session.createQuery( "select count(*) from " + recordClass.getName() ).uniqueResult()).longValue();
+        }
+        finally {
+            session.close();
+        }
+    }
+    
+    private long throughput(long nanos) {
+        return RECORDS * 1000000000L / nanos;
+    }
+    
+    @SuppressWarnings("deprecation")
+    private SessionFactory buildSessionFactory(String name) {
+        AnnotationConfiguration configuration = new AnnotationConfiguration();
+        configuration.addAnnotatedClass( SequenceEntry.class );
+        configuration.addAnnotatedClass( GenkeyRecord.class );
+        configuration.addAnnotatedClass( IdentityRecord.class );
+        configuration.setProperty( "hibernate.connection.driver_class", "org.h2.Driver" );
+        configuration.setProperty( "hibernate.connection.url", H2SequenceRegistry.urlOf( name ) );
+        configuration.setProperty( "hibernate.dialect", "org.hibernate.dialect.H2Dialect" );
+        configuration.setProperty( "hibernate.hbm2ddl.auto", "update" );
+        configuration.setProperty( "hibernate.jdbc.batch_size", String.valueOf( BATCH_SIZE ) );
+        configuration.setProperty( "hibernate.cache.use_second_level_cache", "false" );
+        return configuration.buildSessionFactory();
+    }
+    
+    private KeyedSequenceGenerator newGenerator(DataSource dataSource) {
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( H2SequenceRegistry.createPersister( dataSource ) );
+        generator.setInitValue( 0 );
+        return generator;
+    }
+    
+    /**
+     * Count reservations of the generator which it decorates.
+     */
+    private static class CountingGenerator implements KeyedSequenceGenerator {
+        private final KeyedSequenceGenerator generator;
+        
+        private final AtomicInteger reservations = new AtomicInteger();
+        
+        CountingGenerator(KeyedSequenceGenerator generator) {
+            this.generator = generator;
+        }
+        
+        @Override
+        public long nextValue(String key) {
+            return generator.nextValue( key );
+        }
+
+        @Override
+        public long nextValue(String key, long timeout, TimeUnit unit) {
+            return generator.nextValue( key, timeout, unit );
+        }
+
+        @Override
+        public SequenceHandle handle(String key) {
+            return generator.handle( key );
+        }
+
+        @Override
+        public SequenceRange reserve(String key, int count) {
+            reservations.incrementAndGet();
+            return generator.reserve( key, count );
+        }
+
+        @Override
+        public void preload(String key) {
+            generator.preload( key );
+        }
+
+        @Override
+        public boolean evict(String key) {
+            return generator.evict( key );
+        }
+
+        @Override
+        public int provision(Collection<String> keys, boolean preload) {
+            return generator.provision( keys, preload );
+        }
+    }
+    
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.CompactSequenceStore;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ProvisionTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void bulk() throws Exception {
+        SequenceObjectPersisterImpl persister = H2SequenceRegistry.createPersister( H2SequenceRegistry.createDataSource( "provision" ) );
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        long existingValue = generator.nextValue( "tenant.k0" );
+        
+        List<String> keys = keys( "tenant.k", 100000 );
+        long start = System.currentTimeMillis();
+        assertEquals( generator.provision( keys, false ), keys.size() - 1 );
+        System.out.println( keys.size() + " keys are provisioned in " + (System.currentTimeMillis() - start) + " ms" );
+        
+        /*
+         * the existing key keeps its value, the created keys behave as if created on first use
+         */
+        assertEquals( generator.nextValue( "tenant.k0" ), existingValue + 1 );
+        long lazyValue = generator.nextValue( "tenant.lazy" );
+        assertEquals( generator.nextValue( "tenant.k1" ), lazyValue );
+        assertEquals( persister.loadSequenceObject( "tenant.k1" ).getValve(), persister.loadSequenceObject( "tenant.lazy" ).getValve() );
+        assertEquals( persister.loadSequenceObject( "tenant.k99999" ).getValve(), generator.getInitValue() );
+        
+        assertEquals( generator.provision( keys, false ), 0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void preload() throws Exception {
+        SequenceObjectPersisterImpl persister = H2SequenceRegistry.createPersister( H2SequenceRegistry.createDataSource( "provisionPreload" ) );
+        persister.setProvisionBatchSize( 7 );
+        persister.setProvisionChunkSize( 100 );
+        persister.init();
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        long existingValue = generator.nextValue( "tenant.k3" );
+        
+        List<String> keys = keys( "tenant.k", 1000 );
+        assertEquals( generator.provision( keys, true ), keys.size() - 1 );
+        Set<Long> values = new HashSet<Long>();
+        for( String key : keys ){
+            values.add( generator.nextValue( key ) );
+            assertTrue( persister.loadSequenceObject( key ).getValve()>=generator.getInitValue() + generator.getIncrement() );
+        }
+        assertTrue( values.contains( existingValue + 1 ) );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void seedCache() throws Exception {
+        for( boolean compact : new boolean[]{ false, true } ){
+            InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+            KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+            if( compact ){
+                generator.setCompactStore( new CompactSequenceStore() );
+            }
+            generator.nextValue( "tenant.k0" );
+            long updates = persister.getUpdateCount();
+            
+            List<String> keys = keys( "tenant.k", 200 );
+            assertEquals( generator.provision( keys, true ), keys.size() - 1 );
+            assertEquals( (long) persister.getStoredValue( "tenant.k1" ), generator.getInitValue() + generator.getIncrement() );
+            
+            /*
+             * first segments of the created keys are in Cache, only the existing key may refill
+             */
+            for( String key : keys ){
+                generator.nextValue( key );
+            }
+            Set<Long> k1Values = new HashSet<Long>();
+            for( int i=1; i<generator.getIncrement(); i++ ){
+                k1Values.add( generator.nextValue( "tenant.k1" ) );
+            }
+            assertEquals( k1Values.size(), generator.getIncrement() - 1 );
+            assertEquals( persister.getUpdateCount(), updates );
+            
+            generator.nextValue( "tenant.k1" );
+            assertEquals( persister.getUpdateCount(), updates + 1 );
+        }
+    }
+    
+    private static List<String> keys(String prefix, int count) {
+        List<String> keys = new ArrayList<String>( count );
+        for( int i=0; i<count; i++ ){
+            keys.add( prefix + i );
+        }
+        return keys;
+    }
+    
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.RefillBulkhead;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class RefillBulkheadTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void isolatePartitions() throws Exception {
+        final CountDownLatch stalled = new CountDownLatch( 1 );
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister() {
+            @Override
+            public void createSequenceObject(String storedKey, Long value) {
+                if( !storedKey.startsWith( "hot." ) && !storedKey.startsWith( "warm." ) ){
+                    super.createSequenceObject( storedKey, value );
+                    return;
+                }
+                try {
+                    stalled.await();
+                }
+                catch (InterruptedException e) {
+                    throw new SequenceGeneratorException( e );
+                }
+                super.createSequenceObject( storedKey, value );
+            }
+        };
+        final RefillBulkhead bulkhead = new RefillBulkhead();
+        bulkhead.setMaxConcurrentRefills( 2 );
+        bulkhead.setSharedPermits( 3 );
+        bulkhead.setTimeoutMillis( 300 );
+        bulkhead.setReservedPermits( Collections.singletonMap( "vip", 1 ) );
+        final KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( persister );
+        generator.setRefillBulkhead( bulkhead );
+        
+        /*
+         * a hot partition can only take its own share of permits
+         */
+        Thread[] hotThreads = new Thread[] { 
+                stall( generator, "hot.k0" ), stall( generator, "hot.k1" ) };
+        waitUntilActive( bulkhead, "hot", 2 );
+        try {
+            bulkhead.acquire( "hot.k2" );
+            fail( "hot partition should be rejected at its limit" );
+        }
+        catch (SequenceGeneratorException e) {
+            assertEquals( bulkhead.getRejectionCount( "hot" ), 1 );
+        }
+        assertTrue( generator.nextValue( "cold.a" )>0 );
+        
+        /*
+         * critical partition still refills with its reserved permit when shared ones are used up
+         */
+        Thread warmThread = stall( generator, "warm.k0" );
+        waitUntilActive( bulkhead, "warm", 1 );
+        assertTrue( generator.nextValue( "vip.a" )>0 );
+        try {
+            bulkhead.acquire( "cold.b" );
+            fail( "shared capacity should be exhausted" );
+        }
+        catch (SequenceGeneratorException e) {
+            assertEquals( bulkhead.getRejectionCount( "cold" ), 1 );
+        }
+        
+        stalled.countDown();
+        for( Thread thread : hotThreads ){
+            thread.join();
+        }
+        warmThread.join();
+        assertEquals( bulkhead.getRefillCount( "hot" ), 2 );
+        assertEquals( bulkhead.getRefillCount( "cold" ), 1 );
+        assertEquals( bulkhead.getRefillCount( "vip" ), 1 );
+        assertEquals( bulkhead.getActiveCount( "hot" ), 0 );
+        assertEquals( bulkhead.getQueueLength( "hot" ), 0 );
+        assertEquals( generator.nextValue( "hot.k0" ), 3 );
+    }
+    
+    private Thread stall(final KeyedSequenceGeneratorImpl generator, final String key) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                generator.nextValue( key );
+            }
+        };
+        thread.start();
+        return thread;
+    }
+    
+    private void waitUntilActive(RefillBulkhead bulkhead, String partition, int count) throws InterruptedException {
+        for( int i=0; i<500 && bulkhead.getActiveCount( partition )<count; i++ ){
+            Thread.sleep( 10 );
+        }
+        assertEquals( bulkhead.getActiveCount( partition ), count );
+    }
+    
+}
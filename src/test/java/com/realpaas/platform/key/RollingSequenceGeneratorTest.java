@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.RollingSequenceGeneratorImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class RollingSequenceGeneratorTest extends AbstractTest{
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+    
+    /**
+     * 2026-10-17T23:58:00Z
+     */
+    private static final long BEFORE_MIDNIGHT = 1792281480000L;
+    
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void periods() throws Exception {
+        assertEquals( RollingPeriod.DAILY.startOf( BEFORE_MIDNIGHT, UTC ), BEFORE_MIDNIGHT - 23 * 3600000L - 58 * 60000L );
+        assertEquals( RollingPeriod.DAILY.label( BEFORE_MIDNIGHT, UTC ), "2026-10-17" );
+        assertEquals( RollingPeriod.DAILY.label( BEFORE_MIDNIGHT + 120000L, UTC ), "2026-10-18" );
+        assertEquals( RollingPeriod.HOURLY.label( BEFORE_MIDNIGHT, UTC ), "2026-10-17-23" );
+        assertEquals( RollingPeriod.MONTHLY.label( BEFORE_MIDNIGHT, UTC ), "2026-10" );
+        assertEquals( RollingPeriod.YEARLY.label( BEFORE_MIDNIGHT, UTC ), "2026" );
+        
+        TimeZone shanghai = TimeZone.getTimeZone( "Asia/Shanghai" );
+        assertEquals( RollingPeriod.DAILY.label( BEFORE_MIDNIGHT, shanghai ), "2026-10-18" );
+        for( RollingPeriod period : RollingPeriod.values() ){
+            long start = period.startOf( BEFORE_MIDNIGHT, shanghai );
+            long end = period.nextStart( start, shanghai );
+            assertTrue( start<=BEFORE_MIDNIGHT && BEFORE_MIDNIGHT<end );
+            assertEquals( period.startOf( end - 1, shanghai ), start );
+            assertEquals( period.startOf( end, shanghai ), end );
+        }
+        
+        RollingSequenceGeneratorImpl generator = new RollingSequenceGeneratorImpl();
+        generator.setPeriod( RollingPeriod.MONTHLY );
+        generator.setTimeZone( shanghai );
+        assertEquals( generator.getPeriodKey( "orders", BEFORE_MIDNIGHT ), "orders.2026-10" );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void rollAtMidnight() throws Exception {
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl keyedGenerator = newKeyedGenerator( persister );
+        final AtomicLong clock = new AtomicLong( BEFORE_MIDNIGHT );
+        RollingSequenceGeneratorImpl generator = newGenerator( keyedGenerator, clock );
+        generator.setKeys( Arrays.asList( "invoices" ) );
+        
+        StringBuilder sb = new StringBuilder();
+        long first = generator.nextValue( "orders", sb );
+        assertEquals( sb.toString(), "2026-10-17" );
+        assertEquals( generator.nextValue( "orders" ), first + 1 );
+        
+        /*
+         * keys of the next day are created ahead, the switch at midnight doesn't touch DB
+         */
+        assertEquals( generator.preCreateNextPeriod(), 2 );
+        assertEquals( generator.getPreCreatedCount(), 2 );
+        Long storedValue = persister.getStoredValue( "orders.2026-10-18" );
+        assertTrue( storedValue!=null );
+        assertTrue( persister.getStoredValue( "invoices.2026-10-18" )!=null );
+        long updateCount = persister.getUpdateCount();
+        
+        clock.set( BEFORE_MIDNIGHT + 120000L );
+        sb.setLength( 0 );
+        assertEquals( generator.nextValue( "orders", sb ), first );
+        assertEquals( sb.toString(), "2026-10-18" );
+        assertEquals( generator.nextValue( "invoices" ), first );
+        assertEquals( persister.getUpdateCount(), updateCount );
+        assertEquals( persister.getStoredValue( "orders.2026-10-18" ), storedValue );
+        
+        /*
+         * keys of the ended day are evicted at once without the scheduler
+         */
+        assertEquals( generator.getEvictedCount(), 1 );
+        assertEquals( keyedGenerator.getCachedKeyCount(), 2 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void scheduledPreCreate() throws Exception {
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl keyedGenerator = newKeyedGenerator( persister );
+        AtomicLong clock = new AtomicLong( BEFORE_MIDNIGHT );
+        RollingSequenceGeneratorImpl generator = newGenerator( keyedGenerator, clock );
+        generator.setKeys( Arrays.asList( "orders" ) );
+        generator.setPreCreateMillis( 300000L );
+        generator.setEvictDelayMillis( 0 );
+        generator.init();
+        try {
+            generator.nextValue( "orders" );
+            for( int i=0; i<100 && persister.getStoredValue( "orders.2026-10-18" )==null; i++ ){
+                Thread.sleep( 20 );
+            }
+            assertTrue( persister.getStoredValue( "orders.2026-10-18" )!=null );
+            
+            clock.set( BEFORE_MIDNIGHT + 120000L );
+            generator.nextValue( "orders" );
+            for( int i=0; i<100 && generator.getEvictedCount()==0; i++ ){
+                Thread.sleep( 20 );
+            }
+            assertEquals( generator.getEvictedCount(), 1 );
+            assertEquals( keyedGenerator.getCachedKeyCount(), 1 );
+        }
+        finally {
+            generator.destroy();
+        }
+    }
+    
+    private KeyedSequenceGeneratorImpl newKeyedGenerator(InMemorySequenceObjectPersister persister) {
+        KeyedSequenceGeneratorImpl keyedGenerator = new KeyedSequenceGeneratorImpl();
+        keyedGenerator.setPersister( persister );
+        return keyedGenerator;
+    }
+    
+    private RollingSequenceGeneratorImpl newGenerator(KeyedSequenceGeneratorImpl keyedGenerator, final AtomicLong clock) {
+        RollingSequenceGeneratorImpl generator = new RollingSequenceGeneratorImpl() {
+            @Override
+            protected long currentTimeMillis() {
+                return clock.get();
+            }
+        };
+        generator.setKeyedSequenceGenerator( keyedGenerator );
+        generator.setTimeZone( UTC );
+        return generator;
+    }
+    
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SegmentConfig;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SegmentConfigTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void prefixConfigs(){
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl generator = newGenerator( persister );
+        Map<String, SegmentConfig> configs = new HashMap<String, SegmentConfig>();
+        configs.put( "order", new SegmentConfig( 1000000L, 100000, null ) );
+        configs.put( "order.refund", new SegmentConfig( null, 50, null ) );
+        generator.setSegmentConfigs( configs );
+        
+        assertEquals( generator.nextValue( "order.sale" ), 1000001 );
+        assertEquals( (long) persister.getStoredValue( "order.sale" ), 1100000 );
+        assertEquals( generator.nextValue( "order.refund" ), 1 );
+        assertEquals( (long) persister.getStoredValue( "order.refund" ), 50 );
+        assertEquals( generator.nextValue( "tenant" ), 1 );
+        assertEquals( (long) persister.getStoredValue( "tenant" ), 1000 );
+        
+        /*
+         * a changed prefix configuration is picked up on next refill
+         */
+        generator.setPrefixSegmentConfig( "tenant", null, 20, null );
+        for( int i=2; i<=1001; i++ ){
+            assertEquals( generator.nextValue( "tenant" ), i );
+        }
+        assertEquals( (long) persister.getStoredValue( "tenant" ), 1020 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void keyConfigInRegistry(){
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl generator = newGenerator( persister );
+        assertEquals( generator.nextValue( "order" ), 1 );
+        
+        generator.setKeySegmentConfig( "order", 5000, null );
+        assertTrue( generator.getKeySegmentConfig( "order" ).contains( "increment=5000" ) );
+        for( int i=2; i<=1001; i++ ){
+            generator.nextValue( "order" );
+        }
+        assertEquals( (long) persister.getStoredValue( "order" ), 6000 );
+        
+        /*
+         * other nodes pick it up from the registry even if they are configured otherwise
+         */
+        KeyedSequenceGeneratorImpl otherGenerator = newGenerator( persister );
+        otherGenerator.setPrefixSegmentConfig( "order", null, 10, null );
+        assertTrue( otherGenerator.getKeySegmentConfig( "order" ).contains( "increment=5000" ) );
+        otherGenerator.nextValue( "order" );
+        assertEquals( (long) persister.getStoredValue( "order" ), 11000 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void minIncrement(){
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl generator = newGenerator( persister );
+        try {
+            generator.setPrefixSegmentConfig( "order", null, 5, null );
+            fail( "Increment should be at least " + SegmentConfig.MIN_INCREMENT );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        try {
+            generator.setKeySegmentConfig( "order", 1, null );
+            fail( "Increment should be at least " + SegmentConfig.MIN_INCREMENT );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        assertEquals( persister.loadSegmentConfig( "order" ), null );
+        assertEquals( generator.nextValue( "order" ), 1 );
+        assertEquals( (long) persister.getStoredValue( "order" ), 1000 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void prefetch() throws Exception {
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        final KeyedSequenceGeneratorImpl generator = newGenerator( persister );
+        generator.setIncrement( 100 );
+        generator.setPrefetch( 30 );
+        
+        for( int i=1; i<=70; i++ ){
+            assertEquals( generator.nextValue( "order" ), i );
+        }
+        assertEquals( persister.getUpdateCount(), 1 );
+        assertEquals( (long) persister.getStoredValue( "order" ), 200 );
+        for( int i=71; i<=200; i++ ){
+            assertEquals( generator.nextValue( "order" ), i );
+        }
+        assertEquals( (long) persister.getStoredValue( "order" ), 300 );
+        
+        /*
+         * no duplicate under contention, and the prefetched segment is released on shutdown
+         */
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        Thread[] threads = new Thread[4];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for( int i=0; i<10000; i++ ) {
+                        long seq = generator.nextValue( "order" );
+                        if( sequenceMap.put( seq, getName() )!=null ){
+                            sequenceMap.put( -1L, "duplicate " + seq );
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals( sequenceMap.size(), 40000 );
+        generator.destroy();
+        assertTrue( persister.getFreeRangeCount( "order" )>=1 );
+    }
+    
+    private KeyedSequenceGeneratorImpl newGenerator(InMemorySequenceObjectPersister persister) {
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 1000, 0 );
+        generator.setInitValue( 0 );
+        return generator;
+    }
+    
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.CompactSequenceStore;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.OneSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.PartitionedSequenceGeneratorImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SequenceHandleTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void acrossRefillsAndEviction(){
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( new InMemorySequenceObjectPersister() );
+        SequenceHandle handle = generator.handle( "order" );
+        assertEquals( handle.getKey(), "order" );
+        
+        Set<Long> values = new HashSet<Long>();
+        for( int i=0; i<1000; i++ ){
+            if( i % 250==0 ){
+                generator.getSequenceCache().remove( "order" );
+            }
+            assertTrue( values.add( handle.nextValue() ) );
+            assertTrue( values.add( generator.nextValue( "order" ) ) );
+        }
+        assertTrue( generator.getSequenceCache().get( "order" )!=null );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void compactStore(){
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( new InMemorySequenceObjectPersister() );
+        generator.setCompactStore( new CompactSequenceStore() );
+        SequenceHandle handle = generator.handle( "order" );
+        
+        Set<Long> values = new HashSet<Long>();
+        for( int i=0; i<1000; i++ ){
+            assertTrue( values.add( handle.nextValue() ) );
+            assertTrue( values.add( generator.nextValue( "order" ) ) );
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void partitionedAndOne(){
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( new InMemorySequenceObjectPersister() );
+        
+        PartitionedSequenceGeneratorImpl partitioned = new PartitionedSequenceGeneratorImpl();
+        partitioned.setPartitionKey( "tenant" );
+        partitioned.setKeyedSequenceGenerator( generator );
+        SequenceHandle handle = partitioned.handle( "order" );
+        assertEquals( handle.getKey(), "tenant.order" );
+        
+        OneSequenceGeneratorImpl one = new OneSequenceGeneratorImpl();
+        one.setSequenceKey( "tenant.order" );
+        one.setKeyedSequenceGenerator( generator );
+        
+        Set<Long> values = new HashSet<Long>();
+        for( int i=0; i<500; i++ ){
+            assertTrue( values.add( handle.nextValue() ) );
+            assertTrue( values.add( partitioned.nextValue( "order" ) ) );
+            assertTrue( values.add( one.nextValue() ) );
+        }
+    }
+    
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SequenceStreamTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void reservedSpliterator() throws Exception {
+        KeyedSequenceGenerator generator = TestSequenceGenerators.newGenerator( new InMemorySequenceObjectPersister(), 100, 0 );
+        
+        /*
+         * 250 values span three segments of 100
+         */
+        Spliterator.OfLong spliterator = generator.spliterator( "order", 250 );
+        int characteristics = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT | Spliterator.ORDERED;
+        assertEquals( spliterator.characteristics() & characteristics, characteristics );
+        assertEquals( spliterator.estimateSize(), 250 );
+        Spliterator.OfLong prefix = spliterator.trySplit();
+        assertEquals( prefix.estimateSize(), 125 );
+        assertEquals( spliterator.estimateSize(), 125 );
+        
+        final Set<Long> values = new HashSet<Long>();
+        for( Spliterator.OfLong split : new Spliterator.OfLong[] { prefix, spliterator } ){
+            Spliterator.OfLong tiny = split.trySplit();
+            while( tiny.tryAdvance( (long value) -> values.add( value ) ) ){
+            }
+            split.forEachRemaining( (long value) -> values.add( value ) );
+        }
+        assertEquals( values.size(), 250 );
+        
+        /*
+         * the reservation covers exactly the values streamed
+         */
+        long next = generator.nextValue( "order" );
+        for( long value : values ){
+            assertTrue( value<next );
+        }
+        assertEquals( generator.spliterator( "order", 0 ).estimateSize(), 0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void parallelStreams() throws Exception {
+        KeyedSequenceGenerator generator = TestSequenceGenerators.newGenerator( new InMemorySequenceObjectPersister(), 100, 0 );
+        long[] values = generator.stream( "order", 100000 ).parallel().toArray();
+        assertEquals( values.length, 100000 );
+        assertEquals( generator.stream( "order", 100000 ).parallel().distinct().count(), 100000 );
+        
+        long[] sequential = generator.stream( "invoice", 1000 ).toArray();
+        for( int i=1; i<sequential.length; i++ ){
+            assertEquals( sequential[i], sequential[i - 1] + 1 );
+        }
+        
+        assertEquals( generator.stream( "order" ).parallel().limit( 50000 ).distinct().count(), 50000 );
+        
+        PrimitiveIterator.OfLong iterator = generator.iterator( "ticket" );
+        Set<Long> tickets = new HashSet<Long>();
+        for( int i=0; i<5000; i++ ){
+            assertTrue( tickets.add( iterator.nextLong() ) );
+        }
+    }
+    
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.PartitionedSequenceGeneratorImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ShardedIdTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void layout() throws Exception {
+        ShardedIdLayout layout = new ShardedIdLayout( 10 );
+        assertEquals( layout.getSequenceBits(), 53 );
+        assertEquals( layout.getMaxShard(), 1023 );
+        
+        long id = layout.compose( 1023, layout.getMaxSequence() );
+        assertEquals( id, Long.MAX_VALUE );
+        assertEquals( ShardedIdLayout.shardOf( id, 10 ), 1023 );
+        assertEquals( layout.sequenceOf( id ), layout.getMaxSequence() );
+        
+        id = layout.compose( 37, 123456L );
+        assertTrue( id>0 );
+        assertEquals( layout.shardOf( id ), 37 );
+        assertEquals( ShardedIdLayout.shardOf( id, 10 ), 37 );
+        assertEquals( layout.sequenceOf( id ), 123456L );
+        
+        try {
+            layout.compose( 1024, 1L );
+            fail( "Shard should be out of range" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        try {
+            layout.compose( 1, layout.getMaxSequence() + 1 );
+            fail( "Sequence field should be exhausted" );
+        }
+        catch (SequenceGeneratorException e) {
+        }
+        try {
+            new ShardedIdLayout( 32 );
+            fail( "Too many shard bits" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void partitions() throws Exception {
+        KeyedSequenceGeneratorImpl keyed = TestSequenceGenerators.newGenerator( new InMemorySequenceObjectPersister(), 100, 0 );
+        Map<String, Integer> shardMapping = new HashMap<String, Integer>();
+        shardMapping.put( "tenantA", 3 );
+        shardMapping.put( "tenantB", 700 );
+        PartitionedSequenceGeneratorImpl tenantA = newPartition( keyed, "tenantA", shardMapping );
+        PartitionedSequenceGeneratorImpl tenantB = newPartition( keyed, "tenantB", shardMapping );
+        
+        long a = tenantA.nextValue();
+        long b = tenantB.nextValue();
+        assertEquals( ShardedIdLayout.shardOf( a, 10 ), 3 );
+        assertEquals( ShardedIdLayout.shardOf( b, 10 ), 700 );
+        assertEquals( tenantA.getIdLayout().sequenceOf( tenantA.nextValue() ), tenantA.getIdLayout().sequenceOf( a ) + 1 );
+        
+        assertEquals( ShardedIdLayout.shardOf( tenantA.nextValue( "order" ), 10 ), 3 );
+        assertEquals( ShardedIdLayout.shardOf( tenantB.handle( "order" ).nextValue(), 10 ), 700 );
+        
+        SequenceRange range = tenantB.reserve( "order", 50 );
+        assertEquals( ShardedIdLayout.shardOf( range.getFirst(), 10 ), 700 );
+        assertEquals( ShardedIdLayout.shardOf( range.getLast(), 10 ), 700 );
+        assertEquals( range.getCount(), 50 );
+        
+        /*
+         * a remapped partition issues ids of the new shard, the old ids keep the old shard
+         */
+        shardMapping.put( "tenantA", 4 );
+        assertEquals( ShardedIdLayout.shardOf( tenantA.nextValue(), 10 ), 3 );
+        tenantA.setShardMapping( shardMapping );
+        assertEquals( ShardedIdLayout.shardOf( tenantA.nextValue(), 10 ), 4 );
+        assertEquals( ShardedIdLayout.shardOf( a, 10 ), 3 );
+        
+        PartitionedSequenceGeneratorImpl unmapped = newPartition( keyed, "tenantC", shardMapping );
+        try {
+            unmapped.nextValue();
+            fail( "No shard is mapped to the partition" );
+        }
+        catch (IllegalStateException e) {
+        }
+        try {
+            unmapped.reserve( "order", 10 );
+            fail( "No shard is mapped to the partition" );
+        }
+        catch (IllegalStateException e) {
+        }
+        // the failed calls took no value of the partition
+        assertEquals( keyed.nextValue( "tenantC" ), tenantA.getIdLayout().sequenceOf( a ) );
+        
+        shardMapping.put( "tenantC", 1024 );
+        try {
+            unmapped.setShardMapping( shardMapping );
+            fail( "Shard is out of the range of the layout" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        
+        /*
+         * no shard bits, plain values
+         */
+        PartitionedSequenceGeneratorImpl plain = new PartitionedSequenceGeneratorImpl();
+        plain.setKeyedSequenceGenerator( keyed );
+        plain.setPartitionKey( "tenantA" );
+        assertTrue( plain.nextValue()<1000 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void exhaustion() throws Exception {
+        Map<String, Integer> shardMapping = new HashMap<String, Integer>();
+        shardMapping.put( "tenantA", 5 );
+        // 32 sequence bits, start the key just below the max of the field
+        long maxSequence = (1L << 32) - 1;
+        KeyedSequenceGeneratorImpl keyed = TestSequenceGenerators.newGenerator( new InMemorySequenceObjectPersister(), 100, 0 );
+        keyed.setInitValue( maxSequence - 10 );
+        PartitionedSequenceGeneratorImpl tenantA = newPartition( keyed, "tenantA", shardMapping );
+        tenantA.setShardBits( 31 );
+        
+        long last = -1;
+        try {
+            for( int i=0; i<20; i++ ){
+                last = tenantA.nextValue();
+            }
+            fail( "Sequence field should be exhausted" );
+        }
+        catch (SequenceGeneratorException e) {
+        }
+        assertEquals( ShardedIdLayout.shardOf( last, 31 ), 5 );
+        assertEquals( tenantA.getIdLayout().sequenceOf( last ), maxSequence );
+        try {
+            tenantA.nextValue();
+            fail( "Sequence field should stay exhausted" );
+        }
+        catch (SequenceGeneratorException e) {
+        }
+        try {
+            tenantA.reserve( "order", 20 );
+            fail( "Reserved range should not fit in the sequence field" );
+        }
+        catch (SequenceGeneratorException e) {
+        }
+    }
+    
+    private PartitionedSequenceGeneratorImpl newPartition(KeyedSequenceGenerator keyed, String partitionKey, Map<String, Integer> shardMapping) {
+        PartitionedSequenceGeneratorImpl partition = new PartitionedSequenceGeneratorImpl();
+        partition.setKeyedSequenceGenerator( keyed );
+        partition.setPartitionKey( partitionKey );
+        partition.setShardBits( 10 );
+        partition.setShardMapping( shardMapping );
+        return partition;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+import com.realpaas.platform.key.impl.rdbms.ShardedSequenceObjectPersister;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ShardedSequenceObjectPersisterTest extends AbstractTest{
+
+    private static final int KEY_COUNT = 200;
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void rebalanceWithoutReissue() throws Exception {
+        Map<String, SequenceObjectPersisterImpl> shards = new HashMap<String, SequenceObjectPersisterImpl>();
+        shards.put( "db0", newShard( "sharded0" ) );
+        shards.put( "db1", newShard( "sharded1" ) );
+        ShardedSequenceObjectPersister persisterA = newPersister( shards );
+        ShardedSequenceObjectPersister persisterB = newPersister( shards );
+        KeyedSequenceGeneratorImpl generatorA = TestSequenceGenerators.newGenerator( persisterA, 10, 0 );
+        KeyedSequenceGeneratorImpl generatorB = TestSequenceGenerators.newGenerator( persisterB, 10, 0 );
+        
+        Set<String> values = new HashSet<String>();
+        generate( generatorA, values );
+        generate( generatorB, values );
+        Set<String> shardNames = new HashSet<String>();
+        for( int i=0; i<KEY_COUNT; i++ ){
+            shardNames.add( persisterA.getShardName( "key" + i ) );
+        }
+        assertEquals( shardNames.size(), 2 );
+        
+        /*
+         * both nodes get the new shard, then one of them rebalances while the other keeps 
+         * its cached segments from the old shards
+         */
+        SequenceObjectPersisterImpl shard2 = newShard( "sharded2" );
+        persisterA.addShard( "db2", shard2 );
+        persisterB.addShard( "db2", shard2 );
+        generate( generatorB, values );
+        int moved = persisterA.rebalance();
+        assertTrue( moved>0 && moved<KEY_COUNT );
+        assertEquals( shard2.loadSequenceKeys().size(), moved );
+        
+        generate( generatorA, values );
+        generate( generatorB, values );
+        generate( generatorA, values );
+        assertEquals( persisterA.rebalance(), 0 );
+        
+        /*
+         * a retired shard is drained, and a new node finds every key where it is
+         */
+        persisterA.retireShard( "db0" );
+        persisterB.retireShard( "db0" );
+        assertTrue( persisterA.rebalance()>0 );
+        assertEquals( shards.get( "db0" ).loadSequenceKeys().size(), 0 );
+        generate( generatorB, values );
+        ShardedSequenceObjectPersister persisterC = newPersister( persisterA.getShards() );
+        persisterC.retireShard( "db0" );
+        generate( TestSequenceGenerators.newGenerator( persisterC, 10, 0 ), values );
+        assertEquals( values.size(), KEY_COUNT * 25 * 8 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void roundTrip() throws Exception {
+        Map<String, SequenceObjectPersisterImpl> shards = new HashMap<String, SequenceObjectPersisterImpl>();
+        shards.put( "db0", newShard( "roundTrip0" ) );
+        shards.put( "db1", newShard( "roundTrip1" ) );
+        ShardedSequenceObjectPersister persisterA = newPersister( shards );
+        ShardedSequenceObjectPersister persisterB = newPersister( shards );
+        KeyedSequenceGeneratorImpl generatorA = TestSequenceGenerators.newGenerator( persisterA, 10, 0 );
+        KeyedSequenceGeneratorImpl generatorB = TestSequenceGenerators.newGenerator( persisterB, 10, 0 );
+        Set<String> values = new HashSet<String>();
+        generate( generatorA, values );
+        generate( generatorB, values );
+        
+        /*
+         * keys move to the new shard, then back to the old shards where their fenced rows are
+         */
+        SequenceObjectPersisterImpl shard2 = newShard( "roundTrip2" );
+        persisterA.addShard( "db2", shard2 );
+        persisterB.addShard( "db2", shard2 );
+        int moved = persisterA.rebalance();
+        assertTrue( moved>0 );
+        generate( generatorA, values );
+        generate( generatorB, values );
+        
+        persisterA.retireShard( "db2" );
+        persisterB.retireShard( "db2" );
+        assertEquals( persisterA.rebalance(), moved );
+        assertEquals( shard2.loadSequenceKeys().size(), 0 );
+        assertEquals( shards.get( "db0" ).loadSequenceKeys().size() + shards.get( "db1" ).loadSequenceKeys().size(), KEY_COUNT );
+        generate( generatorB, values );
+        generate( generatorA, values );
+        
+        /*
+         * and once more to the new shard, where they are fenced now
+         */
+        persisterA.addShard( "db2", shard2 );
+        persisterB.addShard( "db2", shard2 );
+        assertEquals( persisterA.rebalance(), moved );
+        assertEquals( shard2.loadSequenceKeys().size(), moved );
+        generate( generatorA, values );
+        generate( generatorB, values );
+        generate( TestSequenceGenerators.newGenerator( newPersister( persisterA.getShards() ), 10, 0 ), values );
+        assertEquals( values.size(), KEY_COUNT * 25 * 9 );
+    }
+    
+    private void generate(KeyedSequenceGeneratorImpl generator, Set<String> values) {
+        for( int i=0; i<KEY_COUNT; i++ ){
+            String key = "key" + i;
+            for( int j=0; j<25; j++ ){
+                String value = key + "=" + generator.nextValue( key );
+                assertTrue( values.add( value ), "duplicate " + value );
+            }
+        }
+    }
+    
+    private ShardedSequenceObjectPersister newPersister(Map<String, SequenceObjectPersisterImpl> shards) {
+        ShardedSequenceObjectPersister persister = new ShardedSequenceObjectPersister();
+        persister.setShards( shards );
+        persister.init();
+        return persister;
+    }
+    
+    private SequenceObjectPersisterImpl newShard(String name) throws Exception {
+        return H2SequenceRegistry.createPersister( H2SequenceRegistry.createDataSource( name ) );
+    }
+    
+}
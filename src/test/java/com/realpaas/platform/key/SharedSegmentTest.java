@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies, Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.BoundedSequenceObjectCache;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObjectCache;
+import com.realpaas.platform.key.impl.SharedSegmentRegistry;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SharedSegmentTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void oneSegment() throws Exception {
+        /*
+         * generators of their own caches reserve a segment each
+         */
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl first = newGenerator( persister, false );
+        KeyedSequenceGeneratorImpl second = newGenerator( persister, false );
+        long value = first.nextValue( "order" );
+        assertEquals( second.nextValue( "order" ), value + 100 );
+        assertEquals( persister.getUpdateCount(), 1 );
+        
+        /*
+         * generators of shared segments take values from one segment
+         */
+        persister = new InMemorySequenceObjectPersister();
+        first = newGenerator( persister, true );
+        second = newGenerator( persister, true );
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 2 );
+        value = first.nextValue( "order" );
+        assertEquals( second.nextValue( "order" ), value + 1 );
+        assertEquals( first.nextValue( "order" ), value + 2 );
+        assertEquals( persister.getUpdateCount(), 0 );
+        
+        first.destroy();
+        second.destroy();
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void oneRefillOwner() throws Exception {
+        final InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        final KeyedSequenceGeneratorImpl[] generators = new KeyedSequenceGeneratorImpl[4];
+        for( int i=0; i<generators.length; i++ ){
+            generators[i] = newGenerator( persister, true );
+            generators[i].setIncrement( 10 );
+        }
+        
+        final int threads = 8;
+        final int count = 5000;
+        final Set<Long> values = ConcurrentHashMap.<Long>newKeySet();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( threads );
+        for( int i=0; i<threads; i++ ){
+            final KeyedSequenceGeneratorImpl generator = generators[i % generators.length];
+            new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for( int j=0; j<count; j++ ){
+                            values.add( generator.nextValue( "order" ) );
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            } ).start();
+        }
+        start.countDown();
+        done.await();
+        
+        /*
+         * no value is lost or duplicated, so every segment is refilled once by one generator
+         */
+        assertEquals( values.size(), threads * count );
+        assertEquals( persister.getUpdateCount(), (long) threads * count / 10 - 1 );
+        for( KeyedSequenceGeneratorImpl generator : generators ){
+            generator.destroy();
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void lifecycle() throws Exception {
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        KeyedSequenceGeneratorImpl first = newGenerator( persister, true );
+        KeyedSequenceGeneratorImpl second = newGenerator( persister, true );
+        long value = first.nextValue( "order" );
+        
+        /*
+         * the segment outlives the generator which loaded it, until the last one is shut down
+         */
+        first.destroy();
+        assertEquals( persister.getFreeRangeCount( "order" ), 0 );
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 1 );
+        assertEquals( second.nextValue( "order" ), value + 1 );
+        
+        second.destroy();
+        assertEquals( persister.getFreeRangeCount( "order" ), 1 );
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 0 );
+        
+        /*
+         * a new generator gets a new shared cache
+         */
+        KeyedSequenceGeneratorImpl third = newGenerator( persister, true );
+        assertEquals( third.getSequenceCache().size(), 0 );
+        third.destroy();
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void configuredCache() throws Exception {
+        /*
+         * the first generator shares its configured cache, the others take it
+         */
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        BoundedSequenceObjectCache cache = new BoundedSequenceObjectCache( 10, 0 );
+        KeyedSequenceGeneratorImpl first = newGenerator( persister, true, cache );
+        KeyedSequenceGeneratorImpl second = newGenerator( persister, true, null );
+        assertSame( first.getSequenceCache(), cache );
+        assertSame( second.getSequenceCache(), cache );
+        long value = first.nextValue( "order" );
+        assertEquals( second.nextValue( "order" ), value + 1 );
+        
+        /*
+         * eviction by one generator drops the segment of all of them
+         */
+        assertTrue( second.evict( "order" ) );
+        assertFalse( first.evict( "order" ) );
+        assertEquals( first.nextValue( "order" ), value + 100 );
+        
+        /*
+         * another configured cache can't be shared
+         */
+        try {
+            newGenerator( persister, true, new BoundedSequenceObjectCache( 10, 0 ) );
+            fail( "Persister already shares another cache" );
+        }
+        catch (IllegalStateException e) {
+        }
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 2 );
+        KeyedSequenceGeneratorImpl third = newGenerator( persister, true, cache );
+        assertSame( third.getSequenceCache(), cache );
+        
+        first.destroy();
+        second.destroy();
+        third.destroy();
+        assertEquals( SharedSegmentRegistry.getReferenceCount( persister ), 0 );
+    }
+    
+    private KeyedSequenceGeneratorImpl newGenerator(InMemorySequenceObjectPersister persister, boolean sharedSegments) {
+        return newGenerator( persister, sharedSegments, null );
+    }
+    
+    private KeyedSequenceGeneratorImpl newGenerator(InMemorySequenceObjectPersister persister, boolean sharedSegments, SequenceObjectCache cache) {
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 100, 0 );
+        if( cache!=null ){
+            generator.setSequenceCache( cache );
+        }
+        generator.setSharedSegments( sharedSegments );
+        generator.init();
+        return generator;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.CompactSequenceStore;
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class ShutdownTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void releaseOnShutdown() throws Exception {
+        releaseOnShutdown( false );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void releaseOnShutdownWithCompactStore() throws Exception {
+        releaseOnShutdown( true );
+    }
+    
+    private void releaseOnShutdown(boolean compact) throws Exception {
+        InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+        final KeyedSequenceGeneratorImpl generator = newGenerator( persister, compact );
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        
+        /*
+         * keep getting values while the generator is shut down
+         */
+        Thread[] threads = new Thread[4];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for(;;) {
+                            long seq = generator.nextValue( "order" );
+                            if( sequenceMap.put( seq, getName() )!=null ){
+                                sequenceMap.put( -1L, "duplicate " + seq );
+                            }
+                        }
+                    }
+                    catch (SequenceGeneratorException e) {
+                        // shut down
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        Thread.sleep( 50 );
+        generator.destroy();
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertTrue( generator.isShutdown() );
+        assertTrue( !sequenceMap.containsKey( -1L ) );
+        
+        /*
+         * nothing is released if a caller had just exhausted the segment and waits to refill it
+         */
+        int released = persister.getFreeRangeCount( "order" );
+        assertTrue( released<=1 );
+        
+        /*
+         * the next node claims the released range first
+         */
+        long storedValue = persister.getStoredValue( "order" );
+        KeyedSequenceGeneratorImpl nextGenerator = newGenerator( persister, compact );
+        for( int i=0; i<999; i++ ){
+            long seq = nextGenerator.nextValue( "order" );
+            assertTrue( sequenceMap.put( seq, "next" )==null );
+            if( i==0 ){
+                assertEquals( seq<=storedValue, released==1 );
+            }
+        }
+        assertEquals( persister.getFreeRangeCount( "order" ), 0 );
+        
+        /*
+         * without concurrent callers the unused tail of the segment is always released
+         */
+        nextGenerator.destroy();
+        assertEquals( persister.getFreeRangeCount( "order" ), 1 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void handoverToLowerFreeRange() throws Exception {
+        handoverToLowerFreeRange( false );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void publishLowerSegment() throws Exception {
+        final SequenceObject so = new SequenceObject( "order", 1000000L, 1000000L );
+        final int segments = 1000;
+        final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[3];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    while( !done.get() ) {
+                        long seq = so.nextValue();
+                        if( seq!=SequenceObject.EXHAUSTED && sequenceMap.put( seq, getName() )!=null ){
+                            sequenceMap.put( -1L, "duplicate " + seq );
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        
+        /*
+         * hand every exhausted segment over to a lower one, as a claimed free range does
+         */
+        for( int i=0; i<segments; i++ ){
+            while( !so.reachValve( 0 ) ){
+                Thread.yield();
+            }
+            long start = (segments - i) * 20L;
+            so.setSegment( start, start + 10 );
+        }
+        while( !so.reachValve( 0 ) ){
+            Thread.yield();
+        }
+        done.set( true );
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals( sequenceMap.get( -1L ), null );
+        assertEquals( sequenceMap.size(), segments * 10 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void handoverToLowerFreeRangeWithCompactStore() throws Exception {
+        handoverToLowerFreeRange( true );
+    }
+    
+    private void handoverToLowerFreeRange(boolean compact) throws Exception {
+        for( int round=0; round<20; round++ ){
+            InMemorySequenceObjectPersister persister = new InMemorySequenceObjectPersister();
+            final KeyedSequenceGeneratorImpl generator = newGenerator( persister, compact );
+            generator.setInitValue( 1000000L );
+            generator.setIncrement( 10 );
+            generator.nextValue( "order" );
+            
+            /*
+             * every refill claims a free range below the valve of the exhausted segment
+             */
+            for( int i=0; i<2000; i++ ){
+                persister.releaseRange( "order", (2000 - i) * 200L, (2000 - i) * 200L + 10 );
+            }
+            final Map<Long, String> sequenceMap = new ConcurrentHashMap<Long, String>();
+            Thread[] threads = new Thread[4];
+            for( int t=0; t<threads.length; t++ ){
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        for( int i=0; i<5000; i++ ) {
+                            long seq = generator.nextValue( "order" );
+                            if( sequenceMap.put( seq, getName() )!=null ){
+                                sequenceMap.put( -1L, "duplicate " + seq );
+                            }
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for( Thread thread : threads ){
+                thread.join();
+            }
+            assertEquals( sequenceMap.get( -1L ), null );
+            assertEquals( sequenceMap.size(), 20000 );
+        }
+    }
+    
+    private KeyedSequenceGeneratorImpl newGenerator(InMemorySequenceObjectPersister persister, boolean compact) {
+        KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 1000, 0 );
+        if( compact ){
+            generator.setCompactStore( new CompactSequenceStore() );
+        }
+        return generator;
+    }
+    
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SortableIdGeneratorImpl;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SortableIdTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void base62(){
+        assertEquals( new SortableId( 0, 0 ).toBase62(), "0000000000000000000000" );
+        assertEquals( new SortableId( 0, 61 ).toBase62(), "000000000000000000000z" );
+        assertEquals( new SortableId( 0, 62 ).toBase62(), "0000000000000000000010" );
+        assertEquals( new SortableId( -1, -1 ).toBase62(), "7n42DGM5Tflk9n8mt7Fhc7" );
+        assertEquals( SortableId.parse( "7n42DGM5Tflk9n8mt7Fhc7" ), new SortableId( -1, -1 ) );
+        
+        try {
+            SortableId.parse( "7n42DGM5Tflk9n8mt7Fhc8" );
+            fail( "128 bits should overflow" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        try {
+            SortableId.parse( "000000000000000000000-" );
+            fail( "illegal char should be rejected" );
+        }
+        catch (IllegalArgumentException e) {
+        }
+        
+        Random random = new Random( 20121019 );
+        SortableId previous = new SortableId( random.nextLong(), random.nextLong() );
+        for( int i=0; i<10000; i++ ){
+            SortableId id = new SortableId( random.nextLong(), i % 2==0 ? random.nextLong() : previous.getLow() );
+            if( i % 3==0 ){
+                id = new SortableId( previous.getHigh(), id.getLow() );
+            }
+            String code = id.toBase62();
+            assertEquals( code.length(), SortableId.BASE62_LENGTH );
+            assertEquals( SortableId.parse( code ), id );
+            assertEquals( Integer.signum( code.compareTo( previous.toBase62() ) ), Integer.signum( id.compareTo( previous ) ) );
+            previous = id;
+        }
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void parts(){
+        SortableId id = SortableId.of( 1350604800000L, 0x12345678L, 42 );
+        assertEquals( id.getTimestamp(), 1350604800000L );
+        assertEquals( id.getNode(), 0x12345678L );
+        assertEquals( id.getCounter(), 42 );
+        assertTrue( id.compareTo( SortableId.of( 1350604800001L, 0, 0 ) )<0 );
+        assertTrue( id.compareTo( SortableId.of( 1350604800000L, 0x12345678L, 43 ) )<0 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void nextId(){
+        KeyedSequenceGeneratorImpl keyedSequenceGenerator = new KeyedSequenceGeneratorImpl();
+        keyedSequenceGenerator.setPersister( new InMemorySequenceObjectPersister() );
+        final long[] clock = { 1350604800000L };
+        SortableIdGeneratorImpl generator = new SortableIdGeneratorImpl() {
+            @Override
+            protected long currentTimeMillis() {
+                return clock[0];
+            }
+        };
+        generator.setKeyedSequenceGenerator( keyedSequenceGenerator );
+        SortableIdGeneratorImpl another = new SortableIdGeneratorImpl();
+        another.setKeyedSequenceGenerator( keyedSequenceGenerator );
+        
+        Set<SortableId> ids = new HashSet<SortableId>();
+        SortableId previous = generator.nextId();
+        ids.add( previous );
+        for( int i=0; i<1000; i++ ){
+            /*
+             * the clock goes back sometimes
+             */
+            clock[0] += i % 10==9 ? -5 : 1;
+            SortableId id = generator.nextId();
+            assertTrue( id.compareTo( previous )>0 );
+            assertTrue( id.toBase62().compareTo( previous.toBase62() )>0 );
+            assertTrue( ids.add( id ) );
+            assertTrue( ids.add( another.nextId() ) );
+            previous = id;
+        }
+        assertFalse( another.nextId().getNode()==generator.nextId().getNode() );
+    }
+    
+}
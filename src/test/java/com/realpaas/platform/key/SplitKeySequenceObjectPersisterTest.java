@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.testng.annotations.Test;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObject;
+import com.realpaas.platform.key.impl.rdbms.SequenceObjectPersisterImpl;
+import com.realpaas.platform.key.impl.rdbms.SplitKeySequenceObjectPersister;
+import com.realpaas.platform.test.AbstractTest;
+
+/**
+ * <p>
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-17	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public class SplitKeySequenceObjectPersisterTest extends AbstractTest{
+
+    @Override
+    public void setUp() throws Exception {}
+
+    @Override
+    public void tearDown() throws Exception {}
+    
+    @Test(groups={"all", "ut", "key"})
+    public void splitOnline() throws Exception {
+        DataSource dataSource = H2SequenceRegistry.createDataSource( "split" );
+        SplitKeySequenceObjectPersister persisterA = newPersister( dataSource, 0 );
+        SplitKeySequenceObjectPersister persisterB = newPersister( dataSource, 1 );
+        KeyedSequenceGeneratorImpl generatorA = TestSequenceGenerators.newGenerator( persisterA, 10, 0 );
+        KeyedSequenceGeneratorImpl generatorB = TestSequenceGenerators.newGenerator( persisterB, 10, 0 );
+        Map<Long, String> values = new ConcurrentHashMap<Long, String>();
+        
+        generate( generatorA, "order", 100, values );
+        generate( generatorB, "order", 100, values );
+        assertEquals( persisterA.getRowCount( "order" ), 1 );
+        
+        /*
+         * the other node picks the layout up when its row is fenced
+         */
+        assertTrue( persisterA.split( "order", 4 ) );
+        assertEquals( persisterB.getRowCount( "order" ), 4 );
+        generate( generatorB, "order", 200, values );
+        generate( generatorA, "order", 200, values );
+        
+        assertTrue( persisterB.split( "order", 8 ) );
+        assertTrue( !persisterA.split( "order", 8 ) );
+        assertTrue( !persisterA.split( "order", 4 ) );
+        generate( generatorA, "order", 200, values );
+        generate( generatorB, "order", 200, values );
+        generate( generatorA, "tenant", 100, values );
+        assertEquals( persisterA.getRowCount( "tenant" ), 1 );
+        assertEquals( values.size(), 1100 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void splitUnderContention() throws Exception {
+        DataSource dataSource = H2SequenceRegistry.createDataSource( "contended" );
+        final Map<Long, String> values = new ConcurrentHashMap<Long, String>();
+        Thread[] threads = new Thread[4];
+        SplitKeySequenceObjectPersister[] persisters = new SplitKeySequenceObjectPersister[threads.length];
+        for( int t=0; t<threads.length; t++ ){
+            persisters[t] = newPersister( dataSource, t );
+            persisters[t].setAutoSplitThreshold( 3 );
+            final KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persisters[t], 10, 0 );
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    generate( generator, "order", 2000, values );
+                }
+            };
+        }
+        for( Thread thread : threads ){
+            thread.start();
+        }
+        persisters[0].split( "order", 2 );
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals( values.size(), 2000 * threads.length );
+        assertTrue( persisters[0].getRowCount( "order" )>=2 );
+    }
+    
+    @Test(groups={"all", "ut", "key"})
+    public void fallbackToLowerRow() throws Exception {
+        DataSource dataSource = H2SequenceRegistry.createDataSource( "fallback" );
+        
+        /*
+         * the row of the node's affinity conflicts now and then, so its refills fall back to 
+         * the other row, whose blocks are below the current valve
+         */
+        SequenceObjectPersisterImpl flakyPersister = new SequenceObjectPersisterImpl() {
+            private final AtomicInteger updates = new AtomicInteger();
+            
+            @Override
+            public void updateSequenceObject(String storedKey, SequenceObject cachedSo) {
+                if( storedKey.startsWith( "order#1/" ) && updates.incrementAndGet() % 3==0 ){
+                    throw new SequenceGeneratorException( "Conflict on \"" + storedKey + "\"" );
+                }
+                super.updateSequenceObject( storedKey, cachedSo );
+            }
+        };
+        flakyPersister.setDataSource( dataSource );
+        flakyPersister.init();
+        SplitKeySequenceObjectPersister persister = new SplitKeySequenceObjectPersister();
+        persister.setPersister( flakyPersister );
+        persister.setBlockSize( 10 );
+        persister.setAffinity( 1 );
+        final KeyedSequenceGeneratorImpl generator = TestSequenceGenerators.newGenerator( persister, 10, 0 );
+        generator.nextValue( "order" );
+        assertTrue( persister.split( "order", 2 ) );
+        
+        final Map<Long, String> values = new ConcurrentHashMap<Long, String>();
+        Thread[] threads = new Thread[4];
+        for( int t=0; t<threads.length; t++ ){
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for( int i=0; i<2000; i++ ){
+                        long value = generator.nextValue( "order" );
+                        if( values.put( value, getName() )!=null ){
+                            values.put( -1L, "duplicate " + value );
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for( Thread thread : threads ){
+            thread.join();
+        }
+        assertTrue( !values.containsKey( -1L ), values.get( -1L ) );
+        assertEquals( values.size(), 2000 * threads.length );
+    }
+    
+    private void generate(KeyedSequenceGeneratorImpl generator, String key, int count, Map<Long, String> values) {
+        for( int i=0; i<count; i++ ){
+            long value = generator.nextValue( key );
+            if( values.put( key.hashCode() * 1000000L + value, key )!=null ){
+                values.put( -1L, "duplicate " + value );
+            }
+        }
+        assertTrue( !values.containsKey( -1L ), values.get( -1L ) );
+    }
+    
+    private SplitKeySequenceObjectPersister newPersister(DataSource dataSource, int affinity) {
+        SplitKeySequenceObjectPersister persister = new SplitKeySequenceObjectPersister();
+        persister.setPersister( H2SequenceRegistry.createPersister( dataSource ) );
+        persister.setBlockSize( 10 );
+        persister.setAffinity( affinity );
+        return persister;
+    }
+    
+}
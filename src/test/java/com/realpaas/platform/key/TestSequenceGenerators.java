@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2012, RealPaaS Technologies Ltd. All rights reserved.
+ */
+package com.realpaas.platform.key;
+
+import com.realpaas.platform.key.impl.KeyedSequenceGeneratorImpl;
+import com.realpaas.platform.key.impl.SequenceObjectPersister;
+
+/**
+ * <p>
+ * Factory of the keyed sequence generators which tests run against a persister.
+ *
+ * <dl>
+ * <dt><b>Examples:</b></dt>
+ * <p>
+ * <pre>
+ *
+ * </pre>
+ *
+ * <p><dt><b>Thread Safety:</b></dt>
+ * <dd>
+ * 	<b>NOT-THREAD-SAFE</b> and <b>NOT-APPLICABLE</b> (for it will never be used on multi-thread occasion.)
+ * </dd>
+ *
+ * <p><dt><b>Serialization:</b></dt>
+ * <dd>
+ * 	<b>NOT-SERIALIIZABLE</b> and <b>NOT-APPLICABLE</b> (for it have no need to be serializable.)
+ * </dd>
+ *
+ * <p><dt><b>Design Patterns:</b></dt>
+ * <dd>
+ * 	
+ * </dd>
+ *
+ * <p><dt><b>Change History:</b></dt>
+ * <dd>
+ * 	Date		Author		Action
+ * </dd>
+ * <dd>
+ * 	2026-10-19	henryleu	Create the class
+ * </dd>
+ *
+ * </dl>
+ * @author	henryleu Email/MSN: hongli_leu@126.com
+ */
+public final class TestSequenceGenerators {
+    
+    private TestSequenceGenerators() {
+    }
+    
+    /**
+     * Create a generator of the persister, it is not initialized so that tests can configure 
+     * it further.
+     * @param persister persister of the sequences
+     * @param increment size of a segment
+     * @param prefetch number of segments reserved ahead, 0 to refill on exhaustion
+     */
+    public static KeyedSequenceGeneratorImpl newGenerator(SequenceObjectPersister persister, int increment, int prefetch) {
+        KeyedSequenceGeneratorImpl generator = new KeyedSequenceGeneratorImpl();
+        generator.setPersister( persister );
+        generator.setIncrement( increment );
+        generator.setPrefetch( prefetch );
+        return generator;
+    }
+    
+}